@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micronaut.core.annotation.NonNull;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeRecord;
+import org.hyperledger.bpa.api.aries.AriesProofExchange;
+import org.hyperledger.bpa.api.aries.SchemaAPI;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.impl.aries.CredentialInfoResolver;
+import org.hyperledger.bpa.impl.aries.config.SchemaService;
+import org.hyperledger.bpa.impl.util.AriesStringUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Fixture payloads and hand written stand-ins for the beans that need a
+ * database or aca-py, so that the benchmarks only measure the code under test.
+ * The stand-ins behave like a bpa that has nothing stored yet.
+ */
+public final class Fixtures {
+
+    /** default of bpa.did.prefix */
+    public static final String DID_PREFIX = "did:sov:";
+
+    private Fixtures() {
+    }
+
+    /**
+     * @return {@link ObjectMapper} configured like the jackson section in
+     *         application.yml
+     */
+    public static ObjectMapper objectMapper() {
+        return new ObjectMapper()
+                .findAndRegisterModules()
+                .setSerializationInclusion(JsonInclude.Include.NON_ABSENT)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true)
+                .configure(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT, true);
+    }
+
+    /**
+     * Loads a classpath resource, the fixtures are the test payloads of the main
+     * module, see its test-jar
+     *
+     * @param resource e.g. files/verifiablePresentation.json
+     * @return content as string
+     */
+    public static String load(@NonNull String resource) {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing fixture: " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Messages are resolved from the real bundles, outside a http request the
+     * locale resolver is not used
+     *
+     * @return {@link BPAMessageSource.DefaultMessageSource}
+     */
+    public static BPAMessageSource.DefaultMessageSource messageSource() {
+        return new BPAMessageSource.DefaultMessageSource(null);
+    }
+
+    /**
+     * @param ledgerSchemaIds database schema id to ledger schema id
+     * @return {@link SchemaService} that resolves labels from the schema id
+     */
+    public static SchemaService schemaService(@NonNull Map<UUID, String> ledgerSchemaIds) {
+        return new SchemaService() {
+            @Override
+            public String getSchemaLabel(@NonNull String schemaId) {
+                return AriesStringUtil.schemaGetName(schemaId);
+            }
+
+            @Override
+            public Optional<SchemaAPI> getSchema(@NonNull UUID id) {
+                return Optional.ofNullable(ledgerSchemaIds.get(id))
+                        .map(schemaId -> SchemaAPI.builder().id(id).schemaId(schemaId).build());
+            }
+        };
+    }
+
+    /**
+     * @param schemaService {@link SchemaService}
+     * @return {@link CredentialInfoResolver} that falls back to the issuer did
+     *         like it does when there is no trusted issuer configured
+     */
+    public static CredentialInfoResolver credentialInfoResolver(@NonNull SchemaService schemaService) {
+        return new CredentialInfoResolver() {
+            @Override
+            public AriesProofExchange.Identifier populateIdentifier(
+                    @NonNull PresentationExchangeRecord.Identifier identifier) {
+                return AriesProofExchange.Identifier.builder()
+                        .schemaId(identifier.getSchemaId())
+                        .schemaLabel(schemaService.getSchemaLabel(identifier.getSchemaId()))
+                        .credentialDefinitionId(identifier.getCredentialDefinitionId())
+                        .issuerLabel(DID_PREFIX + AriesStringUtil.credDefIdGetDid(identifier.getCredentialDefinitionId()))
+                        .build();
+            }
+        };
+    }
+}
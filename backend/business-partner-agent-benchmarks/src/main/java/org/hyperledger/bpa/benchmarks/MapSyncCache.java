@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks;
+
+import io.micronaut.cache.SyncCache;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.type.Argument;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Unbounded {@link SyncCache} without expiry, stands in for the caffeine caches
+ * that are configured in application.yml, so that cached code paths can be
+ * measured without starting an application context.
+ */
+public class MapSyncCache implements SyncCache<Map<Object, Object>> {
+
+    private final String name;
+
+    private final Map<Object, Object> cache = new ConcurrentHashMap<>();
+
+    public MapSyncCache(@NonNull String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Map<Object, Object> getNativeCache() {
+        return cache;
+    }
+
+    @Override
+    public <T> Optional<T> get(@NonNull Object key, @NonNull Argument<T> requiredType) {
+        return Optional.ofNullable(cache.get(key))
+                .filter(requiredType.getType()::isInstance)
+                .map(requiredType.getType()::cast);
+    }
+
+    @Override
+    public <T> T get(@NonNull Object key, @NonNull Argument<T> requiredType, @NonNull Supplier<T> supplier) {
+        return requiredType.getType().cast(cache.computeIfAbsent(key, k -> supplier.get()));
+    }
+
+    @Override
+    public <T> Optional<T> putIfAbsent(@NonNull Object key, @NonNull T value) {
+        @SuppressWarnings("unchecked")
+        T existing = (T) cache.putIfAbsent(key, value);
+        return Optional.ofNullable(existing);
+    }
+
+    @Override
+    public void put(@NonNull Object key, @NonNull Object value) {
+        cache.put(key, value);
+    }
+
+    @Override
+    public void invalidate(@NonNull Object key) {
+        cache.remove(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.clear();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.prooftemplates;
+
+import org.hyperledger.aries.api.present_proof.PresentProofRequest;
+import org.hyperledger.bpa.benchmarks.Fixtures;
+import org.hyperledger.bpa.benchmarks.MapSyncCache;
+import org.hyperledger.bpa.model.BPAProofTemplate;
+import org.hyperledger.bpa.model.Partner;
+import org.hyperledger.bpa.model.prooftemplate.*;
+import org.hyperledger.bpa.repository.PartnerRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proof template to proof request conversion, once for a template that has not
+ * been stored yet and is compiled on every call, and once for a stored template
+ * whose compiled request is taken from the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ProofTemplateConversionBenchmark {
+
+    private static final String BANK_ACCOUNT = "M6Mbe3qx7vB4wpZF4sBRjt:2:bank_account:1.0";
+    private static final String COMMERCIAL_REGISTER = "8faozNpSjFfPJXYtgcPtmJ:2:commercialregister:1.3";
+
+    private ProofTemplateConversion conversion;
+
+    private UUID partnerId;
+
+    private BPAProofTemplate newTemplate;
+
+    private BPAProofTemplate storedTemplate;
+
+    @Setup
+    public void setup() {
+        UUID bankAccount = UUID.randomUUID();
+        UUID commercialRegister = UUID.randomUUID();
+        Partner partner = Partner.builder()
+                .id(UUID.randomUUID())
+                .connectionId(UUID.randomUUID().toString())
+                .build();
+        partnerId = partner.getId();
+
+        conversion = new ProofTemplateConversion();
+        conversion.partnerRepo = partnerRepository(partner);
+        conversion.clock = Clock.fixed(Instant.parse("2021-12-01T10:00:00Z"), ZoneOffset.UTC);
+        conversion.schemaService = Fixtures.schemaService(Map.of(
+                bankAccount, BANK_ACCOUNT,
+                commercialRegister, COMMERCIAL_REGISTER));
+        conversion.ms = Fixtures.messageSource();
+        conversion.templateCache = new MapSyncCache("proof-template-cache");
+
+        newTemplate = template(bankAccount, commercialRegister);
+        storedTemplate = template(bankAccount, commercialRegister);
+        storedTemplate.setId(UUID.randomUUID());
+        storedTemplate.setCreatedAt(Instant.now());
+    }
+
+    @Benchmark
+    public PresentProofRequest compile() {
+        return conversion.proofRequestViaVisitorFrom(partnerId, newTemplate);
+    }
+
+    @Benchmark
+    public PresentProofRequest cached() {
+        return conversion.proofRequestViaVisitorFrom(partnerId, storedTemplate);
+    }
+
+    /** two schemas, a predicate, revocation check and issuer restrictions */
+    private static BPAProofTemplate template(UUID bankAccount, UUID commercialRegister) {
+        return BPAProofTemplate.builder()
+                .name("Supplier Onboarding")
+                .attributeGroups(BPAAttributeGroups.builder()
+                        .attributeGroup(BPAAttributeGroup.builder()
+                                .schemaId(bankAccount.toString())
+                                .attribute(BPAAttribute.builder().name("iban").build())
+                                .attribute(BPAAttribute.builder().name("bic").build())
+                                .nonRevoked(Boolean.TRUE)
+                                .schemaLevelRestrictions(List.of(BPASchemaRestrictions.builder()
+                                        .credentialDefinitionId("M6Mbe3qx7vB4wpZF4sBRjt:3:CL:571:bank_account_no_revoc")
+                                        .build()))
+                                .build())
+                        .attributeGroup(BPAAttributeGroup.builder()
+                                .schemaId(commercialRegister.toString())
+                                .attribute(BPAAttribute.builder().name("companyName").build())
+                                .attribute(BPAAttribute.builder().name("registrationNumber").build())
+                                .attribute(BPAAttribute.builder().name("city").build())
+                                .attribute(BPAAttribute.builder()
+                                        .name("foundingYear")
+                                        .condition(BPACondition.builder()
+                                                .operator(ValueOperators.LESS_THAN_OR_EQUAL_TO)
+                                                .value("2019")
+                                                .build())
+                                        .build())
+                                .schemaLevelRestrictions(List.of(BPASchemaRestrictions.builder()
+                                        .issuerDid("did:sov:8faozNpSjFfPJXYtgcPtmJ")
+                                        .build()))
+                                .build())
+                        .build())
+                .build();
+    }
+
+    private static PartnerRepository partnerRepository(Partner partner) {
+        return (PartnerRepository) Proxy.newProxyInstance(PartnerRepository.class.getClassLoader(),
+                new Class<?>[] { PartnerRepository.class }, (proxy, method, args) -> {
+                    if ("findById".equals(method.getName())) {
+                        return Optional.of(partner);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
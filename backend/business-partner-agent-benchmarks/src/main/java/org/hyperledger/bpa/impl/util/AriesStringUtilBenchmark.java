@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Id parsing helpers that are called for every credential, schema and
+ * restriction that is resolved or labeled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AriesStringUtilBenchmark {
+
+    // non-final, so that the inputs can not be constant folded
+    private String did = "did:sov:M6Mbe3qx7vB4wpZF4sBRjt";
+    private String schemaId = "M6Mbe3qx7vB4wpZF4sBRjt:2:bank_account:1.0";
+    private String credDefId = "M6Mbe3qx7vB4wpZF4sBRjt:3:CL:571:bank_account_no_revoc";
+    private String attributeName = "  Company Legal   Name ";
+    private String notAUUID = "M6Mbe3qx7vB4wpZF4sBRjt";
+
+    @Benchmark
+    public String getLastSegment() {
+        return AriesStringUtil.getLastSegment(did);
+    }
+
+    @Benchmark
+    public String schemaGetName() {
+        return AriesStringUtil.schemaGetName(schemaId);
+    }
+
+    @Benchmark
+    public String credDefIdGetTag() {
+        return AriesStringUtil.credDefIdGetTag(credDefId);
+    }
+
+    @Benchmark
+    public boolean isCredDef() {
+        return AriesStringUtil.isCredDef(credDefId);
+    }
+
+    @Benchmark
+    public String schemaAttributeFormat() {
+        return AriesStringUtil.schemaAttributeFormat(attributeName);
+    }
+
+    /** the negative case takes the exception path */
+    @Benchmark
+    public boolean isUUIDInvalid() {
+        return AriesStringUtil.isUUID(notAUUID);
+    }
+}
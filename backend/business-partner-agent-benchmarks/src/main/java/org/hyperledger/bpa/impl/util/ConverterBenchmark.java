@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hyperledger.aries.api.ExchangeVersion;
+import org.hyperledger.aries.api.connection.ConnectionState;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeRecord;
+import org.hyperledger.aries.webhook.EventParser;
+import org.hyperledger.bpa.api.PartnerAPI;
+import org.hyperledger.bpa.api.aries.AriesProofExchange;
+import org.hyperledger.bpa.benchmarks.Fixtures;
+import org.hyperledger.bpa.benchmarks.MapSyncCache;
+import org.hyperledger.bpa.impl.aries.config.SchemaService;
+import org.hyperledger.bpa.model.Partner;
+import org.hyperledger.bpa.model.PartnerProof;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions that run for every partner and proof exchange that is listed in
+ * the frontend, and the map round trip of every json column.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ConverterBenchmark {
+
+    private Converter conv;
+
+    private Converter cachingConv;
+
+    private Map<String, Object> presentationMap;
+
+    private VerifiablePresentation<VerifiableIndyCredential> presentation;
+
+    private Partner partner;
+
+    private PartnerProof proof;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        ObjectMapper mapper = Fixtures.objectMapper();
+        SchemaService schemaService = Fixtures.schemaService(Map.of());
+        conv = new Converter(Fixtures.DID_PREFIX, mapper, schemaService, null,
+                Fixtures.credentialInfoResolver(schemaService), Fixtures.messageSource(), null);
+        cachingConv = new Converter(Fixtures.DID_PREFIX, mapper, schemaService, null,
+                Fixtures.credentialInfoResolver(schemaService), Fixtures.messageSource(),
+                new MapSyncCache("partner-api-cache"));
+
+        presentationMap = mapper.readValue(Fixtures.load("files/verifiablePresentation.json"),
+                Converter.STRING_OBJECT_MAP);
+        presentation = conv.fromMap(presentationMap, Converter.VP_TYPEREF);
+
+        Instant now = Instant.now();
+        partner = Partner.builder()
+                .id(UUID.randomUUID())
+                .createdAt(now)
+                .updatedAt(now)
+                .lastSeen(now)
+                .did("did:sov:M6Mbe3qx7vB4wpZF4sBRjt")
+                .connectionId(UUID.randomUUID().toString())
+                .state(ConnectionState.ACTIVE)
+                .label("Bank")
+                .ariesSupport(Boolean.TRUE)
+                .valid(Boolean.TRUE)
+                .verifiablePresentation(presentationMap)
+                .build();
+
+        PresentationExchangeRecord verified = new EventParser()
+                .parsePresentProof(Fixtures.load("files/self-request-proof/05-verifier-verified-attr-groups.json"))
+                .orElseThrow();
+        proof = PartnerProof.builder()
+                .id(UUID.randomUUID())
+                .partnerId(partner.getId())
+                .createdAt(now)
+                .updatedAt(now)
+                .presentationExchangeId(verified.getPresentationExchangeId())
+                .threadId(verified.getThreadId())
+                .role(verified.getRole())
+                .exchangeVersion(ExchangeVersion.V1)
+                .valid(verified.isVerified())
+                .proofRequest(verified.getPresentationRequest())
+                .proof(conv.toMap(verified.findRevealedAttributeGroups()))
+                .build()
+                .pushStates(verified.getState(), verified.getUpdatedAt());
+    }
+
+    /** cache miss, parses the presentation and resolves the credential labels */
+    @Benchmark
+    public PartnerAPI partnerToApi() {
+        return conv.toAPIObject(partner);
+    }
+
+    @Benchmark
+    public PartnerAPI partnerToApiCached() {
+        return cachingConv.toAPIObject(partner);
+    }
+
+    @Benchmark
+    public AriesProofExchange proofToApi() {
+        return conv.toAPIObject(proof);
+    }
+
+    @Benchmark
+    public Map<String, Object> toMap() {
+        return conv.toMap(presentation);
+    }
+
+    @Benchmark
+    public VerifiablePresentation<VerifiableIndyCredential> fromMap() {
+        return conv.fromMap(presentationMap, Converter.VP_TYPEREF);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.model;
+
+import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * State tracking of an exchange, called for every webhook event. Replays the
+ * events of a v1 proof request as the verifier with the timestamps aca-py
+ * sends, the last event arrives out of order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class StateChangeDecoratorBenchmark {
+
+    private static final PresentationExchangeState[] STATES = {
+            PresentationExchangeState.REQUEST_SENT,
+            PresentationExchangeState.PRESENTATION_RECEIVED,
+            PresentationExchangeState.VERIFIED,
+            PresentationExchangeState.PRESENTATION_RECEIVED
+    };
+
+    private static final String[] TIMESTAMPS = {
+            "2021-08-25T09:28:28.510805Z",
+            "2021-08-25T09:28:28.893211Z",
+            "2021-08-25T09:28:29.080394Z",
+            "2021-08-25T09:28:28.893211Z"
+    };
+
+    private Instant[] instants;
+
+    @Setup
+    public void setup() {
+        instants = new Instant[TIMESTAMPS.length];
+        for (int i = 0; i < TIMESTAMPS.length; i++) {
+            instants[i] = Instant.parse(TIMESTAMPS[i]);
+        }
+    }
+
+    /** as called from the event handlers, including parsing the timestamp */
+    @Benchmark
+    public PartnerProof pushStatesFromEvents() {
+        PartnerProof proof = new PartnerProof();
+        for (int i = 0; i < STATES.length; i++) {
+            proof.pushStates(STATES[i], TIMESTAMPS[i]);
+        }
+        return proof;
+    }
+
+    @Benchmark
+    public PartnerProof pushStates() {
+        PartnerProof proof = new PartnerProof();
+        for (int i = 0; i < STATES.length; i++) {
+            proof.pushStates(STATES[i], instants[i]);
+        }
+        return proof;
+    }
+}
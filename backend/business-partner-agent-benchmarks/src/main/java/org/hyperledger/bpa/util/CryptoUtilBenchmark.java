@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.util;
+
+import org.hyperledger.aries.api.credentials.CredentialAttributes;
+import org.hyperledger.aries.api.issue_credential_v1.V1CredentialExchange.CredentialProposalDict.CredentialProposal;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a credential proposal with the offer, like the issuer does when a
+ * holder answers an offer with a proposal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class CryptoUtilBenchmark {
+
+    private CredentialProposal offer;
+
+    private CredentialProposal sameProposal;
+
+    private CredentialProposal otherProposal;
+
+    @Setup
+    public void setup() {
+        offer = proposal("DE89370400440532013000");
+        sameProposal = proposal("DE89370400440532013000");
+        otherProposal = proposal("DE02120300000000202051");
+    }
+
+    @Benchmark
+    public boolean hashCompareEqual() {
+        return CryptoUtil.hashCompare(offer, sameProposal);
+    }
+
+    @Benchmark
+    public boolean hashCompareDifferent() {
+        return CryptoUtil.hashCompare(offer, otherProposal);
+    }
+
+    private static CredentialProposal proposal(String iban) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("iban", iban);
+        attributes.put("bic", "COBADEFFXXX");
+        attributes.put("accountHolder", "Example Trading GmbH");
+        attributes.put("bankName", "Commerzbank");
+        attributes.put("currency", "EUR");
+        return CredentialProposal.builder()
+                .attributes(CredentialAttributes.from(attributes))
+                .build();
+    }
+}
@@ -20,6 +20,7 @@ package org.hyperledger.bpa.core;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
 import java.util.List;
@@ -39,12 +40,15 @@ public class RegisteredWebhook {
     @Size(min = 1)
     private List<WebhookEventType> registeredEvent;
     private WebhookCredentials credentials;
+    /** Optional, if set events are buffered and sent as a json array */
+    private WebhookBatchSettings batch;
 
     public RegisteredWebhook(RegisteredWebhook hook) {
         super();
         this.url = hook.getUrl();
         this.registeredEvent = hook.getRegisteredEvent();
         this.credentials = hook.getCredentials();
+        this.batch = hook.getBatch();
     }
 
     public enum WebhookEventType {
@@ -66,6 +70,23 @@ public class RegisteredWebhook {
         private String password;
     }
 
+    /**
+     * Batch delivery settings, a batch is sent when either the max size or the max
+     * linger time is reached, whatever happens first.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static final class WebhookBatchSettings {
+        /** Max number of events in one batch */
+        @Min(1)
+        private Integer maxSize;
+        /** Max time in milliseconds an event is held back before it is sent */
+        @Min(1)
+        private Long maxLingerMs;
+    }
+
     @SuperBuilder
     @Data
     @NoArgsConstructor
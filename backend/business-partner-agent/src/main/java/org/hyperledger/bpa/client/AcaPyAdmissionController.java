@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Global admission control for aca-py calls. There is a global limit of
+ * concurrent calls and a limit per {@link AcaPyPriority}. Whenever a slot
+ * becomes free it goes to the highest priority that is waiting and still below
+ * its own limit, so a large background sweep can never use up all slots and
+ * user facing calls skip the queue.
+ */
+@Singleton
+public class AcaPyAdmissionController {
+
+    @Value("${bpa.acapy.resilience.admission.max-concurrent:20}")
+    Integer maxConcurrent;
+
+    @Value("${bpa.acapy.resilience.admission.interactive.max-concurrent:20}")
+    Integer interactiveMaxConcurrent;
+
+    @Value("${bpa.acapy.resilience.admission.interactive.max-wait:5s}")
+    Duration interactiveMaxWait;
+
+    @Value("${bpa.acapy.resilience.admission.background.max-concurrent:4}")
+    Integer backgroundMaxConcurrent;
+
+    @Value("${bpa.acapy.resilience.admission.background.max-wait:60s}")
+    Duration backgroundMaxWait;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<AcaPyPriority, Condition> conditions = new EnumMap<>(AcaPyPriority.class);
+    private final Map<AcaPyPriority, Integer> limits = new EnumMap<>(AcaPyPriority.class);
+    private final Map<AcaPyPriority, Duration> maxWait = new EnumMap<>(AcaPyPriority.class);
+    private final Map<AcaPyPriority, int[]> inFlight = new EnumMap<>(AcaPyPriority.class);
+    private final Map<AcaPyPriority, int[]> waiting = new EnumMap<>(AcaPyPriority.class);
+    private final Map<AcaPyPriority, Timer> waitTimers = new EnumMap<>(AcaPyPriority.class);
+    private int totalInFlight;
+
+    @PostConstruct
+    void init() {
+        limits.put(AcaPyPriority.INTERACTIVE, interactiveMaxConcurrent);
+        limits.put(AcaPyPriority.BACKGROUND, backgroundMaxConcurrent);
+        maxWait.put(AcaPyPriority.INTERACTIVE, interactiveMaxWait);
+        maxWait.put(AcaPyPriority.BACKGROUND, backgroundMaxWait);
+        for (AcaPyPriority p : AcaPyPriority.values()) {
+            conditions.put(p, lock.newCondition());
+            inFlight.put(p, new int[1]);
+            waiting.put(p, new int[1]);
+            String priority = p.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("bpa.acapy.admission.in-flight", inFlight.get(p), c -> c[0])
+                    .tag("priority", priority)
+                    .register(registry);
+            Gauge.builder("bpa.acapy.admission.waiting", waiting.get(p), c -> c[0])
+                    .tag("priority", priority)
+                    .register(registry);
+            waitTimers.put(p, Timer.builder("bpa.acapy.admission.wait")
+                    .tag("priority", priority)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Waits for a free slot, every successful call has to be followed by
+     * {@link #release(AcaPyPriority)}.
+     *
+     * @param priority {@link AcaPyPriority}
+     * @return false if no slot became free within the max wait time of the
+     *         priority
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean acquire(@NonNull AcaPyPriority priority) throws InterruptedException {
+        long start = System.nanoTime();
+        long remaining = maxWait.get(priority).toNanos();
+        lock.lockInterruptibly();
+        try {
+            waiting.get(priority)[0]++;
+            try {
+                while (!canAdmit(priority)) {
+                    if (remaining <= 0) {
+                        registry.counter("bpa.acapy.rejected",
+                                "reason", "admission-timeout",
+                                "priority", priority.name().toLowerCase(Locale.ROOT))
+                                .increment();
+                        return false;
+                    }
+                    remaining = conditions.get(priority).awaitNanos(remaining);
+                }
+            } finally {
+                waiting.get(priority)[0]--;
+            }
+            inFlight.get(priority)[0]++;
+            totalInFlight++;
+        } finally {
+            lock.unlock();
+        }
+        waitTimers.get(priority).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    public void release(@NonNull AcaPyPriority priority) {
+        lock.lock();
+        try {
+            inFlight.get(priority)[0]--;
+            totalInFlight--;
+            // waiters re-check in canAdmit, where higher priorities win
+            for (AcaPyPriority p : AcaPyPriority.values()) {
+                if (waiting.get(p)[0] > 0) {
+                    conditions.get(p).signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** needs to hold the lock */
+    private boolean canAdmit(AcaPyPriority priority) {
+        if (totalInFlight >= maxConcurrent || inFlight.get(priority)[0] >= limits.get(priority)) {
+            return false;
+        }
+        // give way to higher priorities that are waiting and could be admitted
+        for (AcaPyPriority p : AcaPyPriority.values()) {
+            if (p.ordinal() >= priority.ordinal()) {
+                break;
+            }
+            if (waiting.get(p)[0] > 0 && inFlight.get(p)[0] < limits.get(p)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
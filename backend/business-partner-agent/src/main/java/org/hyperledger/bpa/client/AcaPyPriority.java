@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import lombok.NonNull;
+
+/**
+ * Priority of aca-py calls made by the current thread. Everything runs as
+ * {@link #INTERACTIVE} unless it is wrapped with
+ * {@link #background(ThrowingRunnable)}, which is what scheduled sweeps do so
+ * that they can not starve user facing calls, see
+ * {@link AcaPyAdmissionController}.
+ */
+public enum AcaPyPriority {
+    INTERACTIVE,
+    BACKGROUND;
+
+    private static final ThreadLocal<AcaPyPriority> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+    public static AcaPyPriority current() {
+        return CURRENT.get();
+    }
+
+    public static <E extends Exception> void background(@NonNull ThrowingRunnable<E> task) throws E {
+        AcaPyPriority previous = CURRENT.get();
+        CURRENT.set(BACKGROUND);
+        try {
+            task.run();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ThrowingRunnable<E extends Exception> {
+        void run() throws E;
+    }
+}
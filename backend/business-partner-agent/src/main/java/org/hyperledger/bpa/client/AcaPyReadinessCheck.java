@@ -18,6 +18,7 @@
 package org.hyperledger.bpa.client;
 
 import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
 import io.micronaut.health.HealthStatus;
 import io.micronaut.management.endpoint.health.HealthEndpoint;
 import io.micronaut.management.health.indicator.AbstractHealthIndicator;
@@ -28,9 +29,19 @@ import org.hyperledger.aries.AriesClient;
 import org.hyperledger.aries.api.server.AdminStatusReadiness;
 
 import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
 
+/**
+ * aca-py readiness, the result is cached for a short time so that frequent
+ * health probes do not hit aca-py on every call. If the circuit breaker is open
+ * aca-py is reported as down without calling it. Once the open duration has
+ * passed the readiness check itself is the trial call, so readiness recovers
+ * even without other traffic to aca-py.
+ */
 @Singleton
 @Readiness
 @Requires(beans = HealthEndpoint.class)
@@ -39,8 +50,31 @@ public class AcaPyReadinessCheck extends AbstractHealthIndicator<Map<String, Str
     @Inject
     AriesClient ac;
 
+    @Inject
+    AcaPyResilienceInterceptor resilience;
+
+    @Inject
+    Clock clock;
+
+    @Value("${bpa.acapy.resilience.health-cache-ttl:10s}")
+    Duration cacheTtl;
+
+    private volatile HealthStatus lastStatus;
+    private volatile Instant lastChecked = Instant.EPOCH;
+
     @Override
     protected Map<String, String> getHealthInformation() {
+        if (resilience.getCircuitBreaker().isOpen()) {
+            this.healthStatus = HealthStatus.DOWN;
+            // do not serve a status from before the circuit opened
+            lastStatus = null;
+            return null;
+        }
+        Instant now = clock.instant();
+        if (lastStatus != null && now.isBefore(lastChecked.plus(cacheTtl))) {
+            this.healthStatus = lastStatus;
+            return null;
+        }
         try {
             Optional<AdminStatusReadiness> status = ac.statusReady();
             if (status.isPresent() && status.get().isReady()) {
@@ -48,9 +82,13 @@ public class AcaPyReadinessCheck extends AbstractHealthIndicator<Map<String, Str
             } else {
                 this.healthStatus = HealthStatus.DOWN;
             }
+        } catch (AcaPyUnavailableException e) {
+            this.healthStatus = HealthStatus.DOWN;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        lastStatus = this.healthStatus;
+        lastChecked = now;
         return null;
     }
 
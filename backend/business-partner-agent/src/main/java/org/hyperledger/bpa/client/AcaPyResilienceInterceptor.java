@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Protects the bpa from a slow or unavailable aca-py. Every aries client call
+ * passes a circuit breaker and then the {@link AcaPyAdmissionController} (max
+ * concurrent calls by priority), so that an outage fails fast instead of
+ * blocking all io threads until the timeout or an admission slot is free.
+ * Calls are split into two timeout classes: fast calls that read from the
+ * wallet, and slow calls that write to the ledger, sign or resolve.
+ */
+@Slf4j
+@Singleton
+public class AcaPyResilienceInterceptor implements Interceptor {
+
+    private static final List<String> SLOW_WRITE_PATHS = List.of(
+            "schemas", "credential-definitions", "revocation", "ledger", "wallet", "jsonld");
+    private static final List<String> SLOW_PATHS = List.of("resolver");
+    /** gateway errors, all other errors are answers of a running aca-py */
+    private static final Set<Integer> FAILURE_CODES = Set.of(502, 503, 504);
+
+    @Value("${bpa.acapy.resilience.circuit-breaker.failure-threshold:5}")
+    Integer failureThreshold;
+
+    @Value("${bpa.acapy.resilience.circuit-breaker.open-duration:30s}")
+    Duration openDuration;
+
+    @Value("${bpa.acapy.resilience.timeout.fast:15s}")
+    Duration fastTimeout;
+
+    @Value("${bpa.acapy.resilience.timeout.slow:120s}")
+    Duration slowTimeout;
+
+    @Inject
+    Clock clock;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    AcaPyAdmissionController admission;
+
+    @Getter
+    private CircuitBreaker circuitBreaker;
+
+    @PostConstruct
+    void init() {
+        circuitBreaker = new CircuitBreaker("aca-py", failureThreshold, openDuration, clock);
+        Gauge.builder("bpa.acapy.circuit.open", circuitBreaker, cb -> cb.isOpen() ? 1 : 0)
+                .register(registry);
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        // fail fast while the circuit is open, without waiting for an admission slot
+        if (!circuitBreaker.tryAcquirePermission()) {
+            registry.counter("bpa.acapy.rejected", "reason", "circuit-open").increment();
+            throw new AcaPyUnavailableException("aca-py circuit is open, rejecting: " + request.url().encodedPath());
+        }
+        AcaPyPriority priority = AcaPyPriority.current();
+        try {
+            admit(request, priority);
+        } catch (IOException e) {
+            circuitBreaker.onIgnored();
+            throw e;
+        }
+        try {
+            Response response;
+            try {
+                int timeout = (int) (isSlow(request) ? slowTimeout : fastTimeout).toMillis();
+                response = chain
+                        .withConnectTimeout(Math.min(timeout, chain.connectTimeoutMillis()), TimeUnit.MILLISECONDS)
+                        .withReadTimeout(timeout, TimeUnit.MILLISECONDS)
+                        .withWriteTimeout(timeout, TimeUnit.MILLISECONDS)
+                        .proceed(request);
+            } catch (IOException | RuntimeException e) {
+                circuitBreaker.onFailure();
+                throw e;
+            }
+            if (FAILURE_CODES.contains(response.code())) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            return response;
+        } finally {
+            admission.release(priority);
+        }
+    }
+
+    private void admit(Request request, AcaPyPriority priority) throws IOException {
+        boolean acquired;
+        try {
+            acquired = admission.acquire(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AcaPyUnavailableException("Interrupted while waiting for aca-py");
+        }
+        if (!acquired) {
+            throw new AcaPyUnavailableException("Too many concurrent aca-py calls, rejecting: "
+                    + request.url().encodedPath());
+        }
+    }
+
+    static boolean isSlow(@NonNull Request request) {
+        List<String> segments = request.url().pathSegments();
+        if (segments.isEmpty()) {
+            return false;
+        }
+        String first = segments.get(0);
+        return SLOW_PATHS.contains(first)
+                || (!"GET".equals(request.method()) && SLOW_WRITE_PATHS.contains(first));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Minimal count based circuit breaker. After a number of consecutive failures
+ * the circuit opens and all calls are rejected until the open duration has
+ * passed. Then a single trial call is let through, if it succeeds the circuit
+ * closes again, otherwise it stays open for another period.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private Instant openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(@NonNull String name, int failureThreshold,
+            @NonNull Duration openDuration, @NonNull Clock clock) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * @return true if the call is allowed, every permitted call has to be
+     *         completed with either {@link #onSuccess()}, {@link #onFailure()}
+     *         or {@link #onIgnored()}
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (State.OPEN.equals(state) && !clock.instant().isBefore(openedAt.plus(openDuration))) {
+            state = State.HALF_OPEN;
+        }
+        if (State.HALF_OPEN.equals(state)) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+        return State.CLOSED.equals(state);
+    }
+
+    public synchronized void onSuccess() {
+        if (!State.CLOSED.equals(state)) {
+            log.info("Circuit {} closed", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (State.HALF_OPEN.equals(state)
+                || (State.CLOSED.equals(state) && consecutiveFailures >= failureThreshold)) {
+            log.warn("Circuit {} opened after {} consecutive failure(s)", name, consecutiveFailures);
+            state = State.OPEN;
+            openedAt = clock.instant();
+        }
+        trialInFlight = false;
+    }
+
+    /**
+     * The call neither proved nor disproved that the remote is healthy
+     */
+    public synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return true if calls are currently rejected, false once the open duration
+     *         has passed and the next call would be let through as trial
+     */
+    public synchronized boolean isOpen() {
+        return State.OPEN.equals(state) && clock.instant().isBefore(openedAt.plus(openDuration));
+    }
+}
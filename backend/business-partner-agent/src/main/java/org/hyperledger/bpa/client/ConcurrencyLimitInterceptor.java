@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import lombok.NonNull;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of concurrent calls of a destination, in total and per
+ * host. OkHttp's dispatcher limits only apply to enqueued calls, this also
+ * covers the blocking execute() calls. A call waits at most max wait for a
+ * permit, then it fails with an {@link InterruptedIOException}.
+ */
+public class ConcurrencyLimitInterceptor implements Interceptor {
+
+    private final Semaphore total;
+
+    private final int maxPerHost;
+
+    private final Map<String, Semaphore> perHost = new ConcurrentHashMap<>();
+
+    private final long maxWaitNanos;
+
+    public ConcurrencyLimitInterceptor(int maxRequests, int maxRequestsPerHost, @NonNull Duration maxWait) {
+        this.total = new Semaphore(maxRequests, true);
+        this.maxPerHost = maxRequestsPerHost;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        String host = chain.request().url().host();
+        Semaphore hostPermits = perHost.computeIfAbsent(host, h -> new Semaphore(maxPerHost, true));
+        long deadline = System.nanoTime() + maxWaitNanos;
+        acquire(hostPermits, deadline, host);
+        try {
+            acquire(total, deadline, host);
+            try {
+                return chain.proceed(chain.request());
+            } finally {
+                total.release();
+            }
+        } finally {
+            hostPermits.release();
+        }
+    }
+
+    int availableTotal() {
+        return total.availablePermits();
+    }
+
+    private static void acquire(Semaphore permits, long deadline, String host) throws InterruptedIOException {
+        try {
+            if (!permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                throw new InterruptedIOException("Too many concurrent requests to: " + host);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a permit: " + host);
+        }
+    }
+}
@@ -19,12 +19,20 @@ package org.hyperledger.bpa.client;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
-import io.micronaut.cache.annotation.Cacheable;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micronaut.context.annotation.Value;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.hyperledger.aries.AriesClient;
@@ -37,16 +45,21 @@ import org.hyperledger.bpa.api.exception.NetworkException;
 import org.hyperledger.bpa.api.exception.PartnerException;
 import org.hyperledger.bpa.config.BPAMessageSource;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
 /**
- * Did document and public profile resolution
+ * Did document and public profile resolution. Resolved did documents are kept
+ * in a dedicated cache: there is only one resolution per did in flight, stale
+ * entries are served while they are refreshed in the background, and dids that
+ * can not be resolved are cached for a short time as well.
  */
 @Slf4j
 @Singleton
@@ -63,17 +76,115 @@ public class DidDocClient {
 
     private final Gson gson = GsonConfig.defaultConfig();
 
-    private final OkHttpClient okClient = new OkHttpClient();
+    @Inject
+    OutboundHttpClients http;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Value("${bpa.resolver.cache.max-size:5000}")
+    Long maxSize;
+
+    @Value("${bpa.resolver.cache.refresh-after:300s}")
+    Duration refreshAfter;
+
+    @Value("${bpa.resolver.cache.expire-after:1h}")
+    Duration expireAfter;
+
+    @Value("${bpa.resolver.cache.negative-ttl:30s}")
+    Duration negativeTtl;
+
+    private LoadingCache<String, Resolution> didDocCache;
+
+    /** last response by url, used for conditional requests */
+    private final Cache<String, CachedResponse> responseCache = Caffeine.newBuilder()
+            .maximumSize(5000)
+            .expireAfterAccess(Duration.ofDays(1))
+            .build();
+
+    @PostConstruct
+    void init() {
+        didDocCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(refreshAfter)
+                .expireAfter(new Expiry<String, Resolution>() {
+                    @Override
+                    public long expireAfterCreate(@NonNull String key, @NonNull Resolution value, long currentTime) {
+                        return ttl(value);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(@NonNull String key, @NonNull Resolution value,
+                            long currentTime, long currentDuration) {
+                        return ttl(value);
+                    }
+
+                    @Override
+                    public long expireAfterRead(@NonNull String key, @NonNull Resolution value,
+                            long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Resolution load(@NonNull String did) {
+                        return resolve(did);
+                    }
+
+                    @Override
+                    public Resolution reload(@NonNull String did, @NonNull Resolution oldValue) throws Exception {
+                        Resolution[] result = new Resolution[1];
+                        AcaPyPriority.background(() -> result[0] = resolve(did));
+                        return result[0];
+                    }
+                });
+        CaffeineCacheMetrics.monitor(registry, didDocCache, "did-doc-cache");
+    }
+
+    private long ttl(Resolution value) {
+        return (value.isFailed() ? negativeTtl : expireAfter).toNanos();
+    }
 
-    @Cacheable(cacheNames = { "ur-cache" })
     public Optional<DIDDocument> getDidDocument(@NonNull String did) {
+        Resolution resolution = didDocCache.get(did);
+        if (resolution.getError() != null) {
+            throw new NetworkException(resolution.getError());
+        }
+        return Optional.ofNullable(resolution.getDidDocument());
+    }
+
+    /**
+     * Network errors are not cached, so the next call tries again. Resolution
+     * errors and dids without document are cached with the negative ttl.
+     */
+    private Resolution resolve(@NonNull String did) {
         try {
-            return ac.resolverResolveDid(did);
+            return new Resolution(ac.resolverResolveDid(did).orElse(null), null);
         } catch (IOException e) {
             throw new NetworkException(msg.getMessage("acapy.unavailable"), e);
         } catch (AriesException e) {
             log.error("Could not resolve did document", e);
-            throw new NetworkException(msg.getMessage("api.diddoc.resolution.error"), e);
+            return new Resolution(null, msg.getMessage("api.diddoc.resolution.error"));
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class CachedResponse {
+        private final String body;
+        private final String etag;
+        private final String lastModified;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Resolution {
+        private final DIDDocument didDocument;
+        private final String error;
+
+        boolean isFailed() {
+            return didDocument == null;
         }
     }
 
@@ -81,18 +192,40 @@ public class DidDocClient {
         return call(url, VP_TYPE);
     }
 
+    /**
+     * GET the url and parse the response. If a previous response had an ETag or
+     * Last-Modified header the request is conditional, and an unchanged resource
+     * is taken from the cache.
+     */
     public <T> Optional<T> call(String url, Type type) {
         Optional<T> result = Optional.empty();
         try {
             URL url2 = new URL(url);
-            Request request = new Request.Builder()
-                    .url(url2.toString())
-                    .build();
-            try (Response response = okClient.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
+            CachedResponse cached = responseCache.getIfPresent(url2.toString());
+            Request.Builder request = new Request.Builder()
+                    .url(url2.toString());
+            if (cached != null && cached.getEtag() != null) {
+                request.header("If-None-Match", cached.getEtag());
+            }
+            if (cached != null && cached.getLastModified() != null) {
+                request.header("If-Modified-Since", cached.getLastModified());
+            }
+            try (Response response = http.forDestination(OutboundHttpClients.PARTNER)
+                    .newCall(request.build()).execute()) {
+                if (response.code() == 304 && cached != null) {
+                    log.trace("Not modified: {}", url);
+                    result = Optional.of(gson.fromJson(cached.getBody(), type));
+                } else if (response.isSuccessful() && response.body() != null) {
                     String body = Objects.requireNonNull(response.body()).string();
                     T md = gson.fromJson(body, type);
                     result = Optional.of(md);
+                    String etag = response.header("ETag");
+                    String lastModified = response.header("Last-Modified");
+                    if (etag != null || lastModified != null) {
+                        responseCache.put(url2.toString(), new CachedResponse(body, etag, lastModified));
+                    } else {
+                        responseCache.invalidate(url2.toString());
+                    }
                 } else {
                     log.warn("Could not resolve public profile: {}, {}", response.code(), response.message());
                 }
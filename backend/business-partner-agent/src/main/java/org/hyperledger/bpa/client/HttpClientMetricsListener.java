@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Records latency, connection reuse and failures of a single outbound call.
+ * Endpoints are normalised, path segments that look like an id (uuids, numbers,
+ * dids, schema ids ...) are replaced by {id} to keep the number of time series
+ * bounded. The host tag is bounded as well, only the first hosts of a
+ * destination are tagged by name, all further hosts are tagged as other. So
+ * aca-py and the ledger explorer keep their host, while the unbounded partner
+ * hosts share one series once the limit is reached.
+ */
+public class HttpClientMetricsListener extends EventListener {
+
+    static final String REQUESTS = "bpa.http.client.requests";
+    static final String CONNECTIONS = "bpa.http.client.connections";
+    static final String FAILURES = "bpa.http.client.failures";
+    static final String OTHER_HOST = "other";
+
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            ".*:.*|[0-9]+|[0-9a-fA-F]{8}(-[0-9a-fA-F]{4}){3}-[0-9a-fA-F]{12}|[a-zA-Z0-9]{21,}");
+
+    private final MeterRegistry registry;
+    private final String destination;
+    private final HostTags hosts;
+
+    private long callStart;
+    private boolean connectStarted;
+    private Integer status;
+
+    HttpClientMetricsListener(@NonNull MeterRegistry registry, @NonNull String destination,
+            @NonNull HostTags hosts) {
+        this.registry = registry;
+        this.destination = destination;
+        this.hosts = hosts;
+    }
+
+    /**
+     * @param registry    {@link MeterRegistry}
+     * @param destination name of the destination
+     * @param maxHosts    number of hosts that are tagged by name
+     * @return {@link EventListener.Factory} that shares the tagged hosts of the
+     *         destination
+     */
+    public static EventListener.Factory factory(@NonNull MeterRegistry registry, @NonNull String destination,
+            int maxHosts) {
+        HostTags hosts = new HostTags(maxHosts);
+        return call -> new HttpClientMetricsListener(registry, destination, hosts);
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress,
+            Proxy proxy) {
+        connectStarted = true;
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        registry.counter(CONNECTIONS,
+                "destination", destination,
+                "host", hosts.tag(call.request().url().host()),
+                "reused", String.valueOf(!connectStarted))
+                .increment();
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        status = response.code();
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        record(call, status != null ? String.valueOf(status) : "UNKNOWN");
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        record(call, "IO_ERROR");
+        registry.counter(FAILURES,
+                "destination", destination,
+                "host", hosts.tag(call.request().url().host()),
+                "exception", ioe.getClass().getSimpleName())
+                .increment();
+    }
+
+    private void record(Call call, String outcome) {
+        HttpUrl url = call.request().url();
+        Timer.builder(REQUESTS)
+                .tag("destination", destination)
+                .tag("host", hosts.tag(url.host()))
+                .tag("method", call.request().method())
+                .tag("endpoint", normaliseEndpoint(url))
+                .tag("status", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+    }
+
+    static String normaliseEndpoint(@NonNull HttpUrl url) {
+        return "/" + url.pathSegments().stream()
+                .map(s -> ID_SEGMENT.matcher(s).matches() ? "{id}" : s)
+                .collect(Collectors.joining("/"));
+    }
+
+    /**
+     * Hosts of a destination that are tagged by name, first come first served
+     */
+    static final class HostTags {
+
+        private final Set<String> hosts = ConcurrentHashMap.newKeySet();
+        private final int maxHosts;
+
+        HostTags(int maxHosts) {
+            this.maxHosts = maxHosts;
+        }
+
+        String tag(@NonNull String host) {
+            if (hosts.contains(host)) {
+                return host;
+            }
+            synchronized (hosts) {
+                if (hosts.size() < maxHosts) {
+                    hosts.add(host);
+                    return host;
+                }
+            }
+            return OTHER_HOST;
+        }
+    }
+}
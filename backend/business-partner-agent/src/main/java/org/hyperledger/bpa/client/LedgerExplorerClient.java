@@ -26,7 +26,6 @@ import lombok.NonNull;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.HttpUrl;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.apache.commons.lang3.StringUtils;
@@ -71,7 +70,9 @@ public class LedgerExplorerClient {
     @Setter(value = AccessLevel.PROTECTED)
     ObjectMapper mapper;
 
-    private final OkHttpClient ok = new OkHttpClient();
+    @Inject
+    @Setter(value = AccessLevel.PROTECTED)
+    OutboundHttpClients http;
 
     /**
      * Query the ledger explorer for a list of credential definitions that are based
@@ -81,7 +82,18 @@ public class LedgerExplorerClient {
      * @return optional list of {@link PartnerCredentialType}
      */
     public Optional<List<PartnerCredentialType>> queryCredentialDefinitions(@NonNull String query) {
-        Optional<List<PartnerCredentialType>> result = Optional.empty();
+        return queryCredentialDefinitionTransactions(query).map(LedgerExplorerClient::toCredentialTypes);
+    }
+
+    /**
+     * Like {@link #queryCredentialDefinitions(String)}, but returns the raw
+     * transactions, e.g. to check the ledger sequence numbers.
+     *
+     * @param query query can be either a did or a transaction id.
+     * @return optional {@link LedgerQueryResult}
+     */
+    public Optional<LedgerQueryResult> queryCredentialDefinitionTransactions(@NonNull String query) {
+        Optional<LedgerQueryResult> result = Optional.empty();
 
         if (StringUtils.isEmpty(url)) {
             log.error("The system property: 'bpa.ledger.browser' is not set");
@@ -97,18 +109,10 @@ public class LedgerExplorerClient {
             Request request = new Request.Builder()
                     .url(b)
                     .build();
-            try (Response response = ok.newCall(request).execute()) {
+            try (Response response = http.forDestination(OutboundHttpClients.LEDGER_EXPLORER).newCall(request).execute()) {
                 if (response.isSuccessful() && response.body() != null) {
                     String body = response.body().string();
-                    LedgerQueryResult md = mapper.readValue(body, LedgerQueryResult.class);
-                    List<PartnerCredentialType> credDefIds = md.getResults()
-                            .stream()
-                            .map(DomainTransaction::getTxnMetadata)
-                            .map(TxnMetadata::getTxnId)
-                            .distinct()
-                            .map(PartnerCredentialType::fromCredDefId)
-                            .collect(Collectors.toList());
-                    result = Optional.of(credDefIds);
+                    result = Optional.of(mapper.readValue(body, LedgerQueryResult.class));
                 } else {
                     log.warn("Could not query ledger: {}, {}", response.code(), response.message());
                 }
@@ -118,4 +122,18 @@ public class LedgerExplorerClient {
         }
         return result;
     }
+
+    /**
+     * @param md {@link LedgerQueryResult} of a credential definition query
+     * @return distinct list of {@link PartnerCredentialType}
+     */
+    public static List<PartnerCredentialType> toCredentialTypes(@NonNull LedgerQueryResult md) {
+        return Optional.ofNullable(md.getResults()).orElse(List.of())
+                .stream()
+                .map(DomainTransaction::getTxnMetadata)
+                .map(TxnMetadata::getTxnId)
+                .distinct()
+                .map(PartnerCredentialType::fromCredDefId)
+                .collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.hyperledger.bpa.config.HttpClientConfig;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single place to get an {@link OkHttpClient} for outbound calls. All clients
+ * share one connection pool, while every destination has its own dispatcher,
+ * timeouts and metrics tag. Destinations are configured via
+ * bpa.http.clients.[name], unknown destinations fall back to the defaults of
+ * {@link HttpClientConfig}. The concurrency limits apply to blocking and
+ * asynchronous calls, see {@link ConcurrencyLimitInterceptor}.
+ */
+@Slf4j
+@Singleton
+public class OutboundHttpClients {
+
+    public static final String ACAPY = "acapy";
+    public static final String WEBHOOK = "webhook";
+    public static final String PARTNER = "partner";
+    public static final String LEDGER_EXPLORER = "ledger-explorer";
+
+    private final Map<String, OkHttpClient> clients = new ConcurrentHashMap<>();
+
+    private final OkHttpClient base;
+
+    @Inject
+    List<HttpClientConfig> config;
+
+    @Inject
+    MeterRegistry registry;
+
+    public OutboundHttpClients(
+            @Value("${bpa.http.pool.max-idle-connections:20}") Integer maxIdleConnections,
+            @Value("${bpa.http.pool.keep-alive:5m}") Duration keepAlive) {
+        this.base = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .build();
+    }
+
+    /**
+     * Get the client for the given destination
+     *
+     * @param destination name of the destination, see the constants
+     * @return {@link OkHttpClient}
+     */
+    public OkHttpClient forDestination(@NonNull String destination) {
+        return clients.computeIfAbsent(destination, this::build);
+    }
+
+    private OkHttpClient build(@NonNull String destination) {
+        HttpClientConfig c = config.stream()
+                .filter(hc -> destination.equals(hc.getName()))
+                .findFirst()
+                .orElseGet(() -> new HttpClientConfig(destination));
+        log.debug("Creating http client: {}", c);
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(c.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(c.getMaxRequestsPerHost());
+
+        return base.newBuilder()
+                .dispatcher(dispatcher)
+                .connectTimeout(c.getConnectTimeout())
+                .readTimeout(c.getReadTimeout())
+                .writeTimeout(c.getWriteTimeout())
+                .callTimeout(c.getCallTimeout())
+                // waiting for a permit counts against the call timeout, so this is an upper bound
+                .addInterceptor(new ConcurrencyLimitInterceptor(
+                        c.getMaxRequests(), c.getMaxRequestsPerHost(), c.getCallTimeout()))
+                .eventListenerFactory(HttpClientMetricsListener.factory(registry, destination, c.getMaxHostTags()))
+                .build();
+    }
+}
@@ -21,33 +21,35 @@ import io.micronaut.context.annotation.Factory;
 import io.micronaut.context.annotation.Requires;
 import io.micronaut.context.annotation.Value;
 import io.micronaut.context.env.Environment;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
-import okhttp3.OkHttpClient;
 import org.hyperledger.aries.AriesClient;
-
-import java.util.concurrent.TimeUnit;
+import org.hyperledger.bpa.client.AcaPyResilienceInterceptor;
+import org.hyperledger.bpa.client.OutboundHttpClients;
 
 @Factory
 @Requires(notEnv = Environment.TEST)
 public class AriesClientFactory {
 
-    private static final long FIVE = 300;
-
     @Value("${bpa.acapy.url}")
     private String url;
     @Value("${bpa.acapy.apiKey}")
     private String apiKey;
 
+    @Inject
+    OutboundHttpClients http;
+
+    @Inject
+    AcaPyResilienceInterceptor resilience;
+
     @Singleton
     public AriesClient ariesClient() {
         return AriesClient.builder()
                 .url(url)
                 .apiKey(apiKey)
-                .client(new OkHttpClient.Builder()
-                        .writeTimeout(FIVE, TimeUnit.SECONDS)
-                        .readTimeout(FIVE, TimeUnit.SECONDS)
-                        .connectTimeout(FIVE, TimeUnit.SECONDS)
-                        .callTimeout(FIVE, TimeUnit.SECONDS)
+                .client(http.forDestination(OutboundHttpClients.ACAPY)
+                        .newBuilder()
+                        .addInterceptor(resilience)
                         .build())
                 .build();
     }
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.config;
+
+import io.micronaut.context.annotation.EachProperty;
+import io.micronaut.context.annotation.Parameter;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Per destination settings of the outbound http clients, see
+ * bpa.http.clients.*. Destinations without configuration use the defaults.
+ */
+@EachProperty("bpa.http.clients")
+@Data
+public class HttpClientConfig {
+
+    /**
+     * Bean name, also the name of the destination
+     */
+    private String name;
+
+    /** Max concurrent requests */
+    private Integer maxRequests = 64;
+    /** Max concurrent requests per host */
+    private Integer maxRequestsPerHost = 16;
+
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    private Duration readTimeout = Duration.ofSeconds(30);
+    private Duration writeTimeout = Duration.ofSeconds(30);
+    private Duration callTimeout = Duration.ofSeconds(60);
+
+    /** Hosts that are tagged by name in the metrics, further hosts are tagged as other */
+    private Integer maxHostTags = 20;
+
+    public HttpClientConfig(@Parameter String name) {
+        this.name = name;
+    }
+}
@@ -36,6 +36,7 @@ import org.hyperledger.bpa.api.exception.WrongApiUsageException;
 import org.hyperledger.bpa.config.RuntimeConfig;
 import org.hyperledger.bpa.controller.api.admin.*;
 import org.hyperledger.bpa.impl.TagService;
+import org.hyperledger.bpa.impl.aries.ReconciliationManager;
 import org.hyperledger.bpa.impl.aries.config.RestrictionsManager;
 import org.hyperledger.bpa.impl.aries.config.SchemaService;
 import org.hyperledger.bpa.impl.mode.indy.EndpointService;
@@ -66,6 +67,9 @@ public class AdminController {
     @Inject
     RuntimeConfig config;
 
+    @Inject
+    ReconciliationManager reconciliationManager;
+
     /**
      * List configured schemas
      *
@@ -305,4 +309,39 @@ public class AdminController {
         }
         return HttpResponse.notFound();
     }
-}
\ No newline at end of file
+
+    /**
+     * Compare connections and exchanges between aca-py and the bpa
+     *
+     * @return {@link ReconciliationReport}
+     */
+    @Get("/reconciliation")
+    public HttpResponse<ReconciliationReport> reconciliationReport() {
+        return HttpResponse.ok(reconciliationManager.report());
+    }
+
+    /**
+     * Disaster recovery: recreate bpa records from the records that only aca-py
+     * knows. The rebuild runs in the background, only one at a time.
+     *
+     * @return {@link ReconciliationRebuildStatus} of the started rebuild
+     */
+    @Post("/reconciliation/rebuild")
+    public HttpResponse<ReconciliationRebuildStatus> reconciliationRebuild() {
+        return HttpResponse.accepted().body(reconciliationManager.startRebuild());
+    }
+
+    /**
+     * State of the running or last rebuild, includes the report once it is done
+     *
+     * @return {@link ReconciliationRebuildStatus}
+     */
+    @Get("/reconciliation/rebuild")
+    public HttpResponse<ReconciliationRebuildStatus> reconciliationRebuildStatus() {
+        Optional<ReconciliationRebuildStatus> status = reconciliationManager.rebuildStatus();
+        if (status.isPresent()) {
+            return HttpResponse.ok(status.get());
+        }
+        return HttpResponse.notFound();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.controller;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.PathVariable;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.annotation.ExecuteOn;
+import io.micronaut.security.annotation.Secured;
+import io.micronaut.security.rules.SecurityRule;
+import io.micronaut.validation.Validated;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.inject.Inject;
+import org.hyperledger.bpa.controller.api.bulk.BulkJobStatus;
+import org.hyperledger.bpa.impl.BulkJobManager;
+
+import java.util.UUID;
+
+@Controller("/api/bulk-jobs")
+@Tag(name = "Bulk Jobs")
+@Validated
+@Secured(SecurityRule.IS_AUTHENTICATED)
+@ExecuteOn(TaskExecutors.IO)
+public class BulkJobController {
+
+    @Inject
+    BulkJobManager bulkJobManager;
+
+    /**
+     * Progress and per partner results of a bulk job
+     *
+     * @param id bulk job id
+     * @return {@link BulkJobStatus}
+     */
+    @Get("/{id}")
+    public HttpResponse<BulkJobStatus> getBulkJob(@PathVariable UUID id) {
+        return HttpResponse.ok(bulkJobManager.getStatus(id));
+    }
+}
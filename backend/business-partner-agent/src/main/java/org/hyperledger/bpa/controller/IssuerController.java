@@ -30,12 +30,17 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.inject.Inject;
 import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
 import org.hyperledger.bpa.api.aries.SchemaAPI;
+import org.hyperledger.bpa.controller.api.bulk.BulkIssueCredentialRequest;
+import org.hyperledger.bpa.controller.api.bulk.BulkJobStatus;
 import org.hyperledger.bpa.controller.api.issuer.*;
+import org.hyperledger.bpa.impl.BulkJobManager;
 import org.hyperledger.bpa.impl.IssuerCredentialManager;
+import org.hyperledger.bpa.impl.RevocationBatchManager;
 import org.hyperledger.bpa.impl.aries.config.SchemaService;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -52,6 +57,12 @@ public class IssuerController {
     @Inject
     SchemaService schemaService;
 
+    @Inject
+    BulkJobManager bulkJobManager;
+
+    @Inject
+    RevocationBatchManager revocationManager;
+
     /**
      * List configured schemas
      *
@@ -137,6 +148,19 @@ public class IssuerController {
         return HttpResponse.ok(exchange);
     }
 
+    /**
+     * Bulk credential exchange: Issuer offers credentials to many holders. The
+     * items are validated up front, offers are sent in the background.
+     *
+     * @param req {@link BulkIssueCredentialRequest}
+     * @return {@link BulkJobStatus} of the started job, poll
+     *         /api/bulk-jobs/{id} for progress
+     */
+    @Post("/issue-credential/bulk")
+    public HttpResponse<BulkJobStatus> issueCredentialBulk(@Valid @Body BulkIssueCredentialRequest req) {
+        return HttpResponse.accepted().body(bulkJobManager.startCredentialIssuance(req));
+    }
+
     /**
      * List issued credentials
      *
@@ -170,6 +194,29 @@ public class IssuerController {
         return HttpResponse.ok(im.revokeCredentialExchange(id));
     }
 
+    /**
+     * Revoke many issued credentials, the revocations are pending until they are
+     * published
+     *
+     * @param req {@link RevokeCredentialsRequest}
+     * @return {@link RevokeCredentialsResponse}
+     */
+    @Post("/exchanges/revoke")
+    public HttpResponse<RevokeCredentialsResponse> revokeCredentials(@Valid @Body RevokeCredentialsRequest req) {
+        return HttpResponse.ok(revocationManager.revoke(req));
+    }
+
+    /**
+     * Publish all pending revocations, one ledger transaction per revocation
+     * registry
+     *
+     * @return revocation registry id to the number of published revocations
+     */
+    @Post("/revocations/publish")
+    public HttpResponse<Map<String, Integer>> publishRevocations() {
+        return HttpResponse.ok(revocationManager.publishPending());
+    }
+
     /**
      * Send holder a new credential offer based on an existing (revoked) exchange
      * record
@@ -27,7 +27,10 @@ import io.micronaut.security.rules.SecurityRule;
 import io.micronaut.validation.Validated;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.inject.Inject;
+import org.hyperledger.bpa.controller.api.bulk.BulkJobStatus;
+import org.hyperledger.bpa.controller.api.bulk.ProofCampaignRequest;
 import org.hyperledger.bpa.controller.api.prooftemplates.ProofTemplate;
+import org.hyperledger.bpa.impl.BulkJobManager;
 import org.hyperledger.bpa.impl.ProofTemplateManager;
 import org.hyperledger.bpa.model.BPAProofTemplate;
 
@@ -48,6 +51,9 @@ public class ProofTemplateController {
     @Inject
     ProofTemplateManager proofTemplateManager;
 
+    @Inject
+    BulkJobManager bulkJobManager;
+
     /**
      * List configured templates
      * 
@@ -108,6 +114,21 @@ public class ProofTemplateController {
         return HttpResponse.ok(proofTemplateManager.getKnownConditionOperators());
     }
 
+    /**
+     * Send the proof template to all partners that have one of the given tags or
+     * are listed by id. The requests are sent in the background, use the returned
+     * job id to track the progress.
+     *
+     * @param id  proof template id
+     * @param req {@link ProofCampaignRequest}
+     * @return {@link BulkJobStatus}
+     */
+    @Post("/{id}/campaign")
+    public HttpResponse<BulkJobStatus> startProofCampaign(@PathVariable UUID id,
+            @Body ProofCampaignRequest req) {
+        return HttpResponse.accepted().body(bulkJobManager.startProofCampaign(id, req));
+    }
+
     /**
      * Delete proof template by id
      * 
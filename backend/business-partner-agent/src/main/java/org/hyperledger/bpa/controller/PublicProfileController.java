@@ -17,7 +17,12 @@
  */
 package org.hyperledger.bpa.controller;
 
+import io.micronaut.context.annotation.Value;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.MutableHttpResponse;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Get;
 import io.micronaut.scheduling.TaskExecutors;
@@ -25,16 +30,24 @@ import io.micronaut.scheduling.annotation.ExecuteOn;
 import io.micronaut.security.annotation.Secured;
 import io.micronaut.security.rules.SecurityRule;
 import io.micronaut.validation.Validated;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.inject.Inject;
-import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
 import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
 import org.hyperledger.aries.api.resolver.DIDDocument;
-import org.hyperledger.bpa.impl.DidDocManager;
-import org.hyperledger.bpa.impl.activity.VPManager;
+import org.hyperledger.bpa.impl.PublicDocumentCache;
+import org.hyperledger.bpa.impl.PublicDocumentCache.SerializedDocument;
 
+import java.util.Arrays;
 import java.util.Optional;
 
+/**
+ * Documents that partners poll anonymously. They are served pre-serialised from
+ * {@link PublicDocumentCache} with a strong ETag, so that unchanged documents
+ * can be answered with 304 Not Modified.
+ */
 @Controller
 @Tag(name = "Public Web Profile")
 @Validated
@@ -42,28 +55,64 @@ import java.util.Optional;
 @ExecuteOn(TaskExecutors.IO)
 public class PublicProfileController {
 
-    @Inject
-    VPManager vpMgmt;
+    private static final String GZIP = "gzip";
 
     @Inject
-    DidDocManager didDocManager;
+    PublicDocumentCache publicDocuments;
+
+    @Value("${bpa.public-documents.cache-control}")
+    String cacheControl;
 
     @Get("/profile.jsonld")
-    public HttpResponse<VerifiablePresentation<VerifiableIndyCredential>> getMasterdata() {
-        Optional<VerifiablePresentation<VerifiableIndyCredential>> vp = vpMgmt.getVerifiablePresentation();
-        if (vp.isPresent()) {
-            return HttpResponse.ok(vp.get());
-        }
-        return HttpResponse.notFound();
+    @ApiResponse(content = @Content(schema = @Schema(implementation = VerifiablePresentation.class)))
+    public HttpResponse<byte[]> getMasterdata(HttpRequest<?> request) {
+        return toResponse(request, publicDocuments.getProfile());
     }
 
     @Get("/.well-known/did.json")
-    public HttpResponse<DIDDocument> getDid() {
+    @ApiResponse(content = @Content(schema = @Schema(implementation = DIDDocument.class)))
+    public HttpResponse<byte[]> getDid(HttpRequest<?> request) {
+        return toResponse(request, publicDocuments.getDidDocument());
+    }
+
+    private MutableHttpResponse<byte[]> toResponse(HttpRequest<?> request, Optional<SerializedDocument> document) {
+        if (document.isEmpty()) {
+            return HttpResponse.notFound();
+        }
+        SerializedDocument doc = document.get();
+        MutableHttpResponse<byte[]> response;
+        if (matches(request.getHeaders().get(HttpHeaders.IF_NONE_MATCH), doc.getEtag())) {
+            response = HttpResponse.notModified();
+        } else if (acceptsGzip(request.getHeaders().get(HttpHeaders.ACCEPT_ENCODING))) {
+            response = HttpResponse.ok(doc.getGzip()).header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        } else {
+            response = HttpResponse.ok(doc.getJson());
+        }
+        return response
+                .contentType(MediaType.APPLICATION_JSON_TYPE)
+                .header(HttpHeaders.ETAG, doc.getEtag())
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                // weak comparison as defined for If-None-Match
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> "*".equals(tag) || etag.equals(tag));
+    }
 
-        Optional<DIDDocument> api = didDocManager.getDidDocument();
-        if (api.isPresent()) {
-            return HttpResponse.ok(api.get());
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
         }
-        return HttpResponse.notFound();
+        return Arrays.stream(acceptEncoding.split(","))
+                .map(coding -> coding.trim().split(";"))
+                .anyMatch(coding -> GZIP.equalsIgnoreCase(coding[0].trim())
+                        && (coding.length == 1 || !coding[1].trim().replace(" ", "").matches("q=0(\\.0*)?")));
     }
 }
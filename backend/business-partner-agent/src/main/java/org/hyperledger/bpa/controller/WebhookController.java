@@ -17,6 +17,7 @@
  */
 package org.hyperledger.bpa.controller;
 
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.annotation.*;
 import io.micronaut.scheduling.TaskExecutors;
@@ -27,6 +28,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.inject.Inject;
 import org.hyperledger.bpa.core.RegisteredWebhook;
 import org.hyperledger.bpa.core.RegisteredWebhook.RegisteredWebhookResponse;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookBatchSettings;
 import org.hyperledger.bpa.impl.WebhookService;
 
 import java.util.List;
@@ -85,6 +87,26 @@ public class WebhookController {
         return HttpResponse.notFound();
     }
 
+    /**
+     * Enable, change or disable (empty body) batch delivery of a registered
+     * webhook. Batched events are sent as a json array once either the max size or
+     * the max linger time is reached.
+     *
+     * @param id      the webhook's id
+     * @param request {@link WebhookBatchSettings}
+     * @return {@link RegisteredWebhookResponse}
+     */
+    @Put("/{id}/batch")
+    public HttpResponse<RegisteredWebhookResponse> updateBatchSettings(
+            @PathVariable UUID id,
+            @Body @Nullable WebhookBatchSettings request) {
+        final Optional<RegisteredWebhookResponse> updated = ws.updateBatchSettings(id, request);
+        if (updated.isPresent()) {
+            return HttpResponse.ok(updated.get());
+        }
+        return HttpResponse.notFound();
+    }
+
     /**
      * Delete a registered webhook
      *
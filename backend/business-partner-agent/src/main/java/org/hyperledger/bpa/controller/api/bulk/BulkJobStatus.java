@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.controller.api.bulk;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkJobStatus {
+    private UUID id;
+    private BulkJobType type;
+    private BulkJobState state;
+    private Long createdAt;
+    private Long updatedAt;
+    private Integer total;
+    @Schema(example = "{\"PENDING\": 10, \"SENT\": 85, \"FAILED\": 5}")
+    private Map<BulkJobItemState, Long> progress;
+    /** processed items per minute since the job was started */
+    private Double itemsPerMinute;
+    private List<Item> items;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Item {
+        private UUID partnerId;
+        private BulkJobItemState state;
+        /** aca-py exchange id */
+        private String exchangeId;
+        /** current state of the exchange, e.g. verified */
+        private String exchangeState;
+        /** proof jobs: if the received presentation was valid */
+        private Boolean valid;
+        private String errorMsg;
+    }
+}
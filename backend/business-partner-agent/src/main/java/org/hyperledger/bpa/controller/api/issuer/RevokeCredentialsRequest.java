@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.controller.api.issuer;
+
+import io.micronaut.core.annotation.Introspected;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Revokes many issued credentials, the revocations are published to the ledger
+ * once per revocation registry either right away or with the next scheduled
+ * publish.
+ */
+@Introspected
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokeCredentialsRequest {
+    /** bpa credential exchange ids */
+    @NotEmpty
+    private List<UUID> ids;
+    /** publish all pending revocations after this request */
+    private boolean publish;
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import io.micronaut.core.util.CollectionUtils;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.aries.api.ExchangeVersion;
+import org.hyperledger.bpa.api.exception.EntityNotFoundException;
+import org.hyperledger.bpa.api.exception.IssuerException;
+import org.hyperledger.bpa.api.exception.ProofTemplateException;
+import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.client.AcaPyPriority;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.bulk.*;
+import org.hyperledger.bpa.controller.api.issuer.IssueCredentialSendRequest;
+import org.hyperledger.bpa.impl.aries.ProofManager;
+import org.hyperledger.bpa.impl.util.AriesStringUtil;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.model.*;
+import org.hyperledger.bpa.repository.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Starts the same exchange with many partners, e.g. a proof request campaign
+ * that verifies all partners with a certain tag, or the issuance of a yearly
+ * certificate to all customers. Every partner is tracked as a
+ * {@link BulkJobItem}, so progress survives a restart and jobs that are still
+ * running are resumed once the bpa is ready. Every item is claimed in the
+ * database before its exchange is started, so an item is never sent twice,
+ * also not when several instances resume the same job. Items are processed on
+ * the bounded bulk-jobs executor with background priority, which limits the
+ * load a job can put on aca-py.
+ */
+@Slf4j
+@Singleton
+public class BulkJobManager {
+
+    static final String TEMPLATE_ID = "templateId";
+    static final String EXCHANGE_VERSION = "exchangeVersion";
+    static final String CRED_DEF_ID = "credDefId";
+    static final String DOCUMENT = "document";
+
+    @Inject
+    BulkJobRepository jobRepo;
+
+    @Inject
+    BulkJobItemRepository itemRepo;
+
+    @Inject
+    PartnerRepository partnerRepo;
+
+    @Inject
+    PartnerProofRepository proofRepo;
+
+    @Inject
+    BPAProofTemplateRepository templateRepo;
+
+    @Inject
+    ProofManager proofManager;
+
+    @Inject
+    IssuerCredentialManager issuerManager;
+
+    @Inject
+    BPACredentialDefinitionRepository credDefRepo;
+
+    @Inject
+    IssuerCredExRepository credExRepo;
+
+    @Inject
+    Converter conv;
+
+    @Inject
+    Clock clock;
+
+    @Inject
+    @Named("bulk-jobs")
+    ExecutorService executor;
+
+    @Inject
+    BPAMessageSource.DefaultMessageSource ms;
+
+    private final Set<UUID> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Sends the proof template to all partners that match the request
+     *
+     * @param templateId proof template id
+     * @param req        {@link ProofCampaignRequest}
+     * @return {@link BulkJobStatus} of the started job
+     */
+    public BulkJobStatus startProofCampaign(@NonNull UUID templateId, @NonNull ProofCampaignRequest req) {
+        if (templateRepo.findById(templateId).isEmpty()) {
+            throw new ProofTemplateException(ms.getMessage("api.proof.template.not.found", Map.of("id", templateId)));
+        }
+        ExchangeVersion version = req.getExchangeVersion() != null ? req.getExchangeVersion() : ExchangeVersion.V1;
+        return start(BulkJobType.PROOF_REQUEST,
+                Map.of(TEMPLATE_ID, templateId.toString(), EXCHANGE_VERSION, version.name()),
+                resolvePartners(req.getTagIds(), req.getPartnerIds()).stream()
+                        .map(partnerId -> BulkJobItem
+                                .builder()
+                                .partnerId(partnerId)
+                                .state(BulkJobItemState.PENDING)
+                                .build())
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Offers the credentials of the request. All items are validated in one pass
+     * against the schema attributes of their credential definition, items that do
+     * not validate are stored as failed and are not sent to aca-py.
+     *
+     * @param req {@link BulkIssueCredentialRequest}
+     * @return {@link BulkJobStatus} of the started job
+     */
+    public BulkJobStatus startCredentialIssuance(@NonNull BulkIssueCredentialRequest req) {
+        if (CollectionUtils.isEmpty(req.getItems())) {
+            throw new WrongApiUsageException(ms.getMessage("api.bulk.job.empty"));
+        }
+        req.getItems().forEach(i -> {
+            requireUUID(i.getCredDefId());
+            requireUUID(i.getPartnerId());
+        });
+        Map<UUID, BPACredentialDefinition> credDefs = new HashMap<>();
+        req.getItems().stream()
+                .map(i -> UUID.fromString(i.getCredDefId()))
+                .distinct()
+                .forEach(id -> credDefRepo.findById(id).ifPresent(cd -> credDefs.put(id, cd)));
+        Set<UUID> partners = partnerRepo.findByIdIn(req.getItems().stream()
+                .map(i -> UUID.fromString(i.getPartnerId()))
+                .distinct()
+                .collect(Collectors.toList()))
+                .stream()
+                .map(Partner::getId)
+                .collect(Collectors.toSet());
+        ExchangeVersion defaultVersion = req.getExchangeVersion() != null ? req.getExchangeVersion()
+                : ExchangeVersion.V1;
+        return start(BulkJobType.CREDENTIAL_OFFER, Map.of(EXCHANGE_VERSION, defaultVersion.name()),
+                req.getItems().stream()
+                        .map(i -> toCredentialOfferItem(i, defaultVersion, credDefs, partners))
+                        .collect(Collectors.toList()));
+    }
+
+    public BulkJobStatus getStatus(@NonNull UUID jobId) {
+        BulkJob job = jobRepo.findById(jobId).orElseThrow(
+                () -> new EntityNotFoundException(ms.getMessage("api.bulk.job.not.found", Map.of("id", jobId))));
+        return toStatus(job, itemRepo.findByJobId(jobId));
+    }
+
+    /**
+     * Resumes the jobs that were interrupted by a restart, once all critical
+     * startup tasks are done
+     *
+     * @param event {@link StartupTasks.BpaReady}
+     */
+    @EventListener
+    public void onBpaReady(@SuppressWarnings("unused") StartupTasks.BpaReady event) {
+        jobRepo.findByState(BulkJobState.RUNNING).forEach(job -> {
+            log.info("Resuming bulk job: {}", job.getId());
+            run(job);
+        });
+    }
+
+    private void requireUUID(String id) {
+        if (!AriesStringUtil.isUUID(id)) {
+            throw new WrongApiUsageException(ms.getMessage("api.bulk.job.invalid.id", Map.of("id", String.valueOf(id))));
+        }
+    }
+
+    private Set<UUID> resolvePartners(List<UUID> tagIds, List<UUID> partnerIds) {
+        Set<UUID> result = new LinkedHashSet<>();
+        if (CollectionUtils.isNotEmpty(tagIds)) {
+            partnerRepo.findByTagIdIn(tagIds).forEach(p -> result.add(p.getId()));
+        }
+        if (CollectionUtils.isNotEmpty(partnerIds)) {
+            partnerRepo.findByIdIn(partnerIds).forEach(p -> result.add(p.getId()));
+        }
+        if (result.isEmpty()) {
+            throw new WrongApiUsageException(ms.getMessage("api.bulk.job.no.partners"));
+        }
+        return result;
+    }
+
+    private BulkJobItem toCredentialOfferItem(@NonNull IssueCredentialSendRequest i,
+            @NonNull ExchangeVersion defaultVersion, @NonNull Map<UUID, BPACredentialDefinition> credDefs,
+            @NonNull Set<UUID> partners) {
+        UUID credDefId = UUID.fromString(i.getCredDefId());
+        UUID partnerId = UUID.fromString(i.getPartnerId());
+        Map<String, String> document = i.getDocument() != null ? conv.toStringMap(i.getDocument()) : Map.of();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put(CRED_DEF_ID, credDefId.toString());
+        payload.put(EXCHANGE_VERSION,
+                (i.getExchangeVersion() != null ? i.getExchangeVersion() : defaultVersion).name());
+        payload.put(DOCUMENT, document);
+        BulkJobItem.BulkJobItemBuilder item = BulkJobItem
+                .builder()
+                .partnerId(partnerId)
+                .state(BulkJobItemState.PENDING)
+                .payload(payload);
+        String error = null;
+        if (!partners.contains(partnerId)) {
+            error = ms.getMessage("api.partner.not.found", Map.of("id", partnerId));
+        } else if (!credDefs.containsKey(credDefId)) {
+            error = ms.getMessage("api.issuer.creddef.not.found", Map.of("id", credDefId));
+        } else {
+            try {
+                issuerManager.checkAttributes(document, credDefs.get(credDefId));
+            } catch (IssuerException e) {
+                error = e.getMessage();
+            }
+        }
+        if (error != null) {
+            item.state(BulkJobItemState.FAILED).errorMsg(error);
+        }
+        return item.build();
+    }
+
+    private BulkJobStatus start(@NonNull BulkJobType type, @NonNull Map<String, Object> request,
+            @NonNull List<BulkJobItem> jobItems) {
+        BulkJob job = jobRepo.save(BulkJob
+                .builder()
+                .type(type)
+                .state(BulkJobState.RUNNING)
+                .request(request)
+                .build());
+        jobItems.forEach(item -> item.setJobId(job.getId()));
+        List<BulkJobItem> items = new ArrayList<>();
+        itemRepo.saveAll(jobItems).forEach(items::add);
+        log.info("Starting bulk job: {}, type: {}, partners: {}", job.getId(), type, items.size());
+        run(job);
+        return toStatus(job, items);
+    }
+
+    void run(@NonNull BulkJob job) {
+        if (!running.add(job.getId())) {
+            return;
+        }
+        List<BulkJobItem> pending = itemRepo.findByJobIdAndState(job.getId(), BulkJobItemState.PENDING);
+        Function<BulkJobItem, Optional<String>> exchange;
+        try {
+            exchange = exchangeFor(job);
+        } catch (RuntimeException e) {
+            log.error("Can not run bulk job: {}", job.getId(), e);
+            pending.forEach(item -> fail(item, e));
+            finish(job);
+            return;
+        }
+        CompletableFuture.allOf(pending
+                .stream()
+                .map(item -> CompletableFuture.runAsync(() -> process(item, exchange), executor))
+                .toArray(CompletableFuture[]::new))
+                .whenComplete((v, e) -> finish(job));
+    }
+
+    /**
+     * @param job {@link BulkJob}
+     * @return function that starts the exchange of an item and returns the aca-py
+     *         exchange id
+     */
+    private Function<BulkJobItem, Optional<String>> exchangeFor(@NonNull BulkJob job) {
+        if (BulkJobType.PROOF_REQUEST.equals(job.getType())) {
+            UUID templateId = UUID.fromString((String) job.getRequest().get(TEMPLATE_ID));
+            ExchangeVersion version = ExchangeVersion.valueOf((String) job.getRequest().get(EXCHANGE_VERSION));
+            BPAProofTemplate template = templateRepo.findById(templateId).orElseThrow(
+                    () -> new ProofTemplateException(
+                            ms.getMessage("api.proof.template.not.found", Map.of("id", templateId))));
+            return item -> proofManager.sendPresentProofRequest(item.getPartnerId(), template, version)
+                    .map(PartnerProof::getPresentationExchangeId);
+        }
+        if (BulkJobType.CREDENTIAL_OFFER.equals(job.getType())) {
+            // most items of a job share the same credential definition
+            Map<UUID, Optional<BPACredentialDefinition>> credDefs = new ConcurrentHashMap<>();
+            return item -> {
+                Map<String, Object> payload = Objects.requireNonNull(item.getPayload());
+                UUID credDefId = UUID.fromString((String) payload.get(CRED_DEF_ID));
+                BPACredentialDefinition credDef = credDefs.computeIfAbsent(credDefId, credDefRepo::findById)
+                        .orElseThrow(() -> new IssuerException(
+                                ms.getMessage("api.issuer.creddef.not.found", Map.of("id", credDefId))));
+                Partner partner = partnerRepo.findById(item.getPartnerId())
+                        .orElseThrow(() -> new IssuerException(
+                                ms.getMessage("api.partner.not.found", Map.of("id", item.getPartnerId()))));
+                @SuppressWarnings("unchecked")
+                Map<String, String> document = (Map<String, String>) payload.get(DOCUMENT);
+                return Optional.of(issuerManager.issueCredential(partner, credDef, document,
+                        ExchangeVersion.valueOf((String) payload.get(EXCHANGE_VERSION))));
+            };
+        }
+        throw new IllegalStateException("Unknown bulk job type: " + job.getType());
+    }
+
+    private void process(@NonNull BulkJobItem item, @NonNull Function<BulkJobItem, Optional<String>> exchange) {
+        if (itemRepo.claim(item.getId()).intValue() == 0) {
+            log.debug("Bulk job item: {} is processed by another instance", item.getId());
+            return;
+        }
+        try {
+            AtomicReference<Optional<String>> exchangeId = new AtomicReference<>(Optional.empty());
+            AcaPyPriority.background(() -> exchangeId.set(exchange.apply(item)));
+            exchangeId.get().ifPresentOrElse(
+                    id -> itemRepo.updateResult(item.getId(), BulkJobItemState.SENT, id, null),
+                    () -> itemRepo.updateResult(item.getId(), BulkJobItemState.FAILED, null,
+                            ms.getMessage("api.bulk.job.no.exchange")));
+        } catch (Exception e) {
+            log.warn("Bulk job item for partner: {} failed: {}", item.getPartnerId(), e.getMessage());
+            fail(item, e);
+        }
+    }
+
+    private void fail(@NonNull BulkJobItem item, @NonNull Exception e) {
+        itemRepo.updateResult(item.getId(), BulkJobItemState.FAILED, null,
+                e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+    }
+
+    private void finish(@NonNull BulkJob job) {
+        try {
+            jobRepo.updateState(job.getId(), BulkJobState.FINISHED);
+            log.info("Bulk job: {} finished", job.getId());
+        } finally {
+            running.remove(job.getId());
+        }
+    }
+
+    private BulkJobStatus toStatus(@NonNull BulkJob job, @NonNull List<BulkJobItem> items) {
+        List<String> exchangeIds = items.stream()
+                .map(BulkJobItem::getExchangeId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        Map<String, PartnerProof> proofs = Map.of();
+        Map<String, BPACredentialExchange> credentials = Map.of();
+        if (!exchangeIds.isEmpty() && BulkJobType.PROOF_REQUEST.equals(job.getType())) {
+            proofs = proofRepo.findByPresentationExchangeIdIn(exchangeIds).stream()
+                    .collect(Collectors.toMap(PartnerProof::getPresentationExchangeId, Function.identity()));
+        } else if (!exchangeIds.isEmpty() && BulkJobType.CREDENTIAL_OFFER.equals(job.getType())) {
+            credentials = credExRepo.findByCredentialExchangeIdIn(exchangeIds).stream()
+                    .collect(Collectors.toMap(BPACredentialExchange::getCredentialExchangeId, Function.identity()));
+        }
+        Map<String, PartnerProof> proofByExchangeId = proofs;
+        Map<String, BPACredentialExchange> credentialByExchangeId = credentials;
+        return BulkJobStatus
+                .builder()
+                .id(job.getId())
+                .type(job.getType())
+                .state(job.getState())
+                .createdAt(job.getCreatedAt() != null ? job.getCreatedAt().toEpochMilli() : null)
+                .updatedAt(job.getUpdatedAt() != null ? job.getUpdatedAt().toEpochMilli() : null)
+                .total(items.size())
+                .progress(items.stream().collect(Collectors.groupingBy(BulkJobItem::getState,
+                        () -> new EnumMap<>(BulkJobItemState.class), Collectors.counting())))
+                .itemsPerMinute(itemsPerMinute(job, items))
+                .items(items.stream().map(item -> {
+                    BulkJobStatus.Item.ItemBuilder b = BulkJobStatus.Item
+                            .builder()
+                            .partnerId(item.getPartnerId())
+                            .state(item.getState())
+                            .exchangeId(item.getExchangeId())
+                            .errorMsg(item.getErrorMsg());
+                    PartnerProof pp = item.getExchangeId() != null ? proofByExchangeId.get(item.getExchangeId())
+                            : null;
+                    if (pp != null) {
+                        b.exchangeState(pp.getState() != null ? pp.getState().name() : null);
+                        b.valid(pp.getValid());
+                    }
+                    BPACredentialExchange cex = item.getExchangeId() != null
+                            ? credentialByExchangeId.get(item.getExchangeId())
+                            : null;
+                    if (cex != null) {
+                        b.exchangeState(cex.getState() != null ? cex.getState().name() : null);
+                    }
+                    return b.build();
+                }).collect(Collectors.toList()))
+                .build();
+    }
+
+    private Double itemsPerMinute(@NonNull BulkJob job, @NonNull List<BulkJobItem> items) {
+        long processed = items.stream().filter(i -> !BulkJobItemState.PENDING.equals(i.getState())).count();
+        if (job.getCreatedAt() == null || processed == 0) {
+            return null;
+        }
+        Instant end = BulkJobState.FINISHED.equals(job.getState()) && job.getUpdatedAt() != null
+                ? job.getUpdatedAt()
+                : clock.instant();
+        long millis = Math.max(Duration.between(job.getCreatedAt(), end).toMillis(), 1);
+        return processed * 60_000d / millis;
+    }
+}
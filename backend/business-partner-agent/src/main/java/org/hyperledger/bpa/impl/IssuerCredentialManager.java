@@ -54,6 +54,7 @@ import org.hyperledger.bpa.controller.api.issuer.CredDef;
 import org.hyperledger.bpa.controller.api.issuer.CredEx;
 import org.hyperledger.bpa.controller.api.issuer.CredentialOfferRequest;
 import org.hyperledger.bpa.controller.api.issuer.IssueCredentialSendRequest;
+import org.hyperledger.bpa.impl.aries.config.LedgerArtifactCache;
 import org.hyperledger.bpa.impl.aries.config.SchemaService;
 import org.hyperledger.bpa.impl.notification.CredentialAcceptedEvent;
 import org.hyperledger.bpa.impl.notification.CredentialIssuedEvent;
@@ -85,6 +86,9 @@ public class IssuerCredentialManager extends BaseCredentialManager {
     @Inject
     SchemaService schemaService;
 
+    @Inject
+    LedgerArtifactCache ledger;
+
     @Inject
     BPACredentialDefinitionRepository credDefRepo;
 
@@ -118,7 +122,7 @@ public class IssuerCredentialManager extends BaseCredentialManager {
         CredDef result;
         try {
             String sId = StringUtils.strip(schemaId);
-            Optional<SchemaSendResponse.Schema> ariesSchema = ac.schemasGetById(sId);
+            Optional<SchemaSendResponse.Schema> ariesSchema = ledger.getSchema(sId);
             if (ariesSchema.isEmpty()) {
                 throw new WrongApiUsageException(msg.getMessage("api.schema.restriction.schema.not.found.on.ledger",
                         Map.of("id", sId)));
@@ -200,6 +204,22 @@ public class IssuerCredentialManager extends BaseCredentialManager {
 
         Map<String, String> document = conv.toStringMap(request.getDocument());
 
+        return issueCredential(dbPartner, dbCredDef, document,
+                request.isV1() ? ExchangeVersion.V1 : ExchangeVersion.V2);
+    }
+
+    /**
+     * Sends the credential offer for already loaded entities, also used by bulk
+     * issuance jobs
+     *
+     * @param dbPartner {@link Partner}
+     * @param dbCredDef {@link BPACredentialDefinition} with its schema
+     * @param document  credential attributes
+     * @param exVersion {@link ExchangeVersion}
+     * @return credential exchange id
+     */
+    String issueCredential(@NonNull Partner dbPartner, @NonNull BPACredentialDefinition dbCredDef,
+            @NonNull Map<String, String> document, @NonNull ExchangeVersion exVersion) {
         checkAttributes(document, dbCredDef);
 
         String connectionId = dbPartner.getConnectionId();
@@ -207,7 +227,6 @@ public class IssuerCredentialManager extends BaseCredentialManager {
         String credentialDefinitionId = dbCredDef.getCredentialDefinitionId();
 
         ExchangeResult exResult;
-        ExchangeVersion exVersion;
 
         V1CredentialProposalRequest proposal = V1CredentialProposalRequest
                 .builder()
@@ -217,11 +236,9 @@ public class IssuerCredentialManager extends BaseCredentialManager {
                 .credentialDefinitionId(credentialDefinitionId)
                 .build();
 
-        if (request.isV1()) {
-            exVersion = ExchangeVersion.V1;
+        if (exVersion.isV1()) {
             exResult = sendV1Credential(proposal);
         } else {
-            exVersion = ExchangeVersion.V2;
             exResult = sendV2Credential(proposal);
         }
 
@@ -269,7 +286,7 @@ public class IssuerCredentialManager extends BaseCredentialManager {
      * @param document  the credential
      * @param dbCredDef {@link BPACredentialDefinition}
      */
-    private void checkAttributes(Map<String, String> document, BPACredentialDefinition dbCredDef) {
+    void checkAttributes(Map<String, String> document, BPACredentialDefinition dbCredDef) {
         Set<String> documentAttributeNames = document.keySet();
         Set<String> schemaAttributeNames = dbCredDef.getSchema().getSchemaAttributeNames();
         if (!documentAttributeNames.equals(schemaAttributeNames)) {
@@ -340,6 +357,7 @@ public class IssuerCredentialManager extends BaseCredentialManager {
                     .publish(Boolean.TRUE)
                     .build());
             credEx.setRevoked(Boolean.TRUE);
+            credEx.setRevocationPending(Boolean.FALSE);
             credEx.pushStates(CredentialExchangeState.REVOKED);
             credExRepo.update(credEx);
             return CredEx.from(credEx);
@@ -28,7 +28,7 @@ import org.hyperledger.bpa.api.exception.WrongApiUsageException;
 import org.hyperledger.bpa.config.BPAMessageSource;
 import org.hyperledger.bpa.impl.activity.DocumentValidator;
 import org.hyperledger.bpa.impl.activity.LabelStrategy;
-import org.hyperledger.bpa.impl.activity.VPManager;
+import org.hyperledger.bpa.impl.activity.VPResignScheduler;
 import org.hyperledger.bpa.impl.util.Converter;
 import org.hyperledger.bpa.model.MyDocument;
 import org.hyperledger.bpa.repository.MyDocumentRepository;
@@ -42,7 +42,7 @@ public class MyDocumentManager {
     MyDocumentRepository docRepo;
 
     @Inject
-    VPManager vp;
+    VPResignScheduler resignScheduler;
 
     @Inject
     Converter converter;
@@ -64,7 +64,7 @@ public class MyDocumentManager {
         final MyDocument dbDoc = docRepo.save(converter.toModelObject(apiDoc));
 
         if (apiDoc.getIsPublic()) { // new credential, so no need to change the VP when it's private
-            vp.recreateVerifiablePresentation();
+            resignScheduler.requestResign();
         }
         return converter.toApiObject(dbDoc);
     }
@@ -79,7 +79,7 @@ public class MyDocumentManager {
             docRepo.update(dbDoc);
 
             // update, so we always need to check, only exception private stays private
-            vp.recreateVerifiablePresentation();
+            resignScheduler.requestResign();
 
             return converter.toApiObject(dbDoc);
         }
@@ -102,6 +102,6 @@ public class MyDocumentManager {
 
     public void deleteMyDocumentById(@NonNull UUID id) {
         docRepo.deleteById(id);
-        vp.recreateVerifiablePresentation();
+        resignScheduler.requestResign();
     }
 }
@@ -105,6 +105,7 @@ public class PartnerManager {
             }
         });
         repo.deleteByPartnerId(id);
+        converter.invalidatePartner(id);
     }
 
     public PartnerAPI addPartnerFlow(@NonNull AddPartnerRequest req) {
@@ -125,7 +126,7 @@ public class PartnerManager {
         Partner result = repo.save(partner);
 
         if (req.getDid().startsWith(ledgerPrefix)) {
-            credLookup.lookupTypesForAllPartnersAsync();
+            credLookup.lookupTypesForPartnerAsync(result.getDid());
         }
 
         final PartnerAPI apiPartner = converter.toAPIObject(result);
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.model.DidDocWeb;
+import org.hyperledger.bpa.repository.DidDocWebRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the public profile (verifiable presentation) and the did document as
+ * serialised and gzipped byte arrays, so that the anonymous endpoints that all
+ * partners poll do not hit the database and do not serialise on every request.
+ * The profile is replaced when it is signed, the did document when it is
+ * written. Both are reloaded after bpa.public-documents.refresh-after to pick up
+ * changes made by other instances or, in indy mode, on the ledger.
+ */
+@Slf4j
+@Singleton
+public class PublicDocumentCache {
+
+    @Getter
+    @AllArgsConstructor
+    public static final class SerializedDocument {
+        private final byte[] json;
+        private final byte[] gzip;
+        /** strong entity tag, including the quotes */
+        private final String etag;
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final SerializedDocument document;
+        private final Instant loadedAt;
+    }
+
+    @Inject
+    DidDocWebRepository didRepo;
+
+    @Inject
+    Converter converter;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    Provider<DidDocManager> didDocManager;
+
+    @Inject
+    Clock clock;
+
+    @Value("${bpa.public-documents.refresh-after:60s}")
+    Duration refreshAfter;
+
+    private final Slot profile = new Slot();
+    private final Slot didDocument = new Slot();
+
+    public Optional<SerializedDocument> getProfile() {
+        return profile.get(this::loadProfile);
+    }
+
+    public Optional<SerializedDocument> getDidDocument() {
+        return didDocument.get(() -> didDocManager.get().getDidDocument().map(this::serialize).orElse(null));
+    }
+
+    /**
+     * Replaces the cached profile, call after a new presentation was signed and
+     * stored.
+     *
+     * @param vp the signed {@link VerifiablePresentation}
+     */
+    public void updateProfile(@NonNull VerifiablePresentation<VerifiableIndyCredential> vp) {
+        profile.set(serialize(vp));
+    }
+
+    /**
+     * Drops the cached did document, call after the did document was written.
+     */
+    public void invalidateDidDocument() {
+        didDocument.invalidate();
+    }
+
+    private SerializedDocument loadProfile() {
+        return didRepo.findDidDocSingle()
+                .map(DidDocWeb::getProfileJson)
+                .map(json -> serialize(converter.fromMap(json, Converter.VP_TYPEREF)))
+                .orElse(null);
+    }
+
+    SerializedDocument serialize(Object document) {
+        try {
+            byte[] json = mapper.writeValueAsBytes(document);
+            return new SerializedDocument(json, gzip(json), etag(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise public document", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 32);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etag(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final class Slot {
+        private volatile Entry entry;
+
+        Optional<SerializedDocument> get(Supplier<SerializedDocument> loader) {
+            Entry e = entry;
+            if (e == null || isStale(e)) {
+                synchronized (this) {
+                    e = entry;
+                    if (e == null || isStale(e)) {
+                        // loading holds the lock, so an update can not be overwritten by older data
+                        e = new Entry(loader.get(), clock.instant());
+                        entry = e;
+                    }
+                }
+            }
+            return Optional.ofNullable(e.document);
+        }
+
+        synchronized void set(SerializedDocument document) {
+            entry = new Entry(document, clock.instant());
+        }
+
+        synchronized void invalidate() {
+            entry = null;
+        }
+
+        private boolean isStale(Entry e) {
+            return clock.instant().isAfter(e.loadedAt.plus(refreshAfter));
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
+import org.hyperledger.aries.api.revocation.CredRevRecordRequest;
+import org.hyperledger.aries.api.revocation.CredRevRecordResult;
+import org.hyperledger.aries.api.revocation.PublishRevocations;
+import org.hyperledger.aries.api.revocation.RevRegCreateResponse;
+import org.hyperledger.aries.api.revocation.RevocationEvent;
+import org.hyperledger.aries.api.revocation.RevokeRequest;
+import org.hyperledger.bpa.api.exception.IssuerException;
+import org.hyperledger.bpa.api.exception.NetworkException;
+import org.hyperledger.bpa.client.AcaPyPriority;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.config.RuntimeConfig;
+import org.hyperledger.bpa.controller.api.issuer.RevokeCredentialsRequest;
+import org.hyperledger.bpa.controller.api.issuer.RevokeCredentialsResponse;
+import org.hyperledger.bpa.model.BPACredentialExchange;
+import org.hyperledger.bpa.repository.IssuerCredExRepository;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Revokes issued credentials in bulk. Credentials are revoked in aca-py without
+ * publishing and the ones aca-py accepted are flagged as pending in one update.
+ * Pending revocations are then published with one ledger transaction per
+ * revocation registry, either on demand or by the scheduled publish. Before
+ * publishing, the flagged credentials are checked against the registry's
+ * pending list in aca-py, so a stale flag never blocks a publish. A flagged
+ * credential that is no longer pending may already have been published by
+ * aca-py, e.g. by a single revoke with publish, so its revocation record
+ * decides whether it is marked revoked or can be revoked again.
+ */
+@Slf4j
+@Singleton
+public class RevocationBatchManager {
+
+    @Inject
+    AriesClient ac;
+
+    @Inject
+    IssuerCredExRepository credExRepo;
+
+    @Inject
+    RuntimeConfig config;
+
+    @Inject
+    BPAMessageSource.DefaultMessageSource msg;
+
+    /**
+     * Revokes the credentials without publishing the revocations. Not
+     * synchronized, so a large batch does not block other revokes or a publish.
+     *
+     * @param req {@link RevokeCredentialsRequest}
+     * @return {@link RevokeCredentialsResponse}
+     */
+    public RevokeCredentialsResponse revoke(@NonNull RevokeCredentialsRequest req) {
+        if (!config.getTailsServerConfigured()) {
+            throw new IssuerException(msg.getMessage("api.issuer.no.tails.server"));
+        }
+        Map<UUID, BPACredentialExchange> byId = credExRepo.findByIdIn(new ArrayList<>(new HashSet<>(req.getIds())))
+                .stream()
+                .collect(Collectors.toMap(BPACredentialExchange::getId, Function.identity()));
+        Map<UUID, String> failed = new LinkedHashMap<>();
+        List<BPACredentialExchange> revocable = new ArrayList<>();
+        req.getIds().stream().distinct().forEach(id -> {
+            BPACredentialExchange credEx = byId.get(id);
+            if (credEx == null || !CredentialExchangeRole.ISSUER.equals(credEx.getRole())) {
+                failed.put(id, msg.getMessage("api.issuer.credential.not.found", Map.of("id", id)));
+            } else if (StringUtils.isEmpty(credEx.getRevRegId()) || StringUtils.isEmpty(credEx.getCredRevId())) {
+                failed.put(id, msg.getMessage("api.issuer.credential.missing.revocation.info"));
+            } else if (Boolean.TRUE.equals(credEx.getRevoked()) || Boolean.TRUE.equals(credEx.getRevocationPending())) {
+                failed.put(id, msg.getMessage("api.issuer.credential.already.revoked"));
+            } else {
+                revocable.add(credEx);
+            }
+        });
+
+        List<UUID> pending = new ArrayList<>();
+        try {
+            for (BPACredentialExchange credEx : revocable) {
+                try {
+                    ac.revocationRevoke(RevokeRequest
+                            .builder()
+                            .credRevId(credEx.getCredRevId())
+                            .revRegId(credEx.getRevRegId())
+                            .publish(Boolean.FALSE)
+                            .build());
+                    pending.add(credEx.getId());
+                } catch (IOException e) {
+                    log.error("aca-py not reachable", e);
+                    failed.put(credEx.getId(), msg.getMessage("acapy.unavailable"));
+                } catch (Exception e) {
+                    log.error("Could not revoke credential exchange: {}", credEx.getId(), e);
+                    failed.put(credEx.getId(), e.getMessage());
+                }
+            }
+        } finally {
+            // flag everything aca-py accepted in one update, a crash before is fixed by
+            // revoking again
+            if (!pending.isEmpty()) {
+                credExRepo.updateRevocationPending(pending, Boolean.TRUE);
+            }
+        }
+
+        return RevokeCredentialsResponse
+                .builder()
+                .pending(pending)
+                .failed(failed)
+                .published(req.isPublish() ? publishPending() : Map.of())
+                .build();
+    }
+
+    /**
+     * Publishes all pending revocations, aca-py writes one revocation registry
+     * entry per affected registry. Flagged credentials that are not pending in
+     * aca-py are not published, they are marked revoked if aca-py already
+     * published them, otherwise their flag is cleared so that they can be
+     * revoked again. The credential exchanges are updated in one batch
+     * afterwards.
+     *
+     * @return revocation registry id to the number of published revocations
+     */
+    public synchronized Map<String, Integer> publishPending() {
+        List<BPACredentialExchange> pending = removeNotPendingInAcaPy(credExRepo.findByRevocationPendingTrue());
+        if (pending.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, List<String>> rrid2crid = pending.stream()
+                .collect(Collectors.groupingBy(BPACredentialExchange::getRevRegId,
+                        Collectors.mapping(BPACredentialExchange::getCredRevId, Collectors.toList())));
+        log.debug("Publishing {} revocations in {} registries", pending.size(), rrid2crid.size());
+        try {
+            ac.revocationPublishRevocations(PublishRevocations
+                    .builder()
+                    .rrid2crid(rrid2crid)
+                    .build());
+        } catch (IOException e) {
+            throw new NetworkException(msg.getMessage("acapy.unavailable"), e);
+        }
+        markRevoked(pending);
+        return rrid2crid.entrySet()
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().size()));
+    }
+
+    private List<BPACredentialExchange> removeNotPendingInAcaPy(List<BPACredentialExchange> flagged) {
+        List<BPACredentialExchange> pending = new ArrayList<>();
+        List<BPACredentialExchange> published = new ArrayList<>();
+        List<UUID> stale = new ArrayList<>();
+        Map<String, List<BPACredentialExchange>> byRegistry = flagged.stream()
+                .collect(Collectors.groupingBy(BPACredentialExchange::getRevRegId));
+        try {
+            for (Map.Entry<String, List<BPACredentialExchange>> registry : byRegistry.entrySet()) {
+                List<String> pendingInAcaPy = ac.revocationRegistryGetById(registry.getKey())
+                        .map(RevRegCreateResponse::getPendingPub)
+                        .orElse(List.of());
+                for (BPACredentialExchange credEx : registry.getValue()) {
+                    if (pendingInAcaPy.contains(credEx.getCredRevId())) {
+                        pending.add(credEx);
+                    } else if (isRevokedInAcaPy(credEx)) {
+                        published.add(credEx);
+                    } else {
+                        stale.add(credEx.getId());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new NetworkException(msg.getMessage("acapy.unavailable"), e);
+        }
+        if (!published.isEmpty()) {
+            log.info("Marking {} pending revocations as revoked, they were already published by aca-py",
+                    published.size());
+            markRevoked(published);
+        }
+        if (!stale.isEmpty()) {
+            log.warn("Clearing {} pending revocations that are not pending in aca-py: {}", stale.size(), stale);
+            credExRepo.updateRevocationPending(stale, Boolean.FALSE);
+        }
+        return pending;
+    }
+
+    private boolean isRevokedInAcaPy(BPACredentialExchange credEx) throws IOException {
+        return ac.revocationCredentialRecord(CredRevRecordRequest
+                .builder()
+                .credRevId(credEx.getCredRevId())
+                .revRegId(credEx.getRevRegId())
+                .build())
+                .map(CredRevRecordResult::getResult)
+                .map(RevocationEvent::getState)
+                .filter(RevocationEvent.RevocationEventState.REVOKED::equals)
+                .isPresent();
+    }
+
+    private void markRevoked(List<BPACredentialExchange> credExs) {
+        Instant now = Instant.now();
+        credExs.forEach(credEx -> credEx
+                .setRevoked(Boolean.TRUE)
+                .setRevocationPending(Boolean.FALSE)
+                .pushStates(CredentialExchangeState.REVOKED, now));
+        credExRepo.updateAll(credExs);
+    }
+
+    @Scheduled(fixedDelay = "${bpa.revocation.publish-interval:10m}", initialDelay = "2m")
+    void scheduledPublish() {
+        if (!Boolean.TRUE.equals(config.getTailsServerConfigured())) {
+            return;
+        }
+        try {
+            AcaPyPriority.background(this::publishPending);
+        } catch (Exception e) {
+            log.error("Could not publish pending revocations", e);
+        }
+    }
+}
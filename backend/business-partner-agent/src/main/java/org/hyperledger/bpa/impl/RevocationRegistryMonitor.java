@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.revocation.RevRegCreateResponse;
+import org.hyperledger.bpa.client.AcaPyPriority;
+import org.hyperledger.bpa.config.RuntimeConfig;
+import org.hyperledger.bpa.model.BPACredentialDefinition;
+import org.hyperledger.bpa.repository.BPACredentialDefinitionRepository;
+import org.hyperledger.bpa.repository.IssuerCredExRepository;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monitoring only: tracks the remaining capacity of the active revocation
+ * registry of every revocable credential definition and exposes it as the
+ * bpa.revocation.registry.remaining gauge.
+ * <p>
+ * The bpa does not create registries ahead of time, aca-py already does. Since
+ * 0.7.0 (0.7.2 is the version used in scripts/docker-compose.yml) aca-py creates
+ * and publishes a second, backup registry together with the first one of a
+ * credential definition. When an issue fails because the active registry is
+ * full, IndyRevocation.handle_full_registry marks it as full, activates the
+ * backup and starts to create and publish a new backup in the background. So
+ * issuing continues without waiting for the ledger, and a second registry
+ * created by the bpa would only run next to the active one.
+ */
+@Slf4j
+@Singleton
+public class RevocationRegistryMonitor {
+
+    @Inject
+    AriesClient ac;
+
+    @Inject
+    BPACredentialDefinitionRepository credDefRepo;
+
+    @Inject
+    IssuerCredExRepository credExRepo;
+
+    @Inject
+    RuntimeConfig config;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<UUID, AtomicLong> remaining = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelay = "${bpa.revocation.registry.check-interval:1m}", initialDelay = "1m")
+    void checkCapacity() {
+        if (!Boolean.TRUE.equals(config.getTailsServerConfigured())) {
+            return;
+        }
+        for (BPACredentialDefinition credDef : credDefRepo.findByIsSupportRevocationTrue()) {
+            try {
+                AcaPyPriority.background(() -> checkCredDef(credDef));
+            } catch (Exception e) {
+                log.error("Could not check revocation registry capacity of: {}",
+                        credDef.getCredentialDefinitionId(), e);
+            }
+        }
+    }
+
+    void checkCredDef(@NonNull BPACredentialDefinition credDef) throws IOException {
+        Optional<RevRegCreateResponse> active = ac.revocationActiveRegistry(credDef.getCredentialDefinitionId());
+        if (active.isEmpty()) {
+            return;
+        }
+        String revRegId = active.get().getRevocRegId();
+        long capacity = Optional.ofNullable(active.get().getMaxCredNum())
+                .or(() -> Optional.ofNullable(credDef.getRevocationRegistrySize()))
+                .orElseGet(() -> config.getRevocationRegistrySize());
+        long issued = credExRepo.countByRevRegId(revRegId);
+        remaining(credDef).set(Math.max(capacity - issued, 0));
+    }
+
+    private AtomicLong remaining(@NonNull BPACredentialDefinition credDef) {
+        return remaining.computeIfAbsent(credDef.getId(), id -> {
+            AtomicLong value = new AtomicLong(credDef.getRevocationRegistrySize() != null
+                    ? credDef.getRevocationRegistrySize()
+                    : 0);
+            Gauge.builder("bpa.revocation.registry.remaining", value, AtomicLong::get)
+                    .tag("cred_def_id", credDef.getCredentialDefinitionId())
+                    .register(registry);
+            return value;
+        });
+    }
+}
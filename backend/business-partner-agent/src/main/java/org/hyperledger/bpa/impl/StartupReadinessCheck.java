@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.health.HealthStatus;
+import io.micronaut.management.endpoint.health.HealthEndpoint;
+import io.micronaut.management.health.indicator.AbstractHealthIndicator;
+import io.micronaut.management.health.indicator.annotation.Readiness;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.util.Map;
+
+/**
+ * The bpa is ready once the critical {@link StartupTasks} finished, the details
+ * list the duration of every finished startup step.
+ */
+@Singleton
+@Readiness
+@Requires(beans = { HealthEndpoint.class, StartupTasks.class })
+public class StartupReadinessCheck extends AbstractHealthIndicator<Map<String, String>> {
+
+    @Inject
+    StartupTasks startupTasks;
+
+    @Override
+    protected Map<String, String> getHealthInformation() {
+        this.healthStatus = startupTasks.isReady() ? HealthStatus.UP : HealthStatus.DOWN;
+        return startupTasks.getSteps();
+    }
+
+    @Override
+    protected String getName() {
+        return "startup";
+    }
+}
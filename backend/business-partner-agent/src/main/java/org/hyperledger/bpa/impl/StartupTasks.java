@@ -17,15 +17,20 @@
  */
 package org.hyperledger.bpa.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.ApplicationContext;
 import io.micronaut.context.annotation.Requires;
 import io.micronaut.context.annotation.Value;
 import io.micronaut.context.env.Environment;
 import io.micronaut.context.event.ApplicationEventPublisher;
 import io.micronaut.context.event.StartupEvent;
 import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.scheduling.TaskExecutors;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import lombok.NoArgsConstructor;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.hyperledger.aries.AriesClient;
 import org.hyperledger.bpa.impl.activity.VPManager;
@@ -37,9 +42,25 @@ import org.hyperledger.bpa.model.BPAState;
 import org.hyperledger.bpa.repository.BPAStateRepository;
 
 import java.time.Duration;
-import java.util.Iterator;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
+/**
+ * Runs the startup steps as a small task graph. The mode check runs first and
+ * stops the bpa if the mode was switched, all other steps run on the io
+ * executor as soon as the steps they depend on are done. Critical steps have to
+ * finish before the bpa reports ready, see {@link StartupReadinessCheck},
+ * non-critical steps are deferred until then. A failed critical step is retried
+ * with an exponential backoff, if it still fails after the maximum number of
+ * attempts the bpa is stopped, like it was when the steps ran in the startup
+ * event. Only the steps themselves are retried, {@link AcaPyReady} is published
+ * once after aca-py is up and {@link BpaReady} once after all critical steps are
+ * done. Every step is logged and timed with the bpa.startup.step timer.
+ */
 @Slf4j
 @Singleton
 @Requires(notEnv = { Environment.TEST })
@@ -49,6 +70,14 @@ public class StartupTasks {
     public static final class AcaPyReady {
     }
 
+    /**
+     * Published once all critical startup steps are done and the bpa reports
+     * ready
+     */
+    @NoArgsConstructor
+    public static final class BpaReady {
+    }
+
     @Value("${bpa.web.only}")
     Boolean envState;
 
@@ -82,16 +111,131 @@ public class StartupTasks {
     @Inject
     ApplicationEventPublisher eventPublisher;
 
+    @Inject
+    @Named(TaskExecutors.IO)
+    ExecutorService executor;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    ApplicationContext applicationContext;
+
+    @Value("${bpa.startup.retry.max-attempts:10}")
+    Integer maxAttempts;
+
+    @Value("${bpa.startup.retry.initial-backoff:2s}")
+    Duration initialBackoff;
+
+    @Value("${bpa.startup.retry.max-backoff:1m}")
+    Duration maxBackoff;
+
+    // step name, duration or failure in the order the steps finished
+    private final Map<String, String> steps = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private volatile boolean ready;
+
     @EventListener
     public void onServiceStartedEvent(@SuppressWarnings("unused") StartupEvent startEvent) {
         checkModeChange();
 
-        ac.statusWaitUntilReady(Duration.ofSeconds(60));
-        eventPublisher.publishEvent(new AcaPyReady());
+        CompletableFuture<Void> acaPyReady = criticalStep("acapy-ready",
+                () -> ac.statusWaitUntilReady(Duration.ofSeconds(60)))
+                        .thenCompose(v -> step("acapy-ready-event",
+                                () -> eventPublisher.publishEvent(new AcaPyReady())));
+        CompletableFuture<Void> tags = criticalStep("default-tags", this::createDefaultTags);
+        CompletableFuture<Void> schemas = acaPyReady.thenCompose(v -> criticalStep("default-schemas",
+                this::createDefaultSchemas));
+        CompletableFuture<Void> mode = acaPyReady.thenCompose(v -> criticalStep(envState ? "web-mode" : "indy-mode",
+                this::runModeTasks));
+
+        CompletableFuture.allOf(acaPyReady, tags, schemas, mode).whenComplete((v, e) -> {
+            if (e != null) {
+                log.error("Critical startup step failed, stopping the bpa: {}", steps, e);
+                applicationContext.stop();
+                return;
+            }
+            ready = true;
+            log.info("Critical startup steps done: {}", steps);
+            step("bpa-ready-event", () -> eventPublisher.publishEvent(new BpaReady()));
+            step("public-profile", this::createDefaultPublicProfile);
+            step("cred-def-lookup", credLookup::lookupTypesForAllPartnersAsync);
+        });
+    }
+
+    /**
+     * @return true once all critical startup steps finished successfully
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return step name to its duration, or the failure, of all finished steps
+     */
+    public Map<String, String> getSteps() {
+        synchronized (steps) {
+            return new LinkedHashMap<>(steps);
+        }
+    }
+
+    private CompletableFuture<Void> criticalStep(@NonNull String name, @NonNull Runnable task) {
+        return attempt(name, task, 1, executor);
+    }
 
-        createDefaultSchemas();
-        createDefaultTags();
+    private CompletableFuture<Void> attempt(@NonNull String name, @NonNull Runnable task, int attempt,
+            @NonNull Executor exec) {
+        return step(name, task, exec).handle((v, e) -> {
+            if (e == null) {
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            if (attempt >= maxAttempts) {
+                return CompletableFuture.<Void>failedFuture(e);
+            }
+            Duration backoff = backoff(attempt);
+            log.warn("Startup step: {} failed, attempt {} of {}, retrying in {}",
+                    name, attempt, maxAttempts, backoff);
+            return attempt(name, task, attempt + 1,
+                    CompletableFuture.delayedExecutor(backoff.toMillis(), TimeUnit.MILLISECONDS, executor));
+        }).thenCompose(Function.identity());
+    }
 
+    /**
+     * @param failures number of failed attempts so far
+     * @return initial backoff doubled with every further failure, capped at the
+     *         maximum backoff
+     */
+    Duration backoff(int failures) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(failures - 1, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private CompletableFuture<Void> step(@NonNull String name, @NonNull Runnable task) {
+        return step(name, task, executor);
+    }
+
+    private CompletableFuture<Void> step(@NonNull String name, @NonNull Runnable task, @NonNull Executor exec) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            boolean done = false;
+            try {
+                task.run();
+                done = true;
+            } catch (RuntimeException e) {
+                steps.put(name, "failed: " + e.getMessage());
+                throw e;
+            } finally {
+                long duration = System.nanoTime() - start;
+                registry.timer("bpa.startup.step", "step", name).record(duration, TimeUnit.NANOSECONDS);
+                if (done) {
+                    steps.put(name, TimeUnit.NANOSECONDS.toMillis(duration) + "ms");
+                }
+                log.debug("Startup step: {} took: {}", name, steps.get(name));
+            }
+        }, exec);
+    }
+
+    private void runModeTasks() {
         if (envState) {
             log.info("Running in Web Only mode.");
             webTasks.ifPresent(WebStartupTasks::onServiceStartedEvent);
@@ -99,7 +243,9 @@ public class StartupTasks {
             log.info("Running in Indy mode");
             indyTasks.ifPresent(IndyStartupTasks::onServiceStartedEvent);
         }
+    }
 
+    private void createDefaultPublicProfile() {
         vpMgmt
                 .getVerifiablePresentation()
                 .ifPresentOrElse(
@@ -108,8 +254,6 @@ public class StartupTasks {
                             log.info("Creating default public profile for host: {}", host);
                             vpMgmt.recreateVerifiablePresentation();
                         });
-
-        credLookup.lookupTypesForAllPartnersAsync();
     }
 
     private void checkModeChange() {
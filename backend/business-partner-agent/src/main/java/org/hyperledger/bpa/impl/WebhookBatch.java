@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.hyperledger.bpa.core.RegisteredWebhook;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookBatchSettings;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Buffer of already serialised events for a single webhook. Events are only
+ * removed from the buffer after they have been delivered, so a failed post is
+ * retried with the same events in the same order. Only one thread at a time
+ * sends a batch, which keeps the order across batches.
+ * <p>
+ * The buffer is bounded. Once it is full, the batch is marked as overflowing
+ * and {@link WebhookService} stores further events in the database until the
+ * buffer has been sent and refilled from there, so no event is dropped. Failed
+ * posts are retried with an exponential backoff.
+ */
+final class WebhookBatch {
+
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+
+    private final Deque<byte[]> events = new ArrayDeque<>();
+
+    private final int maxBuffered;
+
+    private final Duration maxBackoff;
+
+    private final ReentrantLock sendLock = new ReentrantLock();
+
+    @Getter
+    private volatile RegisteredWebhook hook;
+
+    private Instant oldest;
+
+    private int failures;
+
+    private Instant retryAt;
+
+    /** true while newer events of this webhook are stored in the database */
+    private boolean overflowing;
+
+    WebhookBatch(@NonNull RegisteredWebhook hook, int maxBuffered, @NonNull Duration maxBackoff) {
+        this.hook = hook;
+        this.maxBuffered = maxBuffered;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Adds the event, callers check {@link #hasRoom()} first, so that the order of
+     * events is kept while the batch is overflowing
+     *
+     * @param latest the latest version of the webhook, settings might have changed
+     * @param event  serialised event
+     * @return true if the batch is full and should be sent
+     */
+    synchronized boolean add(@NonNull RegisteredWebhook latest, @NonNull byte[] event) {
+        this.hook = latest;
+        if (events.isEmpty()) {
+            oldest = Instant.now();
+        }
+        events.addLast(event);
+        return events.size() >= maxSize();
+    }
+
+    /**
+     * @return true if the next event can be buffered in memory, false if it has
+     *         to be stored as overflow
+     */
+    synchronized boolean hasRoom() {
+        return !overflowing && events.size() < maxBuffered;
+    }
+
+    /**
+     * @return number of events that can be buffered before the buffer is full
+     */
+    synchronized int remaining() {
+        return Math.max(maxBuffered - events.size(), 0);
+    }
+
+    synchronized boolean isOverflowing() {
+        return overflowing;
+    }
+
+    synchronized void setOverflowing(boolean overflowing) {
+        this.overflowing = overflowing;
+    }
+
+    synchronized boolean isDue(@NonNull Instant now) {
+        if (events.isEmpty() || isBackingOff(now)) {
+            return false;
+        }
+        return events.size() >= maxSize() || !oldest.plusMillis(maxLingerMs()).isAfter(now);
+    }
+
+    synchronized int size() {
+        return events.size();
+    }
+
+    synchronized boolean isBackingOff(@NonNull Instant now) {
+        return retryAt != null && retryAt.isAfter(now);
+    }
+
+    /**
+     * Sends all buffered events in chunks of max size. Returns immediately if
+     * another thread is already sending this batch. A failed post delays the
+     * next scheduled attempt, see {@link #isDue(Instant)}
+     *
+     * @param sender posts the json array and returns true on success
+     */
+    void flush(@NonNull Predicate<byte[]> sender) {
+        if (!sendLock.tryLock()) {
+            return;
+        }
+        try {
+            List<byte[]> chunk;
+            while (!(chunk = peek()).isEmpty()) {
+                if (!sender.test(toJsonArray(chunk))) {
+                    failed();
+                    break;
+                }
+                remove(chunk);
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    private synchronized List<byte[]> peek() {
+        List<byte[]> result = new ArrayList<>();
+        for (byte[] e : events) {
+            if (result.size() >= maxSize()) {
+                break;
+            }
+            result.add(e);
+        }
+        return result;
+    }
+
+    private synchronized void remove(List<byte[]> sent) {
+        // by identity, the buffer only ever grows at the end while sending
+        for (byte[] e : sent) {
+            if (events.peekFirst() == e) {
+                events.pollFirst();
+            }
+        }
+        failures = 0;
+        retryAt = null;
+    }
+
+    private synchronized void failed() {
+        failures++;
+        retryAt = Instant.now().plus(backoff(failures, maxBackoff));
+    }
+
+    static Duration backoff(int failures, @NonNull Duration max) {
+        // 1s, 2s, 4s ... capped, the shift is limited to avoid an overflow
+        Duration result = MIN_BACKOFF.multipliedBy(1L << Math.min(failures - 1, 20));
+        return result.compareTo(max) > 0 ? max : result;
+    }
+
+    private int maxSize() {
+        WebhookBatchSettings settings = hook.getBatch();
+        return settings != null && settings.getMaxSize() != null ? settings.getMaxSize() : 1;
+    }
+
+    private long maxLingerMs() {
+        WebhookBatchSettings settings = hook.getBatch();
+        return settings != null && settings.getMaxLingerMs() != null ? settings.getMaxLingerMs() : 0;
+    }
+
+    static byte[] toJsonArray(@NonNull List<byte[]> events) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(events.get(i));
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+}
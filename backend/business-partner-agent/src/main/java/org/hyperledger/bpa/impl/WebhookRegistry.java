@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import io.micronaut.context.event.ApplicationEventPublisher;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.bpa.core.RegisteredWebhook;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookEventType;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.repository.BPAWebhookRepository;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In memory view of all registered webhooks grouped by their event type, so
+ * that sending an event does not require a database round trip. The view is
+ * loaded lazily and dropped whenever a webhook is added, changed or removed.
+ * Other bpa instances are notified via {@link WebhooksChanged}.
+ */
+@Slf4j
+@Singleton
+public class WebhookRegistry {
+
+    @NoArgsConstructor
+    public static final class WebhooksChanged {
+    }
+
+    @Inject
+    BPAWebhookRepository repo;
+
+    @Inject
+    Converter conv;
+
+    @Inject
+    ApplicationEventPublisher eventPublisher;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Map<WebhookEventType, List<RegisteredWebhook>> byEventType;
+
+    /**
+     * Get all webhooks that are registered for the given event type
+     *
+     * @param eventType {@link WebhookEventType}
+     * @return immutable list of {@link RegisteredWebhook}
+     */
+    public List<RegisteredWebhook> findByEventType(@NonNull WebhookEventType eventType) {
+        return load().getOrDefault(eventType, List.of());
+    }
+
+    /**
+     * Drops the local view and notifies other instances, call after every write
+     * to the webhook table.
+     */
+    public void invalidate() {
+        invalidateLocal();
+        eventPublisher.publishEvent(new WebhooksChanged());
+    }
+
+    /**
+     * Drops the local view only, used when another instance changed a webhook.
+     */
+    public void invalidateLocal() {
+        log.debug("Invalidating webhook registry");
+        generation.incrementAndGet();
+        byEventType = null;
+    }
+
+    private Map<WebhookEventType, List<RegisteredWebhook>> load() {
+        Map<WebhookEventType, List<RegisteredWebhook>> result = byEventType;
+        if (result == null) {
+            synchronized (this) {
+                result = byEventType;
+                if (result == null) {
+                    long loadedAt = generation.get();
+                    result = loadFromDb();
+                    // do not keep a view that was invalidated while loading
+                    if (loadedAt == generation.get()) {
+                        byEventType = result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<WebhookEventType, List<RegisteredWebhook>> loadFromDb() {
+        Map<WebhookEventType, List<RegisteredWebhook>> result = new EnumMap<>(WebhookEventType.class);
+        repo.findAll().forEach(h -> {
+            RegisteredWebhook hook = conv.fromMap(h.getWebhook(), RegisteredWebhook.class);
+            if (hook.getRegisteredEvent() != null) {
+                hook.getRegisteredEvent().stream().distinct().forEach(
+                        type -> result.computeIfAbsent(type, k -> new ArrayList<>()).add(hook));
+            }
+        });
+        result.replaceAll((k, v) -> List.copyOf(v));
+        return Collections.unmodifiableMap(result);
+    }
+}
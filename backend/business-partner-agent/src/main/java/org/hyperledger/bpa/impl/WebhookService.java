@@ -17,30 +17,45 @@
  */
 package org.hyperledger.bpa.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.core.util.StringUtils;
 import io.micronaut.data.exceptions.DataAccessException;
+import io.micronaut.data.model.Pageable;
+import io.micronaut.runtime.event.annotation.EventListener;
 import io.micronaut.scheduling.annotation.Async;
+import io.micronaut.scheduling.annotation.Scheduled;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.client.OutboundHttpClients;
 import org.hyperledger.bpa.core.RegisteredWebhook;
 import org.hyperledger.bpa.core.RegisteredWebhook.RegisteredWebhookResponse;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookBatchSettings;
 import org.hyperledger.bpa.core.RegisteredWebhook.WebhookCredentials;
 import org.hyperledger.bpa.core.RegisteredWebhook.WebhookEventType;
 import org.hyperledger.bpa.core.WebhookEvent;
 import org.hyperledger.bpa.impl.util.Converter;
 import org.hyperledger.bpa.model.BPAWebhook;
+import org.hyperledger.bpa.model.WebhookOverflow;
 import org.hyperledger.bpa.repository.BPAWebhookRepository;
+import org.hyperledger.bpa.repository.WebhookOverflowRepository;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Singleton
@@ -48,7 +63,8 @@ public class WebhookService {
 
     static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
 
-    private final OkHttpClient okClient = new OkHttpClient();
+    /** pending batches by webhook url */
+    private final Map<String, WebhookBatch> batches = new ConcurrentHashMap<>();
 
     @Inject
     Converter conv;
@@ -56,6 +72,24 @@ public class WebhookService {
     @Inject
     BPAWebhookRepository repo;
 
+    @Inject
+    WebhookRegistry registry;
+
+    @Inject
+    OutboundHttpClients http;
+
+    @Inject
+    WebhookOverflowRepository overflowRepo;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Value("${bpa.webhook.batch.max-buffered:10000}")
+    int maxBuffered;
+
+    @Value("${bpa.webhook.batch.max-backoff:5m}")
+    Duration maxBackoff;
+
     public List<RegisteredWebhookResponse> listRegisteredWebhooks() {
         List<RegisteredWebhookResponse> result = new ArrayList<>();
         repo.findAll().forEach(h -> {
@@ -67,9 +101,11 @@ public class WebhookService {
 
     public RegisteredWebhookResponse registerWebhook(@NonNull RegisteredWebhook hook) {
         checkUrl(hook.getUrl());
+        checkBatch(hook.getBatch());
         final Map<String, Object> map = conv.toMap(hook);
         try {
             BPAWebhook dbHook = repo.save(BPAWebhook.builder().webhook(map).build());
+            registry.invalidate();
             return new RegisteredWebhookResponse(dbHook.getId(), hook);
         } catch (@SuppressWarnings("unused") DataAccessException e) {
             throw new WrongApiUsageException("Webhook for url: " + hook.getUrl() + " is already registered");
@@ -79,6 +115,7 @@ public class WebhookService {
     public Optional<RegisteredWebhookResponse> updateRegisteredWebhook(
             @NonNull UUID id, @NonNull RegisteredWebhook hook) {
         checkUrl(hook.getUrl());
+        checkBatch(hook.getBatch());
         Optional<RegisteredWebhookResponse> result = Optional.empty();
         final Map<String, Object> map = conv.toMap(hook);
         final Optional<BPAWebhook> existing = repo.findById(id);
@@ -86,6 +123,7 @@ public class WebhookService {
             existing.get().setWebhook(map);
             try {
                 final BPAWebhook updated = repo.update(existing.get());
+                registry.invalidate();
                 return Optional.of(new RegisteredWebhookResponse(updated.getId(), hook));
             } catch (@SuppressWarnings("unused") DataAccessException e) {
                 throw new WrongApiUsageException("Webhook for url: " + hook.getUrl() + " is already registered");
@@ -94,46 +132,191 @@ public class WebhookService {
         return result;
     }
 
+    public Optional<RegisteredWebhookResponse> updateBatchSettings(
+            @NonNull UUID id, @Nullable WebhookBatchSettings batch) {
+        return repo.findById(id).flatMap(h -> {
+            final RegisteredWebhook hook = conv.fromMap(h.getWebhook(), RegisteredWebhook.class);
+            hook.setBatch(batch);
+            return updateRegisteredWebhook(id, hook);
+        });
+    }
+
     public void deleteRegisteredWebhook(UUID id) {
         repo.deleteById(id);
+        registry.invalidate();
     }
 
     @Async
     public void convertAndSend(@NonNull WebhookEventType eventType, @NonNull Object msg) {
-        // Not a parallel stream for now to keep it simple
-        repo.findByEventType(eventType).forEach(e -> {
-            final RegisteredWebhook hook = conv.fromMap(e.getWebhook(), RegisteredWebhook.class);
-            try {
-                WebhookEvent<?> event = WebhookEvent
+        final List<RegisteredWebhook> hooks = registry.findByEventType(eventType);
+        if (hooks.isEmpty()) {
+            return;
+        }
+        WebhookEvent<?> event = WebhookEvent
+                .builder()
+                .payload(msg)
+                .type(eventType)
+                .sent(Instant.now().toEpochMilli())
+                .build();
+        // serialise once, the same body is shared by all subscribers
+        conv.writeValueAsBytes(event).ifPresent(json -> {
+            final RequestBody body = RequestBody.create(json, JSON_TYPE);
+            // Not a parallel stream for now to keep it simple
+            hooks.forEach(hook -> {
+                // pending batches are drained first to keep the order when batching is switched off
+                if (hook.getBatch() != null || batches.containsKey(hook.getUrl())) {
+                    addToBatch(hook, json);
+                } else {
+                    send(hook, body);
+                }
+            });
+        });
+    }
+
+    private void addToBatch(@NonNull RegisteredWebhook hook, byte[] json) {
+        final boolean[] full = { false };
+        WebhookBatch batch = batches.compute(hook.getUrl(), (url, b) -> {
+            WebhookBatch result = b != null ? b : new WebhookBatch(hook, maxBuffered, maxBackoff);
+            if (result.hasRoom()) {
+                full[0] = result.add(hook, json);
+            } else {
+                // keep the event instead of dropping it, it is sent once the buffer has room again
+                overflowRepo.save(WebhookOverflow
                         .builder()
-                        .payload(msg)
-                        .type(eventType)
-                        .sent(Instant.now().toEpochMilli())
-                        .build();
-
-                conv.writeValueAsString(event).ifPresent(json -> {
-
-                    Request.Builder request = new Request.Builder()
-                            .url(hook.getUrl())
-                            .post(RequestBody.create(json, JSON_TYPE));
-                    addBasicAuthHeaderIfSet(request, hook);
-
-                    try (Response response = okClient.newCall(request.build()).execute()) {
-                        if (!response.isSuccessful()) {
-                            String body = response.body() != null ? response.body().toString() : "";
-                            log.error("Call to {} falied, code: {}, msg: {}",
-                                    hook.getUrl(), response.code(), body);
-                        }
-                    } catch (IOException ex) {
-                        log.error("Call to " + hook.getUrl() + " failed", ex);
-                    }
+                        .url(url)
+                        .event(new String(json, StandardCharsets.UTF_8))
+                        .build());
+                result.setOverflowing(true);
+                meterRegistry.counter("bpa.webhook.overflow").increment();
+                full[0] = true;
+            }
+            return result;
+        });
+        if (full[0] && !batch.isBackingOff(Instant.now())) {
+            flush(hook.getUrl(), batch);
+        }
+    }
+
+    /**
+     * Sends the buffered events and, while the batch is overflowing, refills the
+     * buffer with the oldest stored events until everything is sent or a post
+     * fails
+     */
+    private void flush(@NonNull String url, @NonNull WebhookBatch batch) {
+        do {
+            batch.flush(array -> send(batch.getHook(), RequestBody.create(array, JSON_TYPE)));
+        } while (batch.size() == 0 && refill(url, batch));
+    }
+
+    /**
+     * Moves the oldest stored events of the webhook into its buffer, producers of
+     * new events are blocked meanwhile, so the order is kept
+     *
+     * @return true if events were moved
+     */
+    private boolean refill(@NonNull String url, @NonNull WebhookBatch batch) {
+        final boolean[] moved = { false };
+        batches.computeIfPresent(url, (k, b) -> {
+            if (b != batch || !b.isOverflowing()) {
+                return b;
+            }
+            int limit = b.remaining();
+            if (limit == 0) {
+                return b;
+            }
+            List<WebhookOverflow> next = overflowRepo.findByUrlOrderById(url, Pageable.from(0, limit));
+            next.forEach(o -> b.add(b.getHook(), o.getEvent().getBytes(StandardCharsets.UTF_8)));
+            if (!next.isEmpty()) {
+                overflowRepo.deleteByIdIn(next.stream().map(WebhookOverflow::getId).collect(Collectors.toList()));
+            }
+            // a full page might not have been the last one, the next refill finds out
+            b.setOverflowing(next.size() == limit);
+            moved[0] = !next.isEmpty();
+            return b;
+        });
+        return moved[0];
+    }
+
+    /**
+     * Events that overflowed before a restart are picked up again, events of
+     * webhooks that were deleted meanwhile are discarded
+     */
+    @EventListener
+    void restoreOverflow(@SuppressWarnings("unused") StartupEvent startEvent) {
+        overflowRepo.findDistinctUrl().forEach(url -> {
+            Optional<RegisteredWebhook> hook = repo.findByUrl(url)
+                    .map(h -> conv.fromMap(h.getWebhook(), RegisteredWebhook.class));
+            if (hook.isPresent()) {
+                log.info("Resuming {} stored events for webhook: {}", overflowRepo.countByUrl(url), url);
+                batches.computeIfAbsent(url, k -> {
+                    WebhookBatch batch = new WebhookBatch(hook.get(), maxBuffered, maxBackoff);
+                    batch.setOverflowing(true);
+                    return batch;
                 });
-            } catch (Exception e1) {
-                log.error("Could not send webhook for url: {}", hook.getUrl(), e1);
+            } else {
+                log.warn("Discarding stored events of deleted webhook: {}", url);
+                overflowRepo.deleteByUrl(url);
+            }
+        });
+    }
+
+    /**
+     * Sends all batches that reached their max linger time, or that could not be
+     * sent before and are not backing off. Events of deleted webhooks, or webhooks
+     * that switched back to single delivery, are sent one last time. A batch is
+     * kept as long as it has stored overflow events.
+     */
+    @Scheduled(fixedDelay = "${bpa.webhook.batch.flush-interval:1s}")
+    void flushBatches() {
+        final Instant now = Instant.now();
+        batches.forEach((url, batch) -> {
+            // an empty overflowing batch, e.g. after a restart, is refilled from the database
+            if (batch.isDue(now) || (batch.isOverflowing() && batch.size() == 0 && !batch.isBackingOff(now))) {
+                flush(url, batch);
+            }
+            batches.computeIfPresent(url, (k, b) -> b.size() == 0 && !b.isOverflowing() ? null : b);
+        });
+    }
+
+    /**
+     * Buffers are only held in memory, so try to deliver everything that is still
+     * buffered before the http clients are closed, regardless of linger time and
+     * backoff. The overflow is stored and survives the shutdown.
+     */
+    @PreDestroy
+    void flushOnShutdown() {
+        batches.forEach((url, batch) -> {
+            batch.flush(array -> send(batch.getHook(), RequestBody.create(array, JSON_TYPE)));
+            if (batch.size() > 0) {
+                log.warn("Shutting down with {} undelivered events for webhook: {}", batch.size(), url);
             }
         });
     }
 
+    private boolean send(@NonNull RegisteredWebhook hook, @NonNull RequestBody body) {
+        boolean success = false;
+        try {
+            Request.Builder request = new Request.Builder()
+                    .url(hook.getUrl())
+                    .post(body);
+            addBasicAuthHeaderIfSet(request, hook);
+
+            try (Response response = http.forDestination(OutboundHttpClients.WEBHOOK).newCall(request.build()).execute()) {
+                success = response.isSuccessful();
+                if (!success) {
+                    String msg = response.body() != null ? response.body().toString() : "";
+                    log.error("Call to {} falied, code: {}, msg: {}",
+                            hook.getUrl(), response.code(), msg);
+                }
+            } catch (IOException ex) {
+                log.error("Call to " + hook.getUrl() + " failed", ex);
+            }
+        } catch (Exception e) {
+            log.error("Could not send webhook for url: {}", hook.getUrl(), e);
+        }
+        return success;
+    }
+
     // TODO use a hibernate validator
     @SuppressWarnings("unused")
     private static void checkUrl(String url) {
@@ -144,6 +327,13 @@ public class WebhookService {
         }
     }
 
+    private static void checkBatch(@Nullable WebhookBatchSettings batch) {
+        if (batch != null && (batch.getMaxSize() == null || batch.getMaxSize() < 1
+                || batch.getMaxLingerMs() == null || batch.getMaxLingerMs() < 1)) {
+            throw new WrongApiUsageException("Batch max size and max linger time need to be greater than zero");
+        }
+    }
+
     private static void addBasicAuthHeaderIfSet(Request.Builder b, RegisteredWebhook hook) {
         final WebhookCredentials creds = hook.getCredentials();
         if (creds != null
@@ -17,7 +17,10 @@
  */
 package org.hyperledger.bpa.impl.activity;
 
+import com.google.gson.Gson;
+import io.micronaut.cache.SyncCache;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import lombok.NonNull;
 import lombok.Setter;
@@ -28,7 +31,9 @@ import org.hyperledger.aries.api.jsonld.SignRequest.SignDocument.Options;
 import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
 import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
 import org.hyperledger.aries.api.jsonld.VerifyResponse;
+import org.hyperledger.aries.config.GsonConfig;
 import org.hyperledger.bpa.api.exception.NetworkException;
+import org.hyperledger.bpa.util.CryptoUtil;
 
 import java.io.IOException;
 import java.util.Optional;
@@ -37,6 +42,8 @@ import java.util.Optional;
 @Singleton
 public class CryptoManager {
 
+    private static final Gson GSON = GsonConfig.defaultConfig();
+
     @Inject
     @Setter
     AriesClient acaPy;
@@ -44,6 +51,10 @@ public class CryptoManager {
     @Inject
     Identity id;
 
+    @Inject
+    @Named("vp-verification-cache")
+    SyncCache<?> verificationCache;
+
     /**
      * Self sign a {@link VerifiablePresentation}
      *
@@ -75,23 +86,36 @@ public class CryptoManager {
     }
 
     /**
-     * Verify a signed {@link VerifiablePresentation}
+     * Verify a signed {@link VerifiablePresentation}. The result is cached by the
+     * hash of the verkey and the presentation, so an unchanged partner profile is
+     * only verified once. If aca-py does not return a result the presentation
+     * is treated as invalid, but this is not cached.
      *
      * @param verkey  the own or the partners verkey
      * @param inputVp {@link VerifiablePresentation}
      * @return verification success or failure
      */
     public Boolean verify(String verkey, VerifiablePresentation<VerifiableIndyCredential> inputVp) {
-        Boolean result = Boolean.FALSE;
-        try {
-            Optional<VerifyResponse> state = acaPy.jsonldVerify(verkey, inputVp);
-            if (state.isPresent()) {
-                result = state.get().isValid();
+        String hash = CryptoUtil.toSHA256Hex(verkey + GSON.toJson(inputVp));
+        if (hash != null) {
+            Optional<Boolean> cached = verificationCache.get(hash, Boolean.class);
+            if (cached.isPresent()) {
+                return cached.get();
             }
+        }
+        Optional<Boolean> result = verifyRemote(verkey, inputVp);
+        if (hash != null && result.isPresent()) {
+            verificationCache.put(hash, result.get());
+        }
+        return result.orElse(Boolean.FALSE);
+    }
+
+    private Optional<Boolean> verifyRemote(String verkey, VerifiablePresentation<VerifiableIndyCredential> inputVp) {
+        try {
+            return acaPy.jsonldVerify(verkey, inputVp).map(VerifyResponse::isValid);
         } catch (IOException e) {
             log.error(e.getMessage(), e);
             throw new NetworkException(e.getMessage());
         }
-        return result;
     }
 }
@@ -125,6 +125,7 @@ public class DidResolver {
                     p.getId(),
                     converter.toMap(pAPI.getVerifiablePresentation()),
                     pAPI.getValid());
+            converter.invalidatePartner(p.getId());
             webhook.convertAndSend(RegisteredWebhook.WebhookEventType.PARTNER_ADD, pAPI);
         }, () -> {
             ConnectionLabel cl = splitDidFrom(p.getLabel());
@@ -136,6 +137,7 @@ public class DidResolver {
                         pAPI.getValid(),
                         cl.getLabel(),
                         did);
+                converter.invalidatePartner(p.getId());
                 webhook.convertAndSend(RegisteredWebhook.WebhookEventType.PARTNER_ADD, pAPI);
             });
         });
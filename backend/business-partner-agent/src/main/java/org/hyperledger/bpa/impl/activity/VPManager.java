@@ -25,8 +25,10 @@ import io.micronaut.scheduling.annotation.Async;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import org.hyperledger.aries.api.credentials.Credential;
 import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
 import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
@@ -37,6 +39,7 @@ import org.hyperledger.aries.config.GsonConfig;
 import org.hyperledger.aries.config.TimeUtil;
 import org.hyperledger.bpa.api.ApiConstants;
 import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.impl.PublicDocumentCache;
 import org.hyperledger.bpa.impl.aries.config.SchemaService;
 import org.hyperledger.bpa.impl.util.AriesStringUtil;
 import org.hyperledger.bpa.impl.util.Converter;
@@ -46,12 +49,22 @@ import org.hyperledger.bpa.model.MyDocument;
 import org.hyperledger.bpa.repository.DidDocWebRepository;
 import org.hyperledger.bpa.repository.HolderCredExRepository;
 import org.hyperledger.bpa.repository.MyDocumentRepository;
+import org.hyperledger.bpa.util.CryptoUtil;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+@Slf4j
 @Singleton
 public class VPManager {
 
+    /** built credentials by entity id, reused as long as their input did not change */
+    private final Map<UUID, BuiltCredential> credentialCache = new ConcurrentHashMap<>();
+
+    /** resolved json-ld contexts by credential type and schema id */
+    private final Map<String, List<Object>> contextCache = new ConcurrentHashMap<>();
+
     @Inject
     Identity id;
 
@@ -67,6 +80,9 @@ public class VPManager {
     @Inject
     CryptoManager crypto;
 
+    @Inject
+    PublicDocumentCache publicDocuments;
+
     @Inject
     @Setter
     Optional<SchemaService> schemaService;
@@ -75,15 +91,39 @@ public class VPManager {
     @Setter(AccessLevel.PROTECTED)
     Converter converter;
 
+    /**
+     * Rebuilds the public verifiable presentation from all public documents and
+     * credentials and signs it, unless the stored presentation already contains
+     * exactly the same credentials. Use {@link VPResignScheduler} when reacting
+     * to user changes.
+     */
     public void recreateVerifiablePresentation() {
         List<VerifiableIndyCredential> vcs = new ArrayList<>();
+        Set<UUID> ids = new HashSet<>();
 
         String myDid = id.getMyDid();
 
-        docRepo.findByIsPublicTrue().forEach(doc -> vcs.add(buildFromDocument(doc, myDid)));
+        docRepo.findByIsPublicTrue().forEach(doc -> {
+            ids.add(doc.getId());
+            vcs.add(cached(doc.getId(),
+                    fingerprint(myDid, doc.getType(), doc.getSchemaId(), doc.getLabel(), doc.getDocument()),
+                    () -> buildFromDocument(doc, myDid)));
+        });
 
         holderCredExRepo.findByRoleAndIsPublicTrue(CredentialExchangeRole.HOLDER)
-                .forEach(cred -> vcs.add(buildFromCredential(cred)));
+                .forEach(cred -> {
+                    ids.add(cred.getId());
+                    vcs.add(cached(cred.getId(),
+                            fingerprint(id.getDidPrefix(), cred.getType(), cred.getLabel(), cred.getCredential(),
+                                    String.valueOf(cred.calculateIssuedAt())),
+                            () -> buildFromCredential(cred)));
+                });
+        credentialCache.keySet().retainAll(ids);
+
+        if (isSigned(vcs, myDid)) {
+            log.debug("Public profile did not change, not signing it again");
+            return;
+        }
 
         // only split up into own method, because of a weird issue that the second
         // thread does
@@ -91,6 +131,31 @@ public class VPManager {
         signVP(vcs);
     }
 
+    private boolean isSigned(List<VerifiableIndyCredential> vcs, String myDid) {
+        return getVerifiablePresentation()
+                .filter(vp -> vp.getProof() != null
+                        && Objects.equals(id.getMyKeyId(myDid), vp.getProof().getVerificationMethod()))
+                .map(vp -> Objects.requireNonNullElse(vp.getVerifiableCredential(), List.of()))
+                .map(signed -> CryptoUtil.hashCompare(signed, vcs))
+                .orElse(Boolean.FALSE);
+    }
+
+    private VerifiableIndyCredential cached(UUID entityId, String fingerprint,
+            Supplier<VerifiableIndyCredential> builder) {
+        BuiltCredential built = credentialCache.get(entityId);
+        if (built == null || fingerprint == null || !fingerprint.equals(built.fingerprint)) {
+            built = new BuiltCredential(fingerprint, builder.get());
+            if (fingerprint != null) {
+                credentialCache.put(entityId, built);
+            }
+        }
+        return built.credential;
+    }
+
+    private static String fingerprint(Object... input) {
+        return CryptoUtil.toSHA256Hex(GsonConfig.defaultConfig().toJson(Arrays.asList(input)));
+    }
+
     @Async
     public void signVP(List<VerifiableIndyCredential> vcs) {
         final VerifiablePresentationBuilder<VerifiableIndyCredential> vpBuilder = VerifiablePresentation.builder();
@@ -99,13 +164,15 @@ public class VPManager {
         } else {
             vpBuilder.verifiableCredential(null);
         }
-        crypto.sign(vpBuilder.build())
-                .ifPresent(vp -> didRepo.findDidDocSingle().ifPresentOrElse(
-                        didWeb -> didRepo.updateProfileJson(didWeb.getId(), converter.toMap(vp)),
-                        () -> didRepo.save(DidDocWeb
-                                .builder()
-                                .profileJson(converter.toMap(vp))
-                                .build())));
+        crypto.sign(vpBuilder.build()).ifPresent(vp -> {
+            didRepo.findDidDocSingle().ifPresentOrElse(
+                    didWeb -> didRepo.updateProfileJson(didWeb.getId(), converter.toMap(vp)),
+                    () -> didRepo.save(DidDocWeb
+                            .builder()
+                            .profileJson(converter.toMap(vp))
+                            .build()));
+            publicDocuments.updateProfile(vp);
+        });
     }
 
     protected VerifiableIndyCredential buildFromDocument(@NonNull MyDocument doc, @NonNull String myDid) {
@@ -166,6 +233,12 @@ public class VPManager {
             return type.getContext();
         }
 
+        String key = type.name() + "|" + schemaId;
+        List<Object> cached = contextCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
         final ArrayList<Object> context = new ArrayList<>(type.getContext());
 
         schemaService.flatMap(s -> s.getSchemaFor(schemaId)).ifPresent(schema -> {
@@ -184,9 +257,17 @@ public class VPManager {
             });
 
             context.add(ctx);
+            // schema attributes never change, unknown schemas might be added later
+            contextCache.put(key, Collections.unmodifiableList(context));
         });
 
         return context;
     }
 
+    @AllArgsConstructor
+    private static final class BuiltCredential {
+        private final String fingerprint;
+        private final VerifiableIndyCredential credential;
+    }
+
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.activity;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.TaskScheduler;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Collapses bursts of public profile changes, e.g. toggling the visibility of
+ * many credentials, into a single re-signing of the verifiable presentation.
+ * Every request moves the run to debounce after the latest change, but a run
+ * happens at the latest max-delay after the first pending change.
+ */
+@Slf4j
+@Singleton
+public class VPResignScheduler {
+
+    @Inject
+    VPManager vpMgmt;
+
+    @Inject
+    @Named(TaskExecutors.SCHEDULED)
+    TaskScheduler scheduler;
+
+    @Inject
+    Clock clock;
+
+    @Value("${bpa.vp.resign.debounce:1s}")
+    Duration debounce;
+
+    @Value("${bpa.vp.resign.max-delay:10s}")
+    Duration maxDelay;
+
+    private ScheduledFuture<?> pending;
+    private Instant firstRequest;
+
+    /**
+     * Request that the public verifiable presentation is rebuilt and signed
+     */
+    public synchronized void requestResign() {
+        Instant now = clock.instant();
+        if (firstRequest == null) {
+            firstRequest = now;
+        }
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        Duration untilDeadline = Duration.between(now, firstRequest.plus(maxDelay));
+        Duration delay = untilDeadline.compareTo(debounce) < 0 ? untilDeadline : debounce;
+        pending = scheduler.schedule(delay.isNegative() ? Duration.ZERO : delay, this::resign);
+    }
+
+    private void resign() {
+        synchronized (this) {
+            pending = null;
+            firstRequest = null;
+        }
+        try {
+            vpMgmt.recreateVerifiablePresentation();
+        } catch (Exception e) {
+            log.error("Could not recreate the verifiable presentation", e);
+        }
+    }
+}
@@ -309,7 +309,7 @@ public class ConnectionManager {
             eventPublisher.publishEventAsync(PartnerRequestCompletedEvent.builder().partner(p).build());
         }
         if (record.stateIsCompleted() || record.stateIsActive() && record.isIncomingConnection()) {
-            partnerCredDefLookup.lookupTypesForAllPartnersAsync();
+            partnerCredDefLookup.lookupTypesForPartnerAsync(p.getDid());
         }
     }
 
@@ -18,6 +18,7 @@
 package org.hyperledger.bpa.impl.aries;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -25,14 +26,21 @@ import org.apache.commons.lang3.StringUtils;
 import org.hyperledger.aries.AriesClient;
 import org.hyperledger.aries.api.exception.AriesException;
 import org.hyperledger.aries.api.present_proof.PresentationExchangeRecord;
+import org.hyperledger.aries.api.present_proof.PresentationRequestCredentials.CredentialInfo;
 import org.hyperledger.bpa.api.aries.AriesCredential;
 import org.hyperledger.bpa.api.aries.AriesProofExchange;
 import org.hyperledger.bpa.impl.aries.config.RestrictionsManager;
 import org.hyperledger.bpa.impl.aries.config.SchemaService;
 import org.hyperledger.bpa.impl.util.AriesStringUtil;
+import org.hyperledger.bpa.model.BPACredentialExchange;
 import org.hyperledger.bpa.repository.HolderCredExRepository;
 
 import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Singleton
@@ -50,8 +58,11 @@ public class CredentialInfoResolver {
     @Inject
     HolderCredExRepository holderCredExRepo;
 
-    public AriesCredential.BPACredentialInfo populateCredentialInfo(
-            @NonNull org.hyperledger.aries.api.present_proof.PresentationRequestCredentials.CredentialInfo ci) {
+    @Inject
+    @Named("revocation-check")
+    ExecutorService revocationExecutor;
+
+    public AriesCredential.BPACredentialInfo populateCredentialInfo(@NonNull CredentialInfo ci) {
 
         AriesCredential.BPACredentialInfo.BPACredentialInfoBuilder builder = AriesCredential.BPACredentialInfo
                 .builder();
@@ -68,15 +79,69 @@ public class CredentialInfoResolver {
             });
         }
         if (StringUtils.isNotEmpty(ci.getReferent())) {
-            try {
-                ac.credentialRevoked(ci.getReferent()).ifPresent(rev -> builder.revoked(rev.getRevoked()));
-            } catch (IOException | AriesException e) {
-                log.error("Could not check credential revocation status", e);
-            }
+            builder.revoked(checkRevoked(ci.getReferent()));
         }
         return builder.build();
     }
 
+    /**
+     * Batch variant of {@link #populateCredentialInfo(CredentialInfo)} used when
+     * matching a presentation request against the wallet. Labels are resolved once
+     * per distinct schema and credential definition, the wallet credentials are
+     * loaded with a single query, and the revocation checks against aca-py run
+     * concurrently on the bounded revocation-check executor.
+     *
+     * @param infos list of {@link CredentialInfo}
+     * @return list of {@link AriesCredential.BPACredentialInfo} in the same order
+     *         as the input
+     */
+    public List<AriesCredential.BPACredentialInfo> populateCredentialInfo(@NonNull List<CredentialInfo> infos) {
+        if (infos.isEmpty()) {
+            return List.of();
+        }
+        Map<String, String> schemaLabels = new HashMap<>();
+        Map<String, String> issuerLabels = new HashMap<>();
+        Set<String> referents = new LinkedHashSet<>();
+        infos.stream().filter(Objects::nonNull).forEach(ci -> {
+            if (StringUtils.isNotEmpty(ci.getSchemaId())) {
+                schemaLabels.computeIfAbsent(ci.getSchemaId(), schemaService::getSchemaLabel);
+            }
+            if (StringUtils.isNotEmpty(ci.getCredentialDefinitionId())) {
+                issuerLabels.computeIfAbsent(ci.getCredentialDefinitionId(), this::generateIssuerLabel);
+            }
+            if (StringUtils.isNotEmpty(ci.getReferent())) {
+                referents.add(ci.getReferent());
+            }
+        });
+
+        Map<String, CompletableFuture<Boolean>> revoked = referents.stream()
+                .collect(Collectors.toMap(Function.identity(),
+                        r -> CompletableFuture.supplyAsync(() -> checkRevoked(r), revocationExecutor)));
+        Map<String, BPACredentialExchange> wallet = referents.isEmpty() ? Map.of()
+                : holderCredExRepo.findByReferentIn(List.copyOf(referents)).stream()
+                        .collect(Collectors.toMap(BPACredentialExchange::getReferent, Function.identity(),
+                                (a, b) -> a));
+
+        return infos.stream().map(ci -> {
+            if (ci == null) {
+                return AriesCredential.BPACredentialInfo.builder().build();
+            }
+            AriesCredential.BPACredentialInfo.BPACredentialInfoBuilder builder = AriesCredential.BPACredentialInfo
+                    .builder()
+                    .schemaLabel(schemaLabels.get(ci.getSchemaId()))
+                    .issuerLabel(issuerLabels.get(ci.getCredentialDefinitionId()));
+            if (StringUtils.isNotEmpty(ci.getReferent())) {
+                BPACredentialExchange cred = wallet.get(ci.getReferent());
+                if (cred != null) {
+                    builder.credentialId(cred.getId());
+                    builder.credentialLabel(cred.getLabel());
+                }
+                builder.revoked(revoked.get(ci.getReferent()).join());
+            }
+            return builder.build();
+        }).collect(Collectors.toList());
+    }
+
     public AriesProofExchange.Identifier populateIdentifier(@NonNull PresentationExchangeRecord.Identifier identifier) {
         AriesProofExchange.Identifier.IdentifierBuilder builder = AriesProofExchange.Identifier.builder();
         if (StringUtils.isNotEmpty(identifier.getSchemaId())) {
@@ -90,6 +155,15 @@ public class CredentialInfoResolver {
         return builder.build();
     }
 
+    private Boolean checkRevoked(@NonNull String referent) {
+        try {
+            return ac.credentialRevoked(referent).map(rev -> rev.getRevoked()).orElse(null);
+        } catch (IOException | AriesException e) {
+            log.error("Could not check credential revocation status", e);
+        }
+        return null;
+    }
+
     private String generateIssuerLabel(@NonNull String credentialDefinitionId) {
         String issuerLabel = restrictionsManager.findIssuerLabelByDid(credentialDefinitionId);
         if (issuerLabel == null) {
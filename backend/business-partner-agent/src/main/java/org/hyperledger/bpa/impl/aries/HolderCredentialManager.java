@@ -21,7 +21,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micronaut.context.annotation.Value;
 import io.micronaut.context.event.ApplicationEventPublisher;
 import io.micronaut.core.annotation.Nullable;
-import io.micronaut.scheduling.annotation.Scheduled;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import lombok.AccessLevel;
@@ -54,7 +53,7 @@ import org.hyperledger.bpa.api.exception.PartnerException;
 import org.hyperledger.bpa.config.BPAMessageSource;
 import org.hyperledger.bpa.impl.BaseCredentialManager;
 import org.hyperledger.bpa.impl.activity.LabelStrategy;
-import org.hyperledger.bpa.impl.activity.VPManager;
+import org.hyperledger.bpa.impl.activity.VPResignScheduler;
 import org.hyperledger.bpa.impl.aries.config.SchemaService;
 import org.hyperledger.bpa.impl.notification.CredentialAddedEvent;
 import org.hyperledger.bpa.impl.notification.CredentialOfferedEvent;
@@ -96,7 +95,7 @@ public class HolderCredentialManager extends BaseCredentialManager {
     HolderCredExRepository holderCredExRepo;
 
     @Inject
-    VPManager vpMgmt;
+    VPResignScheduler resignScheduler;
 
     @Inject
     @Setter(AccessLevel.PACKAGE)
@@ -173,7 +172,7 @@ public class HolderCredentialManager extends BaseCredentialManager {
     public void toggleVisibility(UUID id) {
         BPACredentialExchange cred = holderCredExRepo.findById(id).orElseThrow(EntityNotFoundException::new);
         holderCredExRepo.updateIsPublic(id, !cred.checkIfPublic());
-        vpMgmt.recreateVerifiablePresentation();
+        resignScheduler.requestResign();
     }
 
     // credential CRUD operations
@@ -225,7 +224,7 @@ public class HolderCredentialManager extends BaseCredentialManager {
             }
             holderCredExRepo.deleteById(id);
             if (isPublic) {
-                vpMgmt.recreateVerifiablePresentation();
+                resignScheduler.requestResign();
             }
         });
     }
@@ -293,34 +292,6 @@ public class HolderCredentialManager extends BaseCredentialManager {
         return issuer;
     }
 
-    /**
-     * Scheduled task that checks the revocation status of all credentials issued to
-     * this BPA.
-     */
-    @Scheduled(fixedDelay = "5m", initialDelay = "1m")
-    void checkRevocationStatus() {
-        log.trace("Running revocation checks");
-        holderCredExRepo.findNotRevoked().parallelStream().forEach(cred -> {
-            try {
-                log.trace("Running revocation check for credential exchange: {}", cred.getReferent());
-                ac.credentialRevoked(Objects.requireNonNull(cred.getReferent())).ifPresent(isRevoked -> {
-                    if (isRevoked.getRevoked() != null && isRevoked.getRevoked()) {
-                        cred.pushStates(CredentialExchangeState.REVOKED, Instant.now());
-                        holderCredExRepo.updateRevoked(cred.getId(), Boolean.TRUE, cred.getStateToTimestamp());
-                        log.debug("Credential with referent id: {} has been revoked", cred.getReferent());
-                    }
-                });
-            } catch (AriesException e) {
-                if (e.getCode() == 404) {
-                    log.error("aca-py has no credential with referent id: {}", cred.getReferent());
-                    holderCredExRepo.updateReferent(cred.getId(), null);
-                }
-            } catch (Exception e) {
-                log.error("Revocation check failed", e);
-            }
-        });
-    }
-
     // credential event handling
 
     // credential offer event
@@ -18,13 +18,19 @@
 package org.hyperledger.bpa.impl.aries;
 
 import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.scheduling.annotation.Async;
 import io.micronaut.scheduling.annotation.Scheduled;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.hyperledger.bpa.api.PartnerAPI;
 import org.hyperledger.bpa.client.LedgerExplorerClient;
+import org.hyperledger.bpa.client.api.LedgerQueryResult;
+import org.hyperledger.bpa.client.api.LedgerQueryResult.DomainTransaction;
 import org.hyperledger.bpa.controller.api.partner.PartnerCredentialType;
 import org.hyperledger.bpa.impl.util.AriesStringUtil;
 import org.hyperledger.bpa.impl.util.Converter;
@@ -34,8 +40,13 @@ import org.hyperledger.bpa.repository.BPASchemaRepository;
 import org.hyperledger.bpa.repository.PartnerRepository;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Singleton
 public class PartnerCredDefLookup {
 
@@ -61,6 +72,21 @@ public class PartnerCredDefLookup {
     @Inject
     Converter conv;
 
+    @Inject
+    @Named("ledger-lookup")
+    @Setter(AccessLevel.PACKAGE)
+    ExecutorService executor;
+
+    /** last scan result by schema sequence number */
+    private final Map<String, SchemaScan> scans = new ConcurrentHashMap<>();
+
+    private final ReentrantLock scanLock = new ReentrantLock();
+
+    /** unqualified dids of partners that wait for the running scan */
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    private static final int PARTNER_QUERY_CHUNK = 500;
+
     /**
      * Get/filter partners that can issue credentials that are based on the schema's
      * id.
@@ -112,26 +138,21 @@ public class PartnerCredDefLookup {
      * ids on the ledger that match a configured schema. If the did in the
      * credential definition id matches a partner's did, the partner is considered
      * an issuer of credentials that are based on that schema.
+     * <p>
+     * The ledger explorer is queried in parallel, bounded by the ledger-lookup
+     * executor. Schemas whose last credential definition transaction did not
+     * change since the last run are skipped, and only partners whose supported
+     * credentials actually changed are written.
      */
     @Scheduled(cron = "0 15 2 ? * *")
     void lookupTypesForAllPartners() {
-        ledger.ifPresent(l -> {
-            Map<String, List<PartnerCredentialType>> didToTypes = new HashMap<>();
-            schemaRepo.findAll().forEach(
-                    s -> l.queryCredentialDefinitions(s.getSeqNo().toString()).ifPresent(defs -> defs.forEach(def -> {
-                        String did = AriesStringUtil.credDefIdGetDid(def.getCredentialDefinitionId());
-                        if (didToTypes.containsKey(did)) {
-                            didToTypes.get(did).add(def);
-                        } else {
-                            List<PartnerCredentialType> types = new ArrayList<>();
-                            types.add(def);
-                            didToTypes.put(did, types);
-                        }
-                    })));
-            didToTypes.forEach(
-                    (did, types) -> partnerRepo.updateByDid(didPrefix + did,
-                            conv.toMap(new CredentialTypeWrapper(types))));
-        });
+        ledger.ifPresent(l -> runExclusive(() -> {
+            Set<String> changedDids = scanSchemas(l);
+            changedDids.addAll(drainQueued());
+            if (!changedDids.isEmpty()) {
+                updatePartners(changedDids);
+            }
+        }));
     }
 
     @Async
@@ -139,6 +160,158 @@ public class PartnerCredDefLookup {
         lookupTypesForAllPartners();
     }
 
+    /**
+     * Updates the supported credentials of a single, e.g. newly added, partner
+     * from the last scan. Only scans the ledger if there was no scan yet. If a
+     * scan is running the partner is updated once it is done.
+     *
+     * @param did the partners fully qualified did
+     */
+    @Async
+    public void lookupTypesForPartnerAsync(@Nullable String did) {
+        lookupTypesForPartner(did);
+    }
+
+    void lookupTypesForPartner(@Nullable String did) {
+        if (ledger.isEmpty() || did == null || !did.startsWith(didPrefix)) {
+            return;
+        }
+        queued.add(AriesStringUtil.getLastSegment(did));
+        if (scans.isEmpty()) {
+            lookupTypesForAllPartners();
+        } else {
+            runExclusive(() -> updatePartners(drainQueued()));
+        }
+    }
+
+    /**
+     * Runs the task while holding the scan lock. If another thread holds the lock,
+     * the task is skipped and queued partners are left to that thread, which
+     * checks the queue again after it released the lock.
+     */
+    private void runExclusive(Runnable task) {
+        if (!scanLock.tryLock()) {
+            log.debug("Credential definition lookup is already running, queued partners are updated after it");
+            return;
+        }
+        try {
+            task.run();
+        } finally {
+            scanLock.unlock();
+        }
+        if (!queued.isEmpty()) {
+            runExclusive(() -> updatePartners(drainQueued()));
+        }
+    }
+
+    private Set<String> drainQueued() {
+        Set<String> result = new HashSet<>();
+        for (Iterator<String> it = queued.iterator(); it.hasNext();) {
+            result.add(it.next());
+            it.remove();
+        }
+        return result;
+    }
+
+    /**
+     * @return unqualified dids whose credential definitions changed, including the
+     *         issuers of schemas that were removed since the last scan
+     */
+    private Set<String> scanSchemas(LedgerExplorerClient l) {
+        Set<String> changedDids = ConcurrentHashMap.newKeySet();
+        Set<String> seqNos = new HashSet<>();
+        List<CompletableFuture<Void>> queries = new ArrayList<>();
+        schemaRepo.findAll().forEach(s -> {
+            String seqNo = s.getSeqNo().toString();
+            if (seqNos.add(seqNo)) {
+                queries.add(CompletableFuture.runAsync(() -> scanSchema(l, seqNo, changedDids), executor));
+            }
+        });
+        CompletableFuture.allOf(queries.toArray(new CompletableFuture[0])).join();
+        scans.entrySet().removeIf(e -> {
+            if (seqNos.contains(e.getKey())) {
+                return false;
+            }
+            addIssuers(e.getValue(), changedDids);
+            return true;
+        });
+        log.debug("Scanned {} schemas, {} issuers changed", seqNos.size(), changedDids.size());
+        return changedDids;
+    }
+
+    private void scanSchema(LedgerExplorerClient l, String seqNo, Set<String> changedDids) {
+        try {
+            l.queryCredentialDefinitionTransactions(seqNo).ifPresent(md -> {
+                SchemaScan scan = new SchemaScan(lastTransaction(md), LedgerExplorerClient.toCredentialTypes(md));
+                SchemaScan previous = scans.put(seqNo, scan);
+                if (!scan.equals(previous)) {
+                    addIssuers(scan, changedDids);
+                    if (previous != null) {
+                        addIssuers(previous, changedDids);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.error("Could not look up credential definitions for schema: {}", seqNo, e);
+        }
+    }
+
+    private static void addIssuers(SchemaScan scan, Set<String> dids) {
+        scan.getCredentialDefinitions().forEach(
+                def -> dids.add(AriesStringUtil.credDefIdGetDid(def.getCredentialDefinitionId())));
+    }
+
+    /**
+     * Derives the supported credentials of the partners with the given dids from
+     * all scans, partners that are not an issuer of any scanned schema anymore
+     * are reset to an empty list.
+     */
+    private void updatePartners(Set<String> dids) {
+        Map<String, List<PartnerCredentialType>> didToTypes = new HashMap<>();
+        scans.values().forEach(scan -> scan.getCredentialDefinitions().forEach(def -> {
+            String did = AriesStringUtil.credDefIdGetDid(def.getCredentialDefinitionId());
+            if (dids.contains(did)) {
+                didToTypes.computeIfAbsent(did, k -> new ArrayList<>()).add(def);
+            }
+        }));
+        List<String> qualified = dids.stream()
+                .map(did -> didPrefix + did)
+                .collect(Collectors.toList());
+        for (int i = 0; i < qualified.size(); i += PARTNER_QUERY_CHUNK) {
+            partnerRepo.findByDidIn(qualified.subList(i, Math.min(i + PARTNER_QUERY_CHUNK, qualified.size())))
+                    .forEach(p -> {
+                        List<PartnerCredentialType> types = didToTypes.getOrDefault(
+                                StringUtils.removeStart(p.getDid(), didPrefix), new ArrayList<>());
+                        if (types.isEmpty() && p.getSupportedCredentials() == null) {
+                            return;
+                        }
+                        types.sort(Comparator.comparing(PartnerCredentialType::getCredentialDefinitionId));
+                        Map<String, Object> supported = conv.toMap(new CredentialTypeWrapper(types));
+                        if (!supported.equals(p.getSupportedCredentials())) {
+                            partnerRepo.updateByDid(p.getDid(), supported);
+                        }
+                    });
+        }
+    }
+
+    private static Integer lastTransaction(LedgerQueryResult md) {
+        return Optional.ofNullable(md.getResults()).orElse(List.of())
+                .stream()
+                .map(DomainTransaction::getTxnMetadata)
+                .filter(Objects::nonNull)
+                .map(LedgerQueryResult.DomainTransaction.TxnMetadata::getSeqNo)
+                .filter(Objects::nonNull)
+                .max(Integer::compareTo)
+                .orElse(null);
+    }
+
+    @lombok.Value
+    private static class SchemaScan {
+        /** highest ledger sequence number of all credential definitions */
+        Integer lastTransaction;
+        List<PartnerCredentialType> credentialDefinitions;
+    }
+
     @Data
     @AllArgsConstructor
     @NoArgsConstructor
@@ -17,12 +17,15 @@
  */
 package org.hyperledger.bpa.impl.aries;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
 import io.micronaut.context.env.Environment;
 import io.micronaut.core.util.CollectionUtils;
-import io.micronaut.core.util.StringUtils;
 import io.micronaut.scheduling.annotation.Scheduled;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import lombok.extern.slf4j.Slf4j;
 import org.hyperledger.aries.AriesClient;
@@ -31,17 +34,32 @@ import org.hyperledger.aries.api.exception.AriesException;
 import org.hyperledger.aries.api.trustping.PingEvent;
 import org.hyperledger.aries.api.trustping.PingEventState;
 import org.hyperledger.aries.api.trustping.PingRequest;
+import org.hyperledger.bpa.client.AcaPyPriority;
 import org.hyperledger.bpa.model.Partner;
 import org.hyperledger.bpa.repository.PartnerRepository;
 
+import javax.annotation.PostConstruct;
+
 import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
+/**
+ * Trust pings all active connections to detect partners that are not reachable
+ * anymore. Pings are sent in parallel on the bounded trust-ping executor, the
+ * responses of a sweep are evaluated at the start of the next sweep and written
+ * with one update per outcome. Partners that do not respond are pinged less
+ * often, the interval doubles with every missed ping up to max-interval and
+ * goes back to interval with the first response. Updates are chunked so that a
+ * large number of partners does not end up in a single IN list.
+ */
 @Slf4j
 @Singleton
 @Requires(notEnv = { Environment.TEST })
@@ -51,12 +69,33 @@ public class PingManager {
             ConnectionState.ACTIVE, ConnectionState.COMPLETED,
             ConnectionState.PING_RESPONSE, ConnectionState.PING_NO_RESPONSE);
 
+    static final int UPDATE_CHUNK = 1000;
+
     @Inject
     AriesClient aries;
 
     @Inject
     PartnerRepository repo;
 
+    @Inject
+    ReconciliationManager reconciliation;
+
+    @Inject
+    @Named("trust-ping")
+    ExecutorService executor;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Clock clock;
+
+    @Value("${bpa.ping.interval:1m}")
+    Duration interval;
+
+    @Value("${bpa.ping.max-interval:1h}")
+    Duration maxInterval;
+
     private boolean firstRun;
 
     public PingManager() {
@@ -70,65 +109,126 @@ public class PingManager {
     // threadId, state
     private final Map<String, PingEventState> received = new ConcurrentHashMap<>();
 
+    // connectionId, consecutive pings without response
+    private final Map<String, Integer> misses = new ConcurrentHashMap<>();
+
+    // connectionId, next time the connection is due
+    private final Map<String, Instant> nextPing = new ConcurrentHashMap<>();
+
+    private final AtomicReference<Double> responseRate = new AtomicReference<>(0d);
+
+    @PostConstruct
+    void registerMetrics() {
+        registry.gauge("bpa.ping.response-rate", responseRate, AtomicReference::get);
+    }
+
     public void handlePingEvent(PingEvent event) {
         if (event.stateIsResponseReceived()) {
             received.put(event.getThreadId(), event.getState());
         }
     }
 
-    @Scheduled(fixedDelay = "1m", initialDelay = "90s") // init delay needs to be > than aca-py connection timeout
+    @Scheduled(fixedDelay = "${bpa.ping.interval:1m}", initialDelay = "90s") // init delay needs to be > than aca-py connection timeout
     void checkConnections() {
+        Timer.Sample sweep = Timer.start(registry);
         try {
-            List<String> connectionsToPing = repo
+            List<String> connectionIds = repo
                     .findByStateInAndTrustPingTrueAndAriesSupportTrue(statesToFilter)
                     .stream().map(Partner::getConnectionId).collect(Collectors.toList());
-            if (CollectionUtils.isNotEmpty(connectionsToPing)) {
+            if (CollectionUtils.isNotEmpty(connectionIds)) {
                 if (!firstRun) {
                     setNewState();
                 }
-                sendPingToConnections(connectionsToPing);
+                Instant now = clock.instant();
+                nextPing.keySet().retainAll(connectionIds);
+                misses.keySet().retainAll(connectionIds);
+                List<String> connectionsToPing = connectionIds.stream()
+                        .filter(id -> !now.isBefore(nextPing.getOrDefault(id, Instant.MIN)))
+                        .collect(Collectors.toList());
+                sendPingToConnections(connectionsToPing, now);
             }
             if (firstRun) {
                 firstRun = false;
             }
         } catch (Exception e) {
             log.error("Trust ping job failed.", e);
+        } finally {
+            sweep.stop(registry.timer("bpa.ping.sweep"));
         }
     }
 
     private void setNewState() {
+        List<String> responded = new ArrayList<>();
+        List<String> notResponded = new ArrayList<>();
         sent.forEach((k, v) -> {
-            ConnectionState state;
             if (received.containsKey(k)) {
-                state = ConnectionState.PING_RESPONSE;
-                repo.updateStateAndLastSeenByConnectionId(v, state, Instant.now());
+                responded.add(v);
+                misses.remove(v);
             } else {
-                state = ConnectionState.PING_NO_RESPONSE;
-                repo.updateStateByConnectionId(v, state);
+                notResponded.add(v);
+                int missed = misses.merge(v, 1, Integer::sum);
+                nextPing.computeIfPresent(v, (id, next) -> next.plus(backoff(missed)).minus(interval));
             }
         });
+        Instant lastSeen = clock.instant();
+        for (int i = 0; i < responded.size(); i += UPDATE_CHUNK) {
+            repo.updateStateAndLastSeenByConnectionIdIn(
+                    responded.subList(i, Math.min(i + UPDATE_CHUNK, responded.size())),
+                    ConnectionState.PING_RESPONSE, lastSeen);
+        }
+        for (int i = 0; i < notResponded.size(); i += UPDATE_CHUNK) {
+            repo.updateStateByConnectionIdIn(
+                    notResponded.subList(i, Math.min(i + UPDATE_CHUNK, notResponded.size())),
+                    ConnectionState.PING_NO_RESPONSE);
+        }
+        if (!sent.isEmpty()) {
+            responseRate.set((double) responded.size() / sent.size());
+            registry.counter("bpa.ping.responses").increment(responded.size());
+        }
         sent.clear();
         received.clear();
     }
 
-    private void sendPingToConnections(List<String> connectionsToPing) {
-        try {
-            for (String connectionId : connectionsToPing) {
-                log.debug("Sending ping to: {}", connectionId);
-                try {
-                    aries.connectionsSendPing(connectionId, new PingRequest(connectionId))
-                            .ifPresent(resp -> sent.put(resp.getThreadId(), connectionId));
-                } catch (AriesException e) {
-                    if (e.getCode() == 404) {
-                        log.error("Connection id {} exists in the BPA but not in aca-py", connectionId);
-                        repo.updateStateByConnectionId(connectionId, ConnectionState.PING_NO_RESPONSE);
-                    } else {
-                        log.error("Could not send ping request to connection {}", connectionId, e);
+    /**
+     * Interval until the next ping of a connection that missed the last pings
+     *
+     * @param missed number of consecutive pings without response
+     * @return interval doubled per missed ping, capped at max-interval
+     */
+    Duration backoff(int missed) {
+        Duration next = interval.multipliedBy(1L << Math.min(missed, 20));
+        return next.compareTo(maxInterval) > 0 ? maxInterval : next;
+    }
+
+    private void sendPingToConnections(List<String> connectionsToPing, Instant now) {
+        log.debug("Sending ping to {} connections", connectionsToPing.size());
+        CompletableFuture.allOf(connectionsToPing
+                .stream()
+                .map(connectionId -> CompletableFuture.runAsync(() -> {
+                    nextPing.put(connectionId, now.plus(interval));
+                    try {
+                        AcaPyPriority.background(() -> sendPing(connectionId));
+                    } catch (IOException e) {
+                        log.error("Could not ping connection {}, because aca-py is not available", connectionId);
                     }
-                }
+                }, executor))
+                .toArray(CompletableFuture[]::new))
+                .join();
+        registry.counter("bpa.ping.sent").increment(connectionsToPing.size());
+    }
+
+    private void sendPing(String connectionId) throws IOException {
+        log.trace("Sending ping to: {}", connectionId);
+        try {
+            aries.connectionsSendPing(connectionId, new PingRequest(connectionId))
+                    .ifPresent(resp -> sent.put(resp.getThreadId(), connectionId));
+        } catch (AriesException e) {
+            if (e.getCode() == 404) {
+                log.error("Connection id {} exists in the BPA but not in aca-py", connectionId);
+                repo.updateStateByConnectionId(connectionId, ConnectionState.PING_NO_RESPONSE);
+            } else {
+                log.error("Could not send ping request to connection {}", connectionId, e);
             }
-        } catch (IOException e) {
-            log.error("Could not ping active connections, because aca-py is not available", e);
         }
     }
 
@@ -142,25 +242,10 @@ public class PingManager {
 
     @Scheduled(fixedDelay = "30m", initialDelay = "1m")
     void deleteStaleConnections() {
-        List<String> bpaConIds = StreamSupport.stream(repo.findAll().spliterator(), false)
-                .map(Partner::getConnectionId)
-                .filter(StringUtils::isNotEmpty)
-                .collect(Collectors.toList());
-
         try {
-            List<String> acaConIds = aries.connectionIds();
-            List<String> stale = acaConIds
-                    .stream()
-                    .filter(acaId -> bpaConIds
-                            .stream()
-                            .noneMatch(bpaId -> bpaId.equals(acaId)))
-                    .collect(Collectors.toList());
-            for (String conId : stale) {
-                aries.connectionsRemove(conId);
-            }
+            AcaPyPriority.background(() -> reconciliation.removeStaleConnections());
         } catch (IOException e) {
             log.error("aca-py not reachable.", e);
         }
-
     }
 }
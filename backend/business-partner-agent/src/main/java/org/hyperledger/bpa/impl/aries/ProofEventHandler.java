@@ -59,6 +59,7 @@ public class ProofEventHandler {
     BPAMessageSource.DefaultMessageSource msg;
 
     void dispatch(PresentationExchangeRecord proof) {
+        proofManager.invalidateMatchingCredentials(proof.getPresentationExchangeId());
         if (proof.roleIsVerifierAndStateIsVerifiedOrDone() || proof.roleIsProverAndStateIsPresentationAckedOrDone()) {
             handleAckedOrVerified(proof);
         } else if (proof.roleIsProverAndRequestReceived()) {
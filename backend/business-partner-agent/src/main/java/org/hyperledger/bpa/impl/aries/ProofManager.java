@@ -17,12 +17,15 @@
  */
 package org.hyperledger.bpa.impl.aries;
 
+import io.micronaut.cache.SyncCache;
 import io.micronaut.context.annotation.Value;
 import io.micronaut.context.event.ApplicationEventPublisher;
 import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.type.Argument;
 import io.micronaut.core.util.CollectionUtils;
 import io.micronaut.core.util.StringUtils;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -37,6 +40,7 @@ import org.hyperledger.aries.api.present_proof_v2.V20PresExRecordToV1Converter;
 import org.hyperledger.aries.api.present_proof_v2.V20PresSendRequestRequest;
 import org.hyperledger.aries.api.present_proof_v2.V20PresSpecByFormatRequest;
 import org.hyperledger.aries.api.schema.SchemaSendResponse.Schema;
+import org.hyperledger.bpa.api.aries.AriesCredential;
 import org.hyperledger.bpa.api.aries.AriesProofExchange;
 import org.hyperledger.bpa.api.exception.*;
 import org.hyperledger.bpa.config.BPAMessageSource;
@@ -44,6 +48,7 @@ import org.hyperledger.bpa.controller.api.partner.ApproveProofRequest;
 import org.hyperledger.bpa.controller.api.partner.RequestProofRequest;
 import org.hyperledger.bpa.controller.api.proof.PresentationRequestCredentials;
 import org.hyperledger.bpa.impl.activity.DidResolver;
+import org.hyperledger.bpa.impl.aries.config.LedgerArtifactCache;
 import org.hyperledger.bpa.impl.notification.PresentationRequestDeclinedEvent;
 import org.hyperledger.bpa.impl.notification.PresentationRequestSentEvent;
 import org.hyperledger.bpa.impl.prooftemplates.ProofTemplateConversion;
@@ -97,17 +102,24 @@ public class ProofManager {
     @Inject
     CredentialInfoResolver credentialInfoResolver;
 
+    @Inject
+    LedgerArtifactCache ledger;
+
     @Inject
     BPAMessageSource.DefaultMessageSource ms;
 
+    @Inject
+    @Named("matching-credentials-cache")
+    SyncCache<?> matchingCredentialsCache;
+
     // request proof from partner via proof template with exchange version 1
     public void sendPresentProofRequest(@NonNull UUID partnerId, @NonNull @Valid BPAProofTemplate proofTemplate) {
         sendPresentProofRequest(partnerId, proofTemplate, ExchangeVersion.V1);
     }
 
     // request proof from partner via proof template
-    public void sendPresentProofRequest(@NonNull UUID partnerId, @NonNull @Valid BPAProofTemplate proofTemplate,
-            @NonNull ExchangeVersion version) {
+    public Optional<PartnerProof> sendPresentProofRequest(@NonNull UUID partnerId,
+            @NonNull @Valid BPAProofTemplate proofTemplate, @NonNull ExchangeVersion version) {
         try {
             PresentProofRequest proofRequest = proofTemplateConversion.proofRequestViaVisitorFrom(partnerId,
                     proofTemplate);
@@ -116,18 +128,18 @@ public class ProofManager {
             // using null for issuerId and schemaId because the template could have multiple
             // of each.
             if (version.isV1()) {
-                ac.presentProofSendRequest(proofRequest).ifPresent(persistProof(partnerId, proofTemplate));
-            } else {
-                ac.presentProofV2SendRequest(V20PresSendRequestRequest
-                        .builder()
-                        .connectionId(proofRequest.getConnectionId())
-                        .presentationRequest(V20PresSendRequestRequest.V20PresRequestByFormat.builder()
-                                .indy(proofRequest.getProofRequest())
-                                .build())
-                        .build())
-                        .map(V20PresExRecordToV1Converter::toV1)
-                        .ifPresent(persistProof(partnerId, proofTemplate));
+                return ac.presentProofSendRequest(proofRequest)
+                        .map(exchange -> persistProof(partnerId, proofTemplate, exchange));
             }
+            return ac.presentProofV2SendRequest(V20PresSendRequestRequest
+                    .builder()
+                    .connectionId(proofRequest.getConnectionId())
+                    .presentationRequest(V20PresSendRequestRequest.V20PresRequestByFormat.builder()
+                            .indy(proofRequest.getProofRequest())
+                            .build())
+                    .build())
+                    .map(V20PresExRecordToV1Converter::toV1)
+                    .map(exchange -> persistProof(partnerId, proofTemplate, exchange));
         } catch (IOException e) {
             throw new NetworkException(ms.getMessage("acapy.unavailable"), e);
         }
@@ -144,7 +156,7 @@ public class ProofManager {
             }
             if (req.isRequestBySchema()) {
                 String schemaId = req.getRequestBySchema().getSchemaId();
-                final Schema schema = ac.schemasGetById(schemaId)
+                final Schema schema = ledger.getSchema(schemaId)
                         .orElseThrow(() -> new PartnerException(ms
                                 .getMessage("api.schema.restriction.schema.not.found.on.ledger",
                                         Map.of("id", schemaId))));
@@ -186,34 +198,66 @@ public class ProofManager {
 
     private Consumer<PresentationExchangeRecord> persistProof(
             @NonNull UUID partnerId, @Nullable BPAProofTemplate proofTemplate) {
-        return exchange -> {
-            final PartnerProof pp = PartnerProof
-                    .builder()
-                    .partnerId(partnerId)
-                    .state(exchange.getState())
-                    .presentationExchangeId(exchange.getPresentationExchangeId())
-                    .role(exchange.getRole())
-                    .threadId(exchange.getThreadId())
-                    .proofRequest(exchange.getPresentationRequest())
-                    .proofTemplate(proofTemplate)
-                    .exchangeVersion(exchange.getVersion() != null ? exchange.getVersion() : ExchangeVersion.V1)
-                    .pushStateChange(exchange.getState(), Instant.now())
-                    .build();
-            pProofRepo.save(pp);
-            eventPublisher.publishEventAsync(PresentationRequestSentEvent.builder()
-                    .partnerProof(pp)
-                    .build());
-        };
+        return exchange -> persistProof(partnerId, proofTemplate, exchange);
+    }
+
+    private PartnerProof persistProof(@NonNull UUID partnerId, @Nullable BPAProofTemplate proofTemplate,
+            @NonNull PresentationExchangeRecord exchange) {
+        final PartnerProof pp = PartnerProof
+                .builder()
+                .partnerId(partnerId)
+                .state(exchange.getState())
+                .presentationExchangeId(exchange.getPresentationExchangeId())
+                .role(exchange.getRole())
+                .threadId(exchange.getThreadId())
+                .proofRequest(exchange.getPresentationRequest())
+                .proofTemplate(proofTemplate)
+                .exchangeVersion(exchange.getVersion() != null ? exchange.getVersion() : ExchangeVersion.V1)
+                .pushStateChange(exchange.getState(), Instant.now())
+                .build();
+        pProofRepo.save(pp);
+        eventPublisher.publishEventAsync(PresentationRequestSentEvent.builder()
+                .partnerProof(pp)
+                .build());
+        return pp;
     }
 
     // manual proof request flow
     public List<PresentationRequestCredentials> getMatchingCredentials(@NonNull UUID partnerProofId) {
         PartnerProof partnerProof = pProofRepo.findById(partnerProofId).orElseThrow(EntityNotFoundException::new);
-        return getMatchingCredentials(partnerProof.getPresentationExchangeId(), partnerProof.getExchangeVersion())
-                .map(pres -> pres.stream().map(rec -> PresentationRequestCredentials
-                        .from(rec, credentialInfoResolver.populateCredentialInfo(rec.getCredentialInfo())))
-                        .collect(Collectors.toList()))
-                .orElse(List.of());
+        String presExId = partnerProof.getPresentationExchangeId();
+        if (StringUtils.isEmpty(presExId)) {
+            return List.of();
+        }
+        return matchingCredentialsCache.get(presExId, Argument.listOf(PresentationRequestCredentials.class),
+                () -> resolveMatchingCredentials(presExId, partnerProof.getExchangeVersion()));
+    }
+
+    /**
+     * Drops the cached matching credentials of a presentation exchange, called
+     * whenever the state of the exchange changes.
+     *
+     * @param presentationExchangeId aca-py presentation exchange id
+     */
+    public void invalidateMatchingCredentials(@Nullable String presentationExchangeId) {
+        if (StringUtils.isNotEmpty(presentationExchangeId)) {
+            matchingCredentialsCache.invalidate(presentationExchangeId);
+        }
+    }
+
+    private List<PresentationRequestCredentials> resolveMatchingCredentials(
+            @NonNull String presentationExchangeId, @NonNull ExchangeVersion version) {
+        List<org.hyperledger.aries.api.present_proof.PresentationRequestCredentials> matches = getMatchingCredentials(
+                presentationExchangeId, version).orElse(List.of());
+        List<AriesCredential.BPACredentialInfo> infos = credentialInfoResolver.populateCredentialInfo(
+                matches.stream()
+                        .map(org.hyperledger.aries.api.present_proof.PresentationRequestCredentials::getCredentialInfo)
+                        .collect(Collectors.toList()));
+        List<PresentationRequestCredentials> result = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            result.add(PresentationRequestCredentials.from(matches.get(i), infos.get(i)));
+        }
+        return result;
     }
 
     private Optional<List<org.hyperledger.aries.api.present_proof.PresentationRequestCredentials>> getMatchingCredentials(
@@ -244,6 +288,7 @@ public class ProofManager {
                 }
                 proofEx.pushStates(PresentationExchangeState.DECLINED);
                 pProofRepo.update(proofEx);
+                invalidateMatchingCredentials(proofEx.getPresentationExchangeId());
                 sendPresentProofProblemReport(proofEx.getPresentationExchangeId(), message,
                         proofEx.getExchangeVersion());
                 eventPublisher
@@ -0,0 +1,444 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries;
+
+import io.micronaut.context.BeanProvider;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.ExchangeVersion;
+import org.hyperledger.aries.api.connection.ConnectionRecord;
+import org.hyperledger.aries.api.connection.ConnectionState;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
+import org.hyperledger.aries.api.issue_credential_v1.IssueCredentialRecordsFilter;
+import org.hyperledger.aries.api.issue_credential_v1.V1CredentialExchange;
+import org.hyperledger.aries.api.present_proof.PresentProofRecordsFilter;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeRecord;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
+import org.hyperledger.bpa.api.exception.NetworkException;
+import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.client.AcaPyPriority;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.admin.ReconciliationRebuildStatus;
+import org.hyperledger.bpa.controller.api.admin.ReconciliationRebuildStatus.RebuildState;
+import org.hyperledger.bpa.controller.api.admin.ReconciliationReport;
+import org.hyperledger.bpa.impl.activity.LabelStrategy;
+import org.hyperledger.bpa.impl.util.TimeUtil;
+import org.hyperledger.bpa.model.BPACredentialExchange;
+import org.hyperledger.bpa.model.Partner;
+import org.hyperledger.bpa.model.PartnerProof;
+import org.hyperledger.bpa.repository.BPACredentialDefinitionRepository;
+import org.hyperledger.bpa.repository.BPASchemaRepository;
+import org.hyperledger.bpa.repository.IssuerCredExRepository;
+import org.hyperledger.bpa.repository.PartnerProofRepository;
+import org.hyperledger.bpa.repository.PartnerRepository;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Compares connections, credential exchanges and presentation exchanges
+ * between aca-py and the bpa database. Only the ids are loaded on the bpa side
+ * and both sides are compared as hash sets. In case the bpa database was lost
+ * the records that only aca-py knows can be rebuilt: the bpa rows are created
+ * directly from the aca-py records and saved in chunks, no events are fired and
+ * no protocol step is triggered. Only one rebuild runs at a time, in the
+ * background. Stale aca-py connections are only removed while the bpa knows at
+ * least one connection and no rebuild is running, as they are the source of a
+ * rebuild.
+ */
+@Slf4j
+@Singleton
+public class ReconciliationManager {
+
+    private static final String UNKNOWN_DID = "unknown";
+
+    @Inject
+    AriesClient ac;
+
+    @Inject
+    PartnerRepository partnerRepo;
+
+    @Inject
+    IssuerCredExRepository credExRepo;
+
+    @Inject
+    PartnerProofRepository proofRepo;
+
+    @Inject
+    BPASchemaRepository schemaRepo;
+
+    @Inject
+    BPACredentialDefinitionRepository credDefRepo;
+
+    @Inject
+    LabelStrategy labelStrategy;
+
+    // lazy, keeps the ping manager which depends on this out of the proof manager's graph
+    @Inject
+    BeanProvider<ProofManager> proofManager;
+
+    @Inject
+    BPAMessageSource.DefaultMessageSource ms;
+
+    @Inject
+    @Named("reconciliation")
+    ExecutorService executor;
+
+    @Value("${bpa.did.prefix}")
+    String didPrefix;
+
+    @Value("${bpa.reconciliation.rebuild.chunk-size:500}")
+    int chunkSize;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final AtomicReference<ReconciliationRebuildStatus> status = new AtomicReference<>();
+
+    /**
+     * Diff between aca-py and the bpa, only covers v1 exchanges as v2 records
+     * are kept separately by aca-py
+     *
+     * @return {@link ReconciliationReport}
+     */
+    public ReconciliationReport report() {
+        try {
+            return ReconciliationReport
+                    .builder()
+                    .createdAt(Instant.now())
+                    .connections(diff(ac.connectionIds(), partnerRepo.findConnectionIds()))
+                    .credentialExchanges(diff(ids(credentialRecords(), V1CredentialExchange::getCredentialExchangeId),
+                            credExRepo.findV1CredentialExchangeIds()))
+                    .presentationExchanges(diff(ids(proofRecords(), PresentationExchangeRecord::getPresentationExchangeId),
+                            proofRepo.findV1PresentationExchangeIds()))
+                    .build();
+        } catch (IOException e) {
+            throw new NetworkException(ms.getMessage("acapy.unavailable"), e);
+        }
+    }
+
+    /**
+     * Removes all aca-py connections that have no partner in the bpa. If the bpa
+     * does not know any connection, e.g. because its database was lost, or while
+     * a rebuild is running, the stale connections are only logged.
+     *
+     * @return number of removed connections
+     * @throws IOException aca-py not reachable
+     */
+    public int removeStaleConnections() throws IOException {
+        Set<String> bpaConIds = new HashSet<>(partnerRepo.findConnectionIds());
+        List<String> stale = ac.connectionIds()
+                .stream()
+                .filter(acaId -> !bpaConIds.contains(acaId))
+                .collect(Collectors.toList());
+        if (stale.isEmpty()) {
+            return 0;
+        }
+        if (bpaConIds.isEmpty() || rebuilding.get()) {
+            log.warn("Not removing {} aca-py connections that are unknown to the bpa, "
+                    + "check the reconciliation report and rebuild if the database was lost", stale.size());
+            return 0;
+        }
+        for (String conId : stale) {
+            log.debug("Removing stale aca-py connection: {}", conId);
+            ac.connectionsRemove(conId);
+        }
+        return stale.size();
+    }
+
+    /**
+     * Disaster recovery: starts a rebuild in the background that creates bpa
+     * records for all aca-py records that the bpa does not know, see
+     * {@link #rebuildStatus()} for the outcome
+     *
+     * @return {@link ReconciliationRebuildStatus} of the started rebuild
+     * @throws WrongApiUsageException if a rebuild is already running
+     */
+    public ReconciliationRebuildStatus startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new WrongApiUsageException(ms.getMessage("api.reconciliation.rebuild.running"));
+        }
+        ReconciliationRebuildStatus running = ReconciliationRebuildStatus
+                .builder()
+                .state(RebuildState.RUNNING)
+                .startedAt(Instant.now())
+                .build();
+        status.set(running);
+        try {
+            executor.execute(() -> {
+                try {
+                    status.set(running.toBuilder()
+                            .state(RebuildState.DONE)
+                            .report(doRebuild())
+                            .finishedAt(Instant.now())
+                            .build());
+                } catch (RuntimeException e) {
+                    log.error("Rebuild from aca-py failed", e);
+                    status.set(running.toBuilder()
+                            .state(RebuildState.FAILED)
+                            .error(e.getMessage())
+                            .finishedAt(Instant.now())
+                            .build());
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            status.set(null);
+            rebuilding.set(false);
+            throw e;
+        }
+        return running;
+    }
+
+    /**
+     * @return {@link ReconciliationRebuildStatus} of the running or last rebuild,
+     *         empty if there was no rebuild since the start
+     */
+    public Optional<ReconciliationRebuildStatus> rebuildStatus() {
+        return Optional.ofNullable(status.get());
+    }
+
+    /**
+     * Rebuilds in the calling thread
+     *
+     * @return {@link ReconciliationReport} after the rebuild
+     * @throws WrongApiUsageException if a rebuild is already running
+     */
+    ReconciliationReport rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new WrongApiUsageException(ms.getMessage("api.reconciliation.rebuild.running"));
+        }
+        try {
+            return doRebuild();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Connections first so that exchanges find their partner, exchanges without a
+     * matching partner are skipped
+     *
+     * @return {@link ReconciliationReport} after the rebuild, rebuilt is the
+     *         number of created records
+     */
+    private ReconciliationReport doRebuild() {
+        int[] rebuilt = new int[1];
+        try {
+            AcaPyPriority.background(() -> {
+                Set<String> conIds = new HashSet<>(partnerRepo.findConnectionIds());
+                rebuilt[0] += rebuild(ac.connections().orElse(List.of()), ConnectionRecord::getConnectionId,
+                        conIds, this::restoreConnection, partnerRepo::saveAll, null);
+                Set<String> credExIds = new HashSet<>(credExRepo.findV1CredentialExchangeIds());
+                rebuilt[0] += rebuild(credentialRecords(), V1CredentialExchange::getCredentialExchangeId,
+                        credExIds, this::restoreCredentialExchange, credExRepo::saveAll, null);
+                Set<String> presExIds = new HashSet<>(proofRepo.findV1PresentationExchangeIds());
+                rebuilt[0] += rebuild(proofRecords(), PresentationExchangeRecord::getPresentationExchangeId,
+                        presExIds, this::restorePresentationExchange, proofRepo::saveAll, this::restoreProof);
+            });
+        } catch (IOException e) {
+            throw new NetworkException(ms.getMessage("acapy.unavailable"), e);
+        }
+        log.info("Rebuilt {} records from aca-py", rebuilt[0]);
+        ReconciliationReport report = report();
+        report.setRebuilt(rebuilt[0]);
+        return report;
+    }
+
+    private <T, E> int rebuild(@NonNull List<T> records, @NonNull Function<T, String> id,
+            @NonNull Set<String> known, @NonNull Function<T, Optional<E>> restore,
+            @NonNull Function<List<E>, Iterable<E>> saveAll, @Nullable BiConsumer<T, E> saved) {
+        int count = 0;
+        List<T> chunkRecords = new ArrayList<>();
+        List<E> chunk = new ArrayList<>();
+        for (T record : records) {
+            String recordId = id.apply(record);
+            if (recordId == null || known.contains(recordId)) {
+                continue;
+            }
+            try {
+                restore.apply(record).ifPresent(entity -> {
+                    chunkRecords.add(record);
+                    chunk.add(entity);
+                });
+            } catch (RuntimeException e) {
+                log.error("Could not rebuild aca-py record: {}", recordId, e);
+            }
+            if (chunk.size() >= chunkSize) {
+                count += saveChunk(chunkRecords, chunk, saveAll, saved);
+            }
+        }
+        return count + saveChunk(chunkRecords, chunk, saveAll, saved);
+    }
+
+    private <T, E> int saveChunk(@NonNull List<T> records, @NonNull List<E> chunk,
+            @NonNull Function<List<E>, Iterable<E>> saveAll, @Nullable BiConsumer<T, E> saved) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        try {
+            Iterator<E> entities = saveAll.apply(chunk).iterator();
+            for (int i = 0; saved != null && i < records.size(); i++) {
+                saved.accept(records.get(i), entities.next());
+            }
+            return chunk.size();
+        } catch (RuntimeException e) {
+            // the records are still unknown to the bpa, so a repeated rebuild picks them up again
+            log.error("Could not save {} rebuilt records", chunk.size(), e);
+            return 0;
+        } finally {
+            records.clear();
+            chunk.clear();
+        }
+    }
+
+    Optional<Partner> restoreConnection(@NonNull ConnectionRecord record) {
+        ConnectionState state = record.getState() != null ? record.getState() : ConnectionState.INVITATION;
+        return Optional.of(Partner
+                .builder()
+                .ariesSupport(Boolean.TRUE)
+                .connectionId(record.getConnectionId())
+                .invitationMsgId(record.getInvitationMsgId())
+                .did(didPrefix + (StringUtils.isNotEmpty(record.getTheirDid()) ? record.getTheirDid() : UNKNOWN_DID))
+                .alias(StringUtils.trimToNull(record.getAlias()))
+                .label(record.getTheirLabel())
+                .state(state)
+                .pushStateChange(state, TimeUtil.fromISOInstant(record.getUpdatedAt()))
+                .incoming(!record.isOutgoingConnection())
+                .trustPing(Boolean.TRUE)
+                .build());
+    }
+
+    Optional<BPACredentialExchange> restoreCredentialExchange(@NonNull V1CredentialExchange ex) {
+        Optional<Partner> partner = partnerRepo.findByConnectionId(ex.getConnectionId());
+        if (partner.isEmpty()) {
+            log.warn("Not rebuilding credential exchange: {}, no partner with connection: {}",
+                    ex.getCredentialExchangeId(), ex.getConnectionId());
+            return Optional.empty();
+        }
+        CredentialExchangeState state = ex.getState() != null ? ex.getState() : CredentialExchangeState.PROBLEM;
+        V1CredentialExchange.CredentialProposalDict.CredentialProposal proposal = ex.getCredentialProposalDict() != null
+                ? ex.getCredentialProposalDict().getCredentialProposal()
+                : null;
+        BPACredentialExchange.BPACredentialExchangeBuilder b = BPACredentialExchange
+                .builder()
+                .partner(partner.get())
+                .role(ex.getRole())
+                .state(state)
+                .pushStateChange(state, TimeUtil.fromISOInstant(ex.getUpdatedAt()))
+                .exchangeVersion(ExchangeVersion.V1)
+                .credentialExchangeId(ex.getCredentialExchangeId())
+                .threadId(ex.getThreadId())
+                .credentialProposal(proposal)
+                .credentialOffer(proposal)
+                .revRegId(ex.getRevocRegId())
+                .credRevId(ex.getRevocationId())
+                .errorMsg(ex.getErrorMsg());
+        if (ex.getSchemaId() != null) {
+            schemaRepo.findBySchemaId(ex.getSchemaId()).ifPresent(b::schema);
+        }
+        if (ex.getCredentialDefinitionId() != null) {
+            credDefRepo.findByCredentialDefinitionId(ex.getCredentialDefinitionId()).ifPresent(b::credDef);
+        }
+        if (ex.roleIsHolder() && ex.getCredential() != null) {
+            b.credential(ex.getCredential())
+                    .referent(ex.getCredential().getReferent())
+                    .label(labelStrategy.apply(ex.getCredential()))
+                    .isPublic(Boolean.FALSE);
+        }
+        return Optional.of(b.build());
+    }
+
+    Optional<PartnerProof> restorePresentationExchange(@NonNull PresentationExchangeRecord proof) {
+        Optional<Partner> partner = partnerRepo.findByConnectionId(proof.getConnectionId());
+        if (partner.isEmpty()) {
+            log.warn("Not rebuilding presentation exchange: {}, no partner with connection: {}",
+                    proof.getPresentationExchangeId(), proof.getConnectionId());
+            return Optional.empty();
+        }
+        PresentationExchangeState state = proof.getState() != null
+                ? proof.getState()
+                : PresentationExchangeState.DECLINED;
+        return Optional.of(PartnerProof
+                .builder()
+                .partnerId(partner.get().getId())
+                .state(state)
+                .presentationExchangeId(proof.getPresentationExchangeId())
+                .threadId(proof.getThreadId())
+                .role(proof.getRole())
+                .proofRequest(proof.getPresentationRequest())
+                .exchangeVersion(ExchangeVersion.V1)
+                .pushStateChange(state, TimeUtil.fromISOInstant(proof.getUpdatedAt()))
+                .problemReport(StringUtils.truncate(proof.getErrorMsg(), 255))
+                .build());
+    }
+
+    private void restoreProof(@NonNull PresentationExchangeRecord proof, @NonNull PartnerProof pp) {
+        if ((proof.roleIsVerifierAndStateIsVerifiedOrDone() || proof.roleIsProverAndStateIsPresentationAckedOrDone())
+                && proof.getIdentifiers() != null && !proof.getIdentifiers().isEmpty()) {
+            // same as the acked or verified event, stores the revealed attributes
+            try {
+                proofManager.get().handleAckedOrVerifiedProofEvent(proof, pp);
+            } catch (RuntimeException e) {
+                log.error("Could not restore the proof of presentation exchange: {}",
+                        proof.getPresentationExchangeId(), e);
+            }
+        }
+    }
+
+    private List<V1CredentialExchange> credentialRecords() throws IOException {
+        return ac.issueCredentialRecords(IssueCredentialRecordsFilter.builder().build()).orElse(List.of());
+    }
+
+    private List<PresentationExchangeRecord> proofRecords() throws IOException {
+        return ac.presentProofRecords(PresentProofRecordsFilter.builder().build()).orElse(List.of());
+    }
+
+    private static <T> List<String> ids(@NonNull List<T> records, @NonNull Function<T, String> id) {
+        return records.stream().map(id).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    static ReconciliationReport.Diff diff(@NonNull List<String> acaPy, @NonNull List<String> bpa) {
+        Set<String> acaPySet = new HashSet<>(acaPy);
+        Set<String> bpaSet = new HashSet<>(bpa);
+        return ReconciliationReport.Diff
+                .builder()
+                .acaPy(acaPySet.size())
+                .bpa(bpaSet.size())
+                .onlyInAcaPy(acaPySet.stream().filter(id -> !bpaSet.contains(id)).sorted()
+                        .collect(Collectors.toList()))
+                .onlyInBpa(bpaSet.stream().filter(id -> !acaPySet.contains(id)).sorted()
+                        .collect(Collectors.toList()))
+                .build();
+    }
+}
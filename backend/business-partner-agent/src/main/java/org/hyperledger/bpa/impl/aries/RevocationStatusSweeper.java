@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.exception.AriesException;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
+import org.hyperledger.bpa.client.AcaPyPriority;
+import org.hyperledger.bpa.model.BPACredentialExchange;
+import org.hyperledger.bpa.repository.HolderCredExRepository;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Scheduled task that checks the revocation status of all credentials issued to
+ * this BPA. Only revocable credentials that are due are checked, grouped by
+ * their revocation registry so that aca-py resolves the registry delta of each
+ * registry once per sweep. Registries are checked in parallel on the bounded
+ * revocation-sweep executor, which is separate from the revocation-check
+ * executor of the interactive credential matching, and every aca-py call runs
+ * with background priority. The check interval of a credential doubles with
+ * every unchanged check, starting at check-interval and capped at
+ * max-check-interval.
+ */
+@Slf4j
+@Singleton
+public class RevocationStatusSweeper {
+
+    @Inject
+    AriesClient ac;
+
+    @Inject
+    HolderCredExRepository holderCredExRepo;
+
+    @Inject
+    @Named("revocation-sweep")
+    ExecutorService executor;
+
+    @Inject
+    Clock clock;
+
+    @Value("${bpa.revocation.check-interval:5m}")
+    Duration checkInterval;
+
+    @Value("${bpa.revocation.max-check-interval:6h}")
+    Duration maxCheckInterval;
+
+    @Scheduled(fixedDelay = "${bpa.revocation.check-interval:5m}", initialDelay = "1m")
+    void checkRevocationStatus() {
+        log.trace("Running revocation checks");
+        Map<String, List<BPACredentialExchange>> byRegistry = holderCredExRepo
+                .findRevocationCheckDue(clock.instant())
+                .stream()
+                .filter(c -> c.getCredential() != null && c.getCredential().getRevRegId() != null)
+                .collect(Collectors.groupingBy(c -> c.getCredential().getRevRegId()));
+        if (byRegistry.isEmpty()) {
+            return;
+        }
+        log.debug("Checking revocation status of credentials in {} registries", byRegistry.size());
+        CompletableFuture.allOf(byRegistry.entrySet()
+                .stream()
+                .map(e -> CompletableFuture.runAsync(() -> checkRegistry(e.getKey(), e.getValue()), executor))
+                .toArray(CompletableFuture[]::new))
+                .join();
+    }
+
+    private void checkRegistry(@NonNull String revRegId, @NonNull List<BPACredentialExchange> credentials) {
+        log.trace("Running revocation checks for registry: {}, credentials: {}", revRegId, credentials.size());
+        for (BPACredentialExchange cred : credentials) {
+            try {
+                AcaPyPriority.background(() -> checkCredential(cred));
+            } catch (AriesException e) {
+                if (e.getCode() == 404) {
+                    log.error("aca-py has no credential with referent id: {}", cred.getReferent());
+                    holderCredExRepo.updateReferent(cred.getId(), null);
+                } else {
+                    log.error("Revocation check failed", e);
+                }
+            } catch (Exception e) {
+                log.error("Revocation check failed", e);
+            }
+        }
+    }
+
+    private void checkCredential(@NonNull BPACredentialExchange cred) throws IOException {
+        log.trace("Running revocation check for credential exchange: {}", cred.getReferent());
+        Boolean revoked = ac.credentialRevoked(Objects.requireNonNull(cred.getReferent()))
+                .map(r -> r.getRevoked())
+                .orElse(null);
+        Instant now = clock.instant();
+        if (Boolean.TRUE.equals(revoked)) {
+            cred.pushStates(CredentialExchangeState.REVOKED, now);
+            holderCredExRepo.updateRevoked(cred.getId(), Boolean.TRUE, cred.getStateToTimestamp());
+            log.debug("Credential with referent id: {} has been revoked", cred.getReferent());
+        } else {
+            holderCredExRepo.updateRevocationCheck(cred.getId(), now, now.plus(nextInterval(cred)));
+        }
+    }
+
+    /**
+     * Doubles the previous check interval of the credential, bounded by
+     * check-interval and max-check-interval
+     *
+     * @param cred {@link BPACredentialExchange}
+     * @return {@link Duration} until the next check
+     */
+    Duration nextInterval(@NonNull BPACredentialExchange cred) {
+        if (cred.getRevocationCheckedAt() == null || cred.getRevocationNextCheckAt() == null) {
+            return checkInterval;
+        }
+        Duration next = Duration.between(cred.getRevocationCheckedAt(), cred.getRevocationNextCheckAt())
+                .multipliedBy(2);
+        if (next.compareTo(checkInterval) < 0) {
+            return checkInterval;
+        }
+        return next.compareTo(maxCheckInterval) > 0 ? maxCheckInterval : next;
+    }
+}
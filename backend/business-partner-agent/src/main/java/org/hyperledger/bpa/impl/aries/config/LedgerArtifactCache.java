@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.config;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import io.micronaut.data.exceptions.DataAccessException;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.schema.SchemaSendResponse;
+import org.hyperledger.aries.config.GsonConfig;
+import org.hyperledger.bpa.model.LedgerArtifact;
+import org.hyperledger.bpa.model.LedgerArtifact.ArtifactType;
+import org.hyperledger.bpa.repository.LedgerArtifactRepository;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write once cache for ledger artifacts. Everything that was read from the
+ * ledger once is stored in the ledger_artifact table and kept in an in memory
+ * index, so the ledger is only asked for artifacts that were never seen before,
+ * even after a restart.
+ */
+@Slf4j
+@Singleton
+public class LedgerArtifactCache {
+
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() {
+    }.getType();
+
+    @Inject
+    LedgerArtifactRepository artifactRepo;
+
+    @Inject
+    AriesClient ac;
+
+    private final Gson gson = GsonConfig.defaultConfig();
+
+    private final Map<String, SchemaSendResponse.Schema> schemas = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    /**
+     * Get a schema from the local cache, or from the ledger if it was never seen
+     * before
+     *
+     * @param schemaId schema id or sequence number
+     * @return {@link SchemaSendResponse.Schema}
+     * @throws IOException if aca-py is not reachable
+     */
+    public Optional<SchemaSendResponse.Schema> getSchema(@NonNull String schemaId) throws IOException {
+        loadIndex();
+        SchemaSendResponse.Schema schema = schemas.get(schemaId);
+        if (schema != null) {
+            return Optional.of(schema);
+        }
+        Optional<SchemaSendResponse.Schema> fromLedger = ac.schemasGetById(schemaId);
+        fromLedger.ifPresent(s -> {
+            persist(s);
+            schemas.put(schemaId, s);
+            if (s.getId() != null) {
+                schemas.put(s.getId(), s);
+            }
+        });
+        return fromLedger;
+    }
+
+    private void persist(SchemaSendResponse.Schema schema) {
+        if (schema.getId() == null || artifactRepo.existsById(schema.getId())) {
+            return;
+        }
+        try {
+            artifactRepo.save(LedgerArtifact.builder()
+                    .id(schema.getId())
+                    .type(ArtifactType.SCHEMA)
+                    .content(gson.fromJson(gson.toJson(schema), MAP_TYPE))
+                    .build());
+        } catch (DataAccessException e) {
+            // another instance stored it in the meantime
+            log.debug("Schema {} is already stored", schema.getId());
+        }
+    }
+
+    private void loadIndex() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    artifactRepo.findByType(ArtifactType.SCHEMA).forEach(a -> schemas.putIfAbsent(
+                            a.getId(), gson.fromJson(gson.toJson(a.getContent()), SchemaSendResponse.Schema.class)));
+                    log.debug("Loaded {} ledger schemas from the local cache", schemas.size());
+                    loaded = true;
+                }
+            }
+        }
+    }
+}
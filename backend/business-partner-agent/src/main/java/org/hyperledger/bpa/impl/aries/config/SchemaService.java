@@ -22,6 +22,7 @@ import io.micronaut.core.annotation.Nullable;
 import io.micronaut.core.util.CollectionUtils;
 import io.micronaut.data.exceptions.DataAccessException;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -45,6 +46,8 @@ import org.hyperledger.bpa.repository.BPASchemaRepository;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 @Slf4j
 @Singleton
@@ -56,6 +59,9 @@ public class SchemaService {
     @Inject
     AriesClient ac;
 
+    @Inject
+    LedgerArtifactCache ledger;
+
     @Inject
     RestrictionsManager restrictionsManager;
 
@@ -68,6 +74,10 @@ public class SchemaService {
     @Inject
     BPAMessageSource.DefaultMessageSource ms;
 
+    @Inject
+    @Named("ledger-lookup")
+    ExecutorService ledgerExecutor;
+
     public SchemaAPI createSchema(@NonNull String schemaName, @NonNull String schemaVersion,
             @NonNull List<String> attributes, @NonNull String schemaLabel, String defaultAttributeName) {
         SchemaAPI result;
@@ -125,7 +135,7 @@ public class SchemaService {
         }
 
         try {
-            Optional<SchemaSendResponse.Schema> ariesSchema = ac.schemasGetById(sId);
+            Optional<SchemaSendResponse.Schema> ariesSchema = ledger.getSchema(sId);
             if (ariesSchema.isPresent()) {
                 BPASchema dbS = BPASchema.builder()
                         .label(label != null ? label : AriesStringUtil.schemaGetName(schemaId))
@@ -186,12 +196,10 @@ public class SchemaService {
         return Optional.empty();
     }
 
-    @Cacheable("schema-attr-cache")
     public Set<String> getSchemaAttributeNames(@NonNull String schemaId) {
         Set<String> result = new LinkedHashSet<>();
         try {
-            final Optional<SchemaSendResponse.Schema> schema = ac
-                    .schemasGetById(schemaId);
+            final Optional<SchemaSendResponse.Schema> schema = ledger.getSchema(schemaId);
             if (schema.isPresent()) {
                 result = new LinkedHashSet<>(schema.get().getAttrNames());
             }
@@ -214,22 +222,32 @@ public class SchemaService {
         return result;
     }
 
+    /**
+     * Adds the configured schemas that are not in the db yet, the ledger is queried
+     * in parallel on the ledger-lookup executor
+     */
     public void resetWriteOnlySchemas() {
+        List<SchemaConfig> missing = new ArrayList<>();
         for (SchemaConfig schema : schemas) {
             schemaRepo.findBySchemaId(schema.getId()).ifPresentOrElse(
                     dbSchema -> log.debug("Schema with id {} already exists", schema.getId()),
-                    () -> {
-                        try {
-                            SchemaAPI schemaAPI = addSchema(schema.getId(), schema.getLabel(),
-                                    schema.getDefaultAttributeName());
-                            if (schemaAPI != null) {
-                                restrictionsManager.addRestriction(
-                                        schemaAPI.getId(), schema.getRestrictions());
-                            }
-                        } catch (Exception e) {
-                            log.warn("Could not add schema id: {}", schema.getId(), e);
-                        }
-                    });
+                    () -> missing.add(schema));
         }
+        CompletableFuture.allOf(missing
+                .stream()
+                .map(schema -> CompletableFuture.runAsync(() -> {
+                    try {
+                        SchemaAPI schemaAPI = addSchema(schema.getId(), schema.getLabel(),
+                                schema.getDefaultAttributeName());
+                        if (schemaAPI != null) {
+                            restrictionsManager.addRestriction(
+                                    schemaAPI.getId(), schema.getRestrictions());
+                        }
+                    } catch (Exception e) {
+                        log.warn("Could not add schema id: {}", schema.getId(), e);
+                    }
+                }, ledgerExecutor))
+                .toArray(CompletableFuture[]::new))
+                .join();
     }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.messaging;
+
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.hyperledger.bpa.impl.WebhookRegistry;
+
+import java.util.UUID;
+
+/**
+ * Keeps the {@link WebhookRegistry} of all bpa instances in sync. Every change
+ * to a webhook is published to a channel with the id of the instance that made
+ * the change, all other instances then drop their local view.
+ */
+@Slf4j
+@Singleton
+@Requires(property = "micronaut.session.http.redis.enabled")
+public class RedisWebhookRegistrySync {
+
+    private static final String CHANNEL = "bpa-webhooks";
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Inject
+    WebhookRegistry registry;
+
+    @Inject
+    StatefulRedisConnection<String, String> redis;
+
+    @Inject
+    StatefulRedisPubSubConnection<String, String> pubSub;
+
+    @EventListener
+    public void onServiceStartedEvent(@SuppressWarnings("unused") StartupEvent startEvent) {
+        pubSub.reactive().subscribe(CHANNEL).subscribe();
+        pubSub.reactive().observeChannels()
+                .filter(pm -> StringUtils.equals(pm.getChannel(), CHANNEL))
+                .filter(pm -> !StringUtils.equals(pm.getMessage(), instanceId))
+                .doOnNext(pm -> registry.invalidateLocal())
+                .doOnError(e -> log.error("Error in webhook registry observer", e))
+                .subscribe();
+    }
+
+    @EventListener
+    public void onWebhooksChanged(@SuppressWarnings("unused") WebhookRegistry.WebhooksChanged event) {
+        try {
+            redis.reactive().publish(CHANNEL, instanceId).block();
+        } catch (Exception e) {
+            log.error("Could not publish webhook change", e);
+        }
+    }
+}
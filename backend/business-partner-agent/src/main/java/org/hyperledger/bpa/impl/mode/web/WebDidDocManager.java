@@ -27,6 +27,7 @@ import org.hyperledger.aries.api.resolver.DIDDocument;
 import org.hyperledger.bpa.api.ApiConstants;
 import org.hyperledger.bpa.config.runtime.RequiresWeb;
 import org.hyperledger.bpa.impl.DidDocManager;
+import org.hyperledger.bpa.impl.PublicDocumentCache;
 import org.hyperledger.bpa.impl.activity.Identity;
 import org.hyperledger.bpa.impl.util.Converter;
 import org.hyperledger.bpa.model.DidDocWeb;
@@ -58,6 +59,9 @@ public class WebDidDocManager implements DidDocManager {
     @Inject
     Identity id;
 
+    @Inject
+    PublicDocumentCache publicDocuments;
+
     public void createDidDocument(String scheme, String host) {
 
         String verkey = null;
@@ -98,6 +102,7 @@ public class WebDidDocManager implements DidDocManager {
             didRepo.findDidDocSingle().ifPresentOrElse(
                     dd -> didRepo.updateDidDoc(dd.getId(), didDocDb),
                     () -> didRepo.save(DidDocWeb.builder().didDoc(didDocDb).build()));
+            publicDocuments.invalidateDidDocument();
         } catch (IllegalArgumentException e) {
             log.error("Could not convert did document", e);
         }
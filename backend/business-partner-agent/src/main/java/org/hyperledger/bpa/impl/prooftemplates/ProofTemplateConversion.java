@@ -17,11 +17,15 @@
  */
 package org.hyperledger.bpa.impl.prooftemplates;
 
+import com.google.gson.Gson;
+import io.micronaut.cache.SyncCache;
 import io.micronaut.core.annotation.NonNull;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import lombok.extern.slf4j.Slf4j;
 import org.hyperledger.aries.api.present_proof.PresentProofRequest;
+import org.hyperledger.aries.config.GsonConfig;
 import org.hyperledger.bpa.api.aries.SchemaAPI;
 import org.hyperledger.bpa.api.exception.PartnerException;
 import org.hyperledger.bpa.config.BPAMessageSource;
@@ -36,15 +40,29 @@ import org.jetbrains.annotations.NotNull;
 
 import javax.validation.Valid;
 import java.time.Clock;
+import java.time.Instant;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
+/**
+ * Converts a {@link BPAProofTemplate} into an aca-py proof request. Templates
+ * can not be changed once stored, so the converted request is kept as an
+ * immutable json skeleton per template id and creation time. Ids of removed
+ * templates are never reused, so their entries simply expire. Only the
+ * non-revocation timestamps are set per request, the nonce is generated by
+ * aca-py.
+ */
 @Slf4j
 @Singleton
 public class ProofTemplateConversion {
 
+    private static final Gson GSON = GsonConfig.defaultConfig();
+
     @Inject
     PartnerRepository partnerRepo;
 
@@ -57,6 +75,10 @@ public class ProofTemplateConversion {
     @Inject
     BPAMessageSource.DefaultMessageSource ms;
 
+    @Inject
+    @Named("proof-template-cache")
+    SyncCache<?> templateCache;
+
     @NonNull
     public PresentProofRequest proofRequestViaVisitorFrom(@NonNull UUID partnerId,
             @NonNull @Valid BPAProofTemplate proofTemplate) {
@@ -67,21 +89,76 @@ public class ProofTemplateConversion {
             throw new PartnerException(ms.getMessage("api.partner.no.connection"));
         }
 
+        return PresentProofRequest.builder()
+                .proofRequest(proofRequestFrom(proofTemplate))
+                .connectionId(partner.getConnectionId())
+                .build();
+    }
+
+    private PresentProofRequest.ProofRequest proofRequestFrom(@NonNull BPAProofTemplate proofTemplate) {
+        if (proofTemplate.getId() == null) {
+            return compile(proofTemplate, this::resolveLedgerSchemaId);
+        }
+        String skeleton = templateCache.get(proofTemplate.getId(), CompiledProofTemplate.class)
+                .filter(c -> Objects.equals(c.getCreatedAt(), proofTemplate.getCreatedAt()))
+                .map(CompiledProofTemplate::getProofRequest)
+                .orElse(null);
+        if (skeleton == null) {
+            AtomicBoolean complete = new AtomicBoolean(true);
+            PresentProofRequest.ProofRequest compiled = compile(proofTemplate, databaseSchemaId -> {
+                Optional<String> ledgerSchemaId = resolveLedgerSchemaId(databaseSchemaId);
+                complete.compareAndSet(true, ledgerSchemaId.isPresent());
+                return ledgerSchemaId;
+            });
+            if (!complete.get()) {
+                // do not keep a request that misses attribute groups of unknown schemas
+                return compiled;
+            }
+            skeleton = GSON.toJson(compiled);
+            templateCache.put(proofTemplate.getId(),
+                    new CompiledProofTemplate(proofTemplate.getCreatedAt(), skeleton));
+        }
+        return withCurrentNonRevocation(GSON.fromJson(skeleton, PresentProofRequest.ProofRequest.class));
+    }
+
+    private PresentProofRequest.ProofRequest compile(@NonNull BPAProofTemplate proofTemplate,
+            @NonNull Function<String, Optional<String>> resolveLedgerSchemaId) {
         ProofTemplateElementVisitor proofTemplateElementVisitor = new ProofTemplateElementVisitor(
-                this::resolveLedgerSchemaId,
+                resolveLedgerSchemaId,
                 new RevocationTimeStampProvider(clock));
 
         proofTemplateElementVisitor.visit(proofTemplate);
         proofTemplate.streamAttributeGroups()
                 .forEach(proofTemplateElementVisitor::visit);
         proofTemplate.streamAttributeGroups()
-                .flatMap(this::pairSchemaIdWithAttributes)
+                .flatMap(ag -> pairSchemaIdWithAttributes(ag, resolveLedgerSchemaId))
                 .forEach(proofTemplateElementVisitor::visit);
+        return proofTemplateElementVisitor.getResult();
+    }
 
-        return PresentProofRequest.builder()
-                .proofRequest(proofTemplateElementVisitor.getResult())
-                .connectionId(partner.getConnectionId())
+    /**
+     * Sets the non-revocation interval of all requested attributes and predicates
+     * that ask for it to the current time.
+     */
+    private PresentProofRequest.ProofRequest withCurrentNonRevocation(
+            @NonNull PresentProofRequest.ProofRequest proofRequest) {
+        Long now = new RevocationTimeStampProvider(clock).get();
+        PresentProofRequest.ProofRequest.ProofNonRevoked nonRevoked = PresentProofRequest.ProofRequest.ProofNonRevoked
+                .builder()
+                .from(now)
+                .to(now)
                 .build();
+        if (proofRequest.getRequestedAttributes() != null) {
+            proofRequest.getRequestedAttributes().values().stream()
+                    .filter(a -> a.getNonRevoked() != null)
+                    .forEach(a -> a.setNonRevoked(nonRevoked));
+        }
+        if (proofRequest.getRequestedPredicates() != null) {
+            proofRequest.getRequestedPredicates().values().stream()
+                    .filter(p -> p.getNonRevoked() != null)
+                    .forEach(p -> p.setNonRevoked(nonRevoked));
+        }
+        return proofRequest;
     }
 
     private Optional<String> resolveLedgerSchemaId(String databaseSchemaId) {
@@ -89,8 +166,9 @@ public class ProofTemplateConversion {
     }
 
     @NotNull
-    private Stream<Pair<String, BPAAttribute>> pairSchemaIdWithAttributes(@NonNull BPAAttributeGroup ag) {
-        Optional<Pair.PairBuilder<String, BPAAttribute>> pairBuilder = resolveLedgerSchemaId(ag.getSchemaId())
+    private Stream<Pair<String, BPAAttribute>> pairSchemaIdWithAttributes(@NonNull BPAAttributeGroup ag,
+            @NonNull Function<String, Optional<String>> resolveLedgerSchemaId) {
+        Optional<Pair.PairBuilder<String, BPAAttribute>> pairBuilder = resolveLedgerSchemaId.apply(ag.getSchemaId())
                 .map(Pair.<String, BPAAttribute>builder()::left);
         return pairBuilder.map(
                 pair -> ag.getAttributes().stream()
@@ -99,4 +177,9 @@ public class ProofTemplateConversion {
                 .orElse(Stream.empty());
     }
 
+    @lombok.Value
+    private static class CompiledProofTemplate {
+        Instant createdAt;
+        String proofRequest;
+    }
 }
@@ -24,10 +24,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import io.micronaut.cache.SyncCache;
 import io.micronaut.context.annotation.Value;
 import io.micronaut.core.annotation.Nullable;
 import io.micronaut.core.util.CollectionUtils;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
@@ -53,6 +55,8 @@ import org.hyperledger.bpa.model.Partner;
 import org.hyperledger.bpa.model.PartnerProof;
 
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -75,6 +79,9 @@ public class Converter {
     public static final TypeReference<Map<String, PresentationExchangeRecord.RevealedAttributeGroup>> ATTRIBUTE_GROUP = new TypeReference<>() {
     };
 
+    private static final TypeReference<List<PartnerCredential>> PARTNER_CREDENTIALS = new TypeReference<>() {
+    };
+
     @Value("${bpa.did.prefix}")
     private String ledgerPrefix;
 
@@ -94,15 +101,62 @@ public class Converter {
     @Inject
     BPAMessageSource.DefaultMessageSource msg;
 
+    @Inject
+    @Named("partner-api-cache")
+    SyncCache<?> partnerApiCache;
+
     public PartnerAPI toAPIObject(@NonNull Partner p) {
         PartnerAPI result = PartnerAPI.from(p);
         if (p.getVerifiablePresentation() != null) {
-            result = toAPIObject(fromMap(p.getVerifiablePresentation(), VP_TYPEREF));
-            PartnerAPI.copyFrom(result, p);
+            PartnerAPI vp = presentationToAPIObject(p);
+            result.setVerifiablePresentation(vp.getVerifiablePresentation())
+                    .setCredential(vp.getCredential());
+        }
+        return result;
+    }
+
+    /**
+     * Resolving the credential labels of the partners verifiable presentation is
+     * the expensive part of the conversion, so the resulting credentials are kept
+     * per partner as long as the partners updated_at timestamp does not change.
+     * They are cached serialised, every caller gets its own copy and can not
+     * change the cached credentials.
+     *
+     * @param p {@link Partner} with a verifiable presentation
+     * @return {@link PartnerAPI} that only holds the presentation and credentials
+     */
+    private PartnerAPI presentationToAPIObject(@NonNull Partner p) {
+        if (partnerApiCache == null || p.getId() == null || p.getUpdatedAt() == null) {
+            return toAPIObject(fromMap(p.getVerifiablePresentation(), VP_TYPEREF));
+        }
+        Optional<PresentationProjection> cached = partnerApiCache.get(p.getId(), PresentationProjection.class);
+        if (cached.isPresent() && p.getUpdatedAt().equals(cached.get().getUpdatedAt())) {
+            try {
+                return PartnerAPI.builder()
+                        .verifiablePresentation(fromMap(p.getVerifiablePresentation(), VP_TYPEREF))
+                        .credential(mapper.readValue(cached.get().getCredentials(), PARTNER_CREDENTIALS))
+                        .build();
+            } catch (IOException e) {
+                log.warn("Could not read cached credentials of partner: {}", p.getId(), e);
+            }
         }
+        PartnerAPI result = toAPIObject(fromMap(p.getVerifiablePresentation(), VP_TYPEREF));
+        writeValueAsBytes(result.getCredential()).ifPresent(
+                credentials -> partnerApiCache.put(p.getId(), new PresentationProjection(p.getUpdatedAt(), credentials)));
         return result;
     }
 
+    /**
+     * Drops the cached presentation projection of a partner
+     *
+     * @param partnerId partner id
+     */
+    public void invalidatePartner(@NonNull UUID partnerId) {
+        if (partnerApiCache != null) {
+            partnerApiCache.invalidate(partnerId);
+        }
+    }
+
     public PartnerAPI toAPIObject(@NonNull VerifiablePresentation<VerifiableIndyCredential> partner) {
         List<PartnerCredential> pc = new ArrayList<>();
         if (partner.getVerifiableCredential() != null) {
@@ -222,6 +276,15 @@ public class Converter {
         return Optional.empty();
     }
 
+    public Optional<byte[]> writeValueAsBytes(Object value) {
+        try {
+            return Optional.of(mapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialise to bytes: {}", value, e);
+        }
+        return Optional.empty();
+    }
+
     public AriesProofExchange toAPIObject(@NonNull PartnerProof p) {
         AriesProofExchange proof = AriesProofExchange.from(p);
 
@@ -321,4 +384,11 @@ public class Converter {
         }
         return schemaId;
     }
+
+    @lombok.Value
+    private static class PresentationProjection {
+        Instant updatedAt;
+        /** serialised list of {@link PartnerCredential} */
+        byte[] credentials;
+    }
 }
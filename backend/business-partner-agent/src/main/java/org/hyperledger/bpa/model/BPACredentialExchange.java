@@ -135,6 +135,9 @@ public class BPACredentialExchange
     /** if the credential has been revoked */
     @Nullable
     private Boolean revoked;
+    /** revoked in aca-py, but the revocation is not yet published to the ledger */
+    @Nullable
+    private Boolean revocationPending;
 
     // holder only
     @Nullable
@@ -144,6 +147,12 @@ public class BPACredentialExchange
     /** aca-py credential identifier */
     @Nullable
     private String referent;
+    /** last time the revocation status was checked */
+    @Nullable
+    private Instant revocationCheckedAt;
+    /** next time the revocation status is due to be checked */
+    @Nullable
+    private Instant revocationNextCheckAt;
 
     public boolean checkIfPublic() {
         return isPublic != null && isPublic;
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.model;
+
+import io.micronaut.data.annotation.AutoPopulated;
+import io.micronaut.data.annotation.DateCreated;
+import io.micronaut.data.annotation.DateUpdated;
+import io.micronaut.data.annotation.TypeDef;
+import io.micronaut.data.model.DataType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hyperledger.bpa.controller.api.bulk.BulkJobState;
+import org.hyperledger.bpa.controller.api.bulk.BulkJobType;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A long running job that starts the same exchange with many partners, the per
+ * partner progress is tracked in {@link BulkJobItem}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "bulk_job")
+public class BulkJob {
+
+    @Id
+    @AutoPopulated
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    private BulkJobType type;
+
+    @Enumerated(EnumType.STRING)
+    private BulkJobState state;
+
+    /** type specific job parameters, e.g. the proof template id */
+    @TypeDef(type = DataType.JSON)
+    private Map<String, Object> request;
+
+    @DateCreated
+    private Instant createdAt;
+
+    @DateUpdated
+    private Instant updatedAt;
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.model;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.annotation.AutoPopulated;
+import io.micronaut.data.annotation.DateUpdated;
+import io.micronaut.data.annotation.TypeDef;
+import io.micronaut.data.model.DataType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hyperledger.bpa.controller.api.bulk.BulkJobItemState;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "bulk_job_item")
+public class BulkJobItem {
+
+    @Id
+    @AutoPopulated
+    private UUID id;
+
+    private UUID jobId;
+
+    private UUID partnerId;
+
+    @Enumerated(EnumType.STRING)
+    private BulkJobItemState state;
+
+    /** item specific parameters, e.g. the attributes of a credential offer */
+    @Nullable
+    @TypeDef(type = DataType.JSON)
+    private Map<String, Object> payload;
+
+    /** aca-py exchange id */
+    @Nullable
+    private String exchangeId;
+
+    @Nullable
+    private String errorMsg;
+
+    @DateUpdated
+    private Instant updatedAt;
+}
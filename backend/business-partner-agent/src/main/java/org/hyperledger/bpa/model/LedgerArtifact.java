@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.model;
+
+import io.micronaut.data.annotation.DateCreated;
+import io.micronaut.data.annotation.TypeDef;
+import io.micronaut.data.model.DataType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Local copy of a ledger artifact, e.g. a schema. Ledger artifacts can not be
+ * changed once they are written, so rows are only ever inserted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class LedgerArtifact {
+
+    public enum ArtifactType {
+        SCHEMA
+    }
+
+    /**
+     * The ledger id, e.g. the schema id
+     */
+    @Id
+    private String id;
+
+    private ArtifactType type;
+
+    @DateCreated
+    private Instant createdAt;
+
+    /**
+     * The artifact as returned by aca-py
+     */
+    @TypeDef(type = DataType.JSON)
+    private Map<String, Object> content;
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.repository;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.annotation.Id;
+import io.micronaut.data.annotation.Query;
+import io.micronaut.data.jdbc.annotation.JdbcRepository;
+import io.micronaut.data.model.query.builder.sql.Dialect;
+import io.micronaut.data.repository.CrudRepository;
+import org.hyperledger.bpa.controller.api.bulk.BulkJobItemState;
+import org.hyperledger.bpa.model.BulkJobItem;
+
+import java.util.List;
+import java.util.UUID;
+
+@JdbcRepository(dialect = Dialect.POSTGRES)
+public interface BulkJobItemRepository extends CrudRepository<BulkJobItem, UUID> {
+
+    List<BulkJobItem> findByJobId(UUID jobId);
+
+    List<BulkJobItem> findByJobIdAndState(UUID jobId, BulkJobItemState state);
+
+    /**
+     * Claims a pending item, only one instance can claim an item, so its exchange
+     * is started at most once
+     *
+     * @param id item id
+     * @return 1 if the item was claimed, 0 if it is not pending anymore
+     */
+    @Query("UPDATE bulk_job_item SET state = 'PROCESSING' WHERE id = :id AND state = 'PENDING'")
+    Number claim(UUID id);
+
+    void updateResult(@Id UUID id, BulkJobItemState state, @Nullable String exchangeId, @Nullable String errorMsg);
+}
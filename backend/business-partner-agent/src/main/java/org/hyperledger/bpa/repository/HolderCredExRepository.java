@@ -44,6 +44,8 @@ public interface HolderCredExRepository extends CrudRepository<BPACredentialExch
 
     Optional<BPACredentialExchange> findByReferent(String referent);
 
+    List<BPACredentialExchange> findByReferentIn(List<String> referent);
+
     List<BPACredentialExchange> findByPartnerId(UUID partnerId);
 
     @Join(value = "partner", type = Join.Type.LEFT_FETCH)
@@ -58,8 +60,9 @@ public interface HolderCredExRepository extends CrudRepository<BPACredentialExch
 
     @Query("SELECT * FROM bpa_credential_exchange WHERE type = 'INDY' "
             + "AND referent IS NOT NULL AND (revoked IS NULL OR revoked = false) "
-            + "AND role = 'HOLDER'")
-    List<BPACredentialExchange> findNotRevoked();
+            + "AND role = 'HOLDER' AND credential->>'revRegId' IS NOT NULL "
+            + "AND (revocation_next_check_at IS NULL OR revocation_next_check_at <= :now)")
+    List<BPACredentialExchange> findRevocationCheckDue(Instant now);
 
     // update
 
@@ -81,6 +84,8 @@ public interface HolderCredExRepository extends CrudRepository<BPACredentialExch
 
     Number updateReferent(@Id UUID id, @Nullable String referent);
 
+    void updateRevocationCheck(@Id UUID id, Instant revocationCheckedAt, Instant revocationNextCheckAt);
+
     @Query("UPDATE bpa_credential_exchange SET issuer = :issuer WHERE partner_id = :partnerId AND role = 'HOLDER'")
     Number updateIssuerByPartnerId(UUID partnerId, @Nullable String issuer);
 
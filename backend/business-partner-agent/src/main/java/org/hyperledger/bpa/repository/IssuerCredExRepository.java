@@ -21,6 +21,7 @@ import io.micronaut.core.annotation.NonNull;
 import io.micronaut.core.annotation.Nullable;
 import io.micronaut.data.annotation.Id;
 import io.micronaut.data.annotation.Join;
+import io.micronaut.data.annotation.Query;
 import io.micronaut.data.jdbc.annotation.JdbcRepository;
 import io.micronaut.data.model.query.builder.sql.Dialect;
 import io.micronaut.data.repository.CrudRepository;
@@ -53,8 +54,23 @@ public interface IssuerCredExRepository extends CrudRepository<BPACredentialExch
     @Join(value = "partner", type = Join.Type.LEFT_FETCH)
     Optional<BPACredentialExchange> findByCredentialExchangeId(@NonNull String credentialExchangeId);
 
+    List<BPACredentialExchange> findByCredentialExchangeIdIn(List<String> credentialExchangeId);
+
+    @Join(value = "schema", type = Join.Type.LEFT_FETCH)
+    @Join(value = "credDef", type = Join.Type.LEFT_FETCH)
+    @Join(value = "partner", type = Join.Type.LEFT_FETCH)
+    List<BPACredentialExchange> findByIdIn(List<UUID> id);
+
+    List<BPACredentialExchange> findByRevocationPendingTrue();
+
     int countIdByCredDefId(@NonNull UUID credDefId);
 
+    long countByRevRegId(@NonNull String revRegId);
+
+    @Query("SELECT credential_exchange_id FROM bpa_credential_exchange WHERE credential_exchange_id IS NOT NULL "
+            + "AND (exchange_version IS NULL OR exchange_version = 'V1')")
+    List<String> findV1CredentialExchangeIds();
+
     @Join(value = "schema", type = Join.Type.LEFT_FETCH)
     @Join(value = "credDef", type = Join.Type.LEFT_FETCH)
     @Join(value = "partner", type = Join.Type.LEFT_FETCH)
@@ -77,4 +93,7 @@ public interface IssuerCredExRepository extends CrudRepository<BPACredentialExch
     Number updateRevocationInfo(@Id UUID id, String revRegId, @Nullable String credRevId);
 
     Number updateReferent(@Id UUID id, String referent);
+
+    @Query("UPDATE bpa_credential_exchange SET revocation_pending = :revocationPending WHERE id IN (:ids)")
+    Number updateRevocationPending(List<UUID> ids, Boolean revocationPending);
 }
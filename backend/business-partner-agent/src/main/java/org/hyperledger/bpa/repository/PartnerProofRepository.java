@@ -20,6 +20,7 @@ package org.hyperledger.bpa.repository;
 import io.micronaut.core.annotation.NonNull;
 import io.micronaut.data.annotation.Id;
 import io.micronaut.data.annotation.Join;
+import io.micronaut.data.annotation.Query;
 import io.micronaut.data.jdbc.annotation.JdbcRepository;
 import io.micronaut.data.model.query.builder.sql.Dialect;
 import io.micronaut.data.repository.CrudRepository;
@@ -53,6 +54,12 @@ public interface PartnerProofRepository extends CrudRepository<PartnerProof, UUI
     @Join(value = "proofTemplate", type = Join.Type.LEFT_FETCH)
     Optional<PartnerProof> findByThreadId(String threadId);
 
+    List<PartnerProof> findByPresentationExchangeIdIn(List<String> presentationExchangeId);
+
+    @Query("SELECT presentation_exchange_id FROM partner_proof WHERE presentation_exchange_id IS NOT NULL "
+            + "AND (exchange_version IS NULL OR exchange_version = 'V1')")
+    List<String> findV1PresentationExchangeIds();
+
     @NonNull
     @Join(value = "proofTemplate", type = Join.Type.LEFT_FETCH)
     List<PartnerProof> findByPartnerId(UUID partnerId);
@@ -56,6 +56,12 @@ public interface PartnerRepository extends CrudRepository<Partner, UUID> {
 
     List<Partner> findByDidIn(List<String> did);
 
+    List<Partner> findByIdIn(List<UUID> id);
+
+    @Query("SELECT partner.* FROM partner WHERE id IN "
+            + "(SELECT partner_id FROM partner_tag WHERE tag_id IN (:tagIds))")
+    List<Partner> findByTagIdIn(List<UUID> tagIds);
+
     Optional<Partner> findByInvitationMsgId(String invitationMsgId);
 
     @Query("SELECT distinct partner.* FROM partner,jsonb_to_recordset(partner.supported_credentials->'wrapped') as items(seqno text) where items.seqno = :seqNo")
@@ -63,6 +69,9 @@ public interface PartnerRepository extends CrudRepository<Partner, UUID> {
 
     List<Partner> findByStateInAndTrustPingTrueAndAriesSupportTrue(List<ConnectionState> state);
 
+    @Query("SELECT connection_id FROM partner WHERE connection_id IS NOT NULL")
+    List<String> findConnectionIds();
+
     // delete
 
     @Query("delete from partner_tag where partner_id = :id; delete from partner where id = :id")
@@ -107,4 +116,12 @@ public interface PartnerRepository extends CrudRepository<Partner, UUID> {
     @Query("UPDATE partner SET state = :newState, last_seen = :lastSeen WHERE connection_id = :connectionId")
     void updateStateAndLastSeenByConnectionId(String connectionId, ConnectionState newState, Instant lastSeen);
 
+    @Query("UPDATE partner SET state = :newState WHERE connection_id IN (:connectionIds) "
+            + "AND (state IS NULL OR state != :newState)")
+    void updateStateByConnectionIdIn(List<String> connectionIds, ConnectionState newState);
+
+    @Query("UPDATE partner SET state = :newState, last_seen = :lastSeen WHERE connection_id IN (:connectionIds)")
+    void updateStateAndLastSeenByConnectionIdIn(List<String> connectionIds, ConnectionState newState,
+            Instant lastSeen);
+
 }
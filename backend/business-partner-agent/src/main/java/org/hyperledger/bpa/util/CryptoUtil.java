@@ -42,7 +42,7 @@ public class CryptoUtil {
         return b.equals(o);
     }
 
-    private static String toSHA256Hex(@NonNull String base) {
+    public static String toSHA256Hex(@NonNull String base) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA3-256");
             final byte[] hashBytes = digest.digest(base.getBytes(StandardCharsets.UTF_8));
@@ -0,0 +1,6 @@
+CREATE TABLE ledger_artifact (
+    id character varying(255) PRIMARY KEY,
+    type character varying(255) NOT NULL,
+    content jsonb NOT NULL,
+    created_at timestamp without time zone
+);
@@ -0,0 +1,2 @@
+ALTER TABLE bpa_credential_exchange ADD COLUMN revocation_checked_at timestamp without time zone;
+ALTER TABLE bpa_credential_exchange ADD COLUMN revocation_next_check_at timestamp without time zone;
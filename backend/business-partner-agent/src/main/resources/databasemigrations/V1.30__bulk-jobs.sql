@@ -0,0 +1,22 @@
+CREATE TABLE bulk_job (
+    id uuid PRIMARY KEY,
+    type character varying(255) NOT NULL,
+    state character varying(255) NOT NULL,
+    request jsonb,
+    created_at timestamp without time zone,
+    updated_at timestamp without time zone
+);
+
+CREATE TABLE bulk_job_item (
+    id uuid PRIMARY KEY,
+    job_id uuid NOT NULL,
+    partner_id uuid NOT NULL,
+    state character varying(255) NOT NULL,
+    exchange_id character varying(255),
+    error_msg text,
+    updated_at timestamp without time zone,
+    CONSTRAINT bulk_job_item_fk_1
+        FOREIGN KEY (job_id) REFERENCES bulk_job(id) ON DELETE CASCADE
+);
+
+CREATE INDEX bulk_job_item_job_id_idx ON bulk_job_item (job_id);
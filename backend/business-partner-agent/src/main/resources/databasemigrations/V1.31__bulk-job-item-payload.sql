@@ -0,0 +1 @@
+ALTER TABLE bulk_job_item ADD COLUMN payload jsonb;
@@ -0,0 +1 @@
+ALTER TABLE bpa_credential_exchange ADD COLUMN revocation_pending boolean;
@@ -0,0 +1,8 @@
+CREATE TABLE webhook_overflow (
+    id bigserial PRIMARY KEY,
+    url text NOT NULL,
+    event text NOT NULL,
+    created_at timestamp without time zone
+);
+
+CREATE INDEX webhook_overflow_url_idx ON webhook_overflow (url, id);
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.nativeimage;
+
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeReflection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Registers the json models for reflection when building the native image.
+ * Jackson and Gson (aca-py client) both (de)serialize via reflection, and
+ * listing hundreds of classes in a reflect-config.json would be outdated with
+ * every new model, so all classes below the model packages are registered.
+ * Only part of the build with -Pnative-image.
+ */
+public class JsonModelReflectionFeature implements Feature {
+
+    static final List<String> MODEL_PACKAGES = List.of(
+            "org/hyperledger/aries/api/",
+            "org/hyperledger/bpa/api/",
+            "org/hyperledger/bpa/client/api/",
+            "org/hyperledger/bpa/controller/api/",
+            "org/hyperledger/bpa/core/",
+            "org/hyperledger/bpa/model/");
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        access.getApplicationClassPath().stream()
+                .flatMap(entry -> entryNames(entry).stream())
+                .filter(JsonModelReflectionFeature::isModel)
+                .map(name -> name.substring(0, name.length() - ".class".length()).replace('/', '.'))
+                .map(access::findClassByName)
+                .filter(Objects::nonNull)
+                .forEach(JsonModelReflectionFeature::register);
+    }
+
+    static boolean isModel(String entryName) {
+        return entryName.endsWith(".class")
+                && !entryName.endsWith("module-info.class")
+                && MODEL_PACKAGES.stream().anyMatch(entryName::startsWith);
+    }
+
+    private static List<String> entryNames(Path entry) {
+        try {
+            if (Files.isDirectory(entry)) {
+                try (Stream<Path> files = Files.walk(entry)) {
+                    return files
+                            .map(f -> entry.relativize(f).toString().replace('\\', '/'))
+                            .collect(Collectors.toList());
+                }
+            }
+            if (entry.toString().endsWith(".jar")) {
+                try (JarFile jar = new JarFile(entry.toFile())) {
+                    return jar.stream()
+                            .map(JarEntry::getName)
+                            .collect(Collectors.toList());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return List.of();
+    }
+
+    private static void register(Class<?> c) {
+        RuntimeReflection.register(c);
+        RuntimeReflection.register(c.getDeclaredConstructors());
+        RuntimeReflection.register(c.getDeclaredMethods());
+        RuntimeReflection.register(c.getDeclaredFields());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AcaPyAdmissionControllerTest {
+
+    private AcaPyAdmissionController admission;
+
+    @BeforeEach
+    void setup() {
+        admission = new AcaPyAdmissionController();
+        admission.maxConcurrent = 3;
+        admission.interactiveMaxConcurrent = 3;
+        admission.interactiveMaxWait = Duration.ofMillis(50);
+        admission.backgroundMaxConcurrent = 1;
+        admission.backgroundMaxWait = Duration.ofMillis(50);
+        admission.registry = new SimpleMeterRegistry();
+        admission.init();
+    }
+
+    @Test
+    void testBackgroundIsCapped() throws Exception {
+        assertTrue(admission.acquire(AcaPyPriority.BACKGROUND));
+        assertFalse(admission.acquire(AcaPyPriority.BACKGROUND));
+
+        assertTrue(admission.acquire(AcaPyPriority.INTERACTIVE));
+        assertTrue(admission.acquire(AcaPyPriority.INTERACTIVE));
+        assertFalse(admission.acquire(AcaPyPriority.INTERACTIVE));
+
+        admission.release(AcaPyPriority.BACKGROUND);
+        assertTrue(admission.acquire(AcaPyPriority.INTERACTIVE));
+    }
+
+    @Test
+    void testPriorityOfCurrentThread() throws Exception {
+        assertTrue(AcaPyPriority.INTERACTIVE.equals(AcaPyPriority.current()));
+        AcaPyPriority.background(() -> assertTrue(AcaPyPriority.BACKGROUND.equals(AcaPyPriority.current())));
+        assertTrue(AcaPyPriority.INTERACTIVE.equals(AcaPyPriority.current()));
+    }
+}
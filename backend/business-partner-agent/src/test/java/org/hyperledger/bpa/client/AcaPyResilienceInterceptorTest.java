@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class AcaPyResilienceInterceptorTest {
+
+    private final AcaPyAdmissionController admission = mock(AcaPyAdmissionController.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AcaPyResilienceInterceptor interceptor = new AcaPyResilienceInterceptor();
+
+    @BeforeEach
+    void setup() {
+        interceptor.failureThreshold = 2;
+        interceptor.openDuration = Duration.ofMinutes(1);
+        interceptor.fastTimeout = Duration.ofSeconds(15);
+        interceptor.slowTimeout = Duration.ofSeconds(120);
+        interceptor.clock = Clock.systemUTC();
+        interceptor.registry = registry;
+        interceptor.admission = admission;
+        interceptor.init();
+    }
+
+    @Test
+    void testOpenCircuitFailsWithoutAdmission() throws Exception {
+        interceptor.getCircuitBreaker().onFailure();
+        interceptor.getCircuitBreaker().onFailure();
+
+        assertThrows(AcaPyUnavailableException.class, () -> interceptor.intercept(chain(200)));
+
+        verify(admission, never()).acquire(any());
+        verify(admission, never()).release(any());
+        assertEquals(1, registry.counter("bpa.acapy.rejected", "reason", "circuit-open").count());
+    }
+
+    @Test
+    void testAdmittedCallIsReleased() throws Exception {
+        when(admission.acquire(any())).thenReturn(Boolean.TRUE);
+
+        assertEquals(200, interceptor.intercept(chain(200)).code());
+
+        verify(admission).release(AcaPyPriority.INTERACTIVE);
+    }
+
+    @Test
+    void testRejectedAdmissionDoesNotBlockTheTrialCall() throws Exception {
+        Clock clock = mock(Clock.class);
+        interceptor.clock = clock;
+        when(clock.instant()).thenReturn(Instant.EPOCH);
+        interceptor.init();
+        interceptor.getCircuitBreaker().onFailure();
+        interceptor.getCircuitBreaker().onFailure();
+        when(clock.instant()).thenReturn(Instant.EPOCH.plus(Duration.ofMinutes(2)));
+        when(admission.acquire(any())).thenReturn(Boolean.FALSE, Boolean.TRUE);
+
+        // the half open trial is given back when the call is not admitted
+        assertThrows(AcaPyUnavailableException.class, () -> interceptor.intercept(chain(200)));
+        assertEquals(200, interceptor.intercept(chain(200)).code());
+        assertEquals(CircuitBreaker.State.CLOSED, interceptor.getCircuitBreaker().getState());
+    }
+
+    private static Interceptor.Chain chain(int code) throws IOException {
+        Request request = new Request.Builder().url("http://localhost:8031/connections").build();
+        Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(request);
+        when(chain.connectTimeoutMillis()).thenReturn(10_000);
+        when(chain.withConnectTimeout(anyInt(), any())).thenReturn(chain);
+        when(chain.withReadTimeout(anyInt(), any())).thenReturn(chain);
+        when(chain.withWriteTimeout(anyInt(), any())).thenReturn(chain);
+        when(chain.proceed(request)).thenReturn(new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("test")
+                .build());
+        return chain;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CircuitBreakerTest {
+
+    private final Instant start = Instant.parse("2021-12-01T10:00:00Z");
+
+    @Test
+    void testOpensAfterThreshold() {
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(start);
+        CircuitBreaker cb = new CircuitBreaker("test", 2, Duration.ofSeconds(30), clock);
+
+        assertTrue(cb.tryAcquirePermission());
+        cb.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, cb.getState());
+        assertTrue(cb.tryAcquirePermission());
+        cb.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, cb.getState());
+        assertFalse(cb.tryAcquirePermission());
+    }
+
+    @Test
+    void testHalfOpenSingleTrial() {
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(start);
+        CircuitBreaker cb = new CircuitBreaker("test", 1, Duration.ofSeconds(30), clock);
+        cb.tryAcquirePermission();
+        cb.onFailure();
+        assertTrue(cb.isOpen());
+
+        when(clock.instant()).thenReturn(start.plusSeconds(31));
+        assertTrue(cb.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, cb.getState());
+        assertFalse(cb.tryAcquirePermission());
+
+        cb.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, cb.getState());
+        assertTrue(cb.tryAcquirePermission());
+    }
+
+    @Test
+    void testFailedTrialReopens() {
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(start);
+        CircuitBreaker cb = new CircuitBreaker("test", 1, Duration.ofSeconds(30), clock);
+        cb.tryAcquirePermission();
+        cb.onFailure();
+
+        when(clock.instant()).thenReturn(start.plusSeconds(31));
+        assertTrue(cb.tryAcquirePermission());
+        cb.onFailure();
+        assertTrue(cb.isOpen());
+        assertFalse(cb.tryAcquirePermission());
+    }
+
+    @Test
+    void testNotOpenAfterOpenDuration() {
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(start);
+        CircuitBreaker cb = new CircuitBreaker("test", 1, Duration.ofSeconds(30), clock);
+        cb.tryAcquirePermission();
+        cb.onFailure();
+        assertTrue(cb.isOpen());
+
+        // no call in between, the state is still OPEN but a trial would be permitted
+        when(clock.instant()).thenReturn(start.plusSeconds(31));
+        assertEquals(CircuitBreaker.State.OPEN, cb.getState());
+        assertFalse(cb.isOpen());
+        assertTrue(cb.tryAcquirePermission());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimitInterceptorTest {
+
+    @Test
+    void testPerHostLimitAppliesToBlockingCalls() throws Exception {
+        ConcurrencyLimitInterceptor limit = new ConcurrencyLimitInterceptor(10, 1, Duration.ofMillis(200));
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Response> first = executor.submit(() -> limit.intercept(chain("a.example", () -> {
+                inFlight.countDown();
+                release.await();
+            })));
+            assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+
+            assertThrows(InterruptedIOException.class, () -> limit.intercept(chain("a.example", () -> {
+            })));
+            // other hosts are not affected
+            assertEquals(200, limit.intercept(chain("b.example", () -> {
+            })).code());
+
+            release.countDown();
+            assertEquals(200, first.get(5, TimeUnit.SECONDS).code());
+            assertEquals(10, limit.availableTotal());
+            assertEquals(200, limit.intercept(chain("a.example", () -> {
+            })).code());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPermitsAreReleasedOnFailure() throws Exception {
+        ConcurrencyLimitInterceptor limit = new ConcurrencyLimitInterceptor(1, 1, Duration.ofMillis(200));
+        Interceptor.Chain failing = chain("a.example", () -> {
+            throw new IOException("connection refused");
+        });
+        assertThrows(IOException.class, () -> limit.intercept(failing));
+        assertEquals(1, limit.availableTotal());
+        assertEquals(200, limit.intercept(chain("a.example", () -> {
+        })).code());
+    }
+
+    interface Work {
+        void run() throws Exception;
+    }
+
+    private static Interceptor.Chain chain(String host, Work work) throws Exception {
+        Request request = new Request.Builder().url("https://" + host + "/hook").build();
+        Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(request);
+        when(chain.proceed(any())).thenAnswer(inv -> {
+            work.run();
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .build();
+        });
+        return chain;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import com.google.gson.reflect.TypeToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.exception.AriesException;
+import org.hyperledger.aries.api.resolver.DIDDocument;
+import org.hyperledger.bpa.api.exception.NetworkException;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DidDocClientTest {
+
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() {
+    }.getType();
+
+    private static final String URL = "https://bpa.example.com/profile.jsonld";
+
+    private final List<Request> requests = new ArrayList<>();
+
+    private final Deque<Response.Builder> responses = new ArrayDeque<>();
+
+    private final AriesClient ac = mock(AriesClient.class);
+
+    private DidDocClient client;
+
+    @BeforeEach
+    void setup() {
+        client = new DidDocClient();
+        client.ac = ac;
+        client.msg = mock(BPAMessageSource.DefaultMessageSource.class);
+        client.registry = new SimpleMeterRegistry();
+        client.maxSize = 10L;
+        client.refreshAfter = Duration.ofMinutes(5);
+        client.expireAfter = Duration.ofHours(1);
+        client.negativeTtl = Duration.ofMinutes(1);
+        client.http = mock(OutboundHttpClients.class);
+        Interceptor server = chain -> {
+            requests.add(chain.request());
+            return responses.remove()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .build();
+        };
+        when(client.http.forDestination(OutboundHttpClients.PARTNER))
+                .thenReturn(new OkHttpClient.Builder().addInterceptor(server).build());
+        client.init();
+    }
+
+    @Test
+    void testResolvedOnce() throws Exception {
+        when(ac.resolverResolveDid(anyString())).thenReturn(Optional.of(new DIDDocument()));
+
+        assertTrue(client.getDidDocument("did:sov:1").isPresent());
+        assertTrue(client.getDidDocument("did:sov:1").isPresent());
+
+        verify(ac, times(1)).resolverResolveDid("did:sov:1");
+    }
+
+    @Test
+    void testResolutionErrorIsCached() throws Exception {
+        when(ac.resolverResolveDid(anyString())).thenThrow(new AriesException(404, "not found"));
+
+        assertThrows(NetworkException.class, () -> client.getDidDocument("did:sov:1"));
+        assertThrows(NetworkException.class, () -> client.getDidDocument("did:sov:1"));
+
+        verify(ac, times(1)).resolverResolveDid("did:sov:1");
+    }
+
+    @Test
+    void testNetworkErrorIsNotCached() throws Exception {
+        when(ac.resolverResolveDid(anyString()))
+                .thenThrow(new IOException("down"))
+                .thenReturn(Optional.of(new DIDDocument()));
+
+        assertThrows(NetworkException.class, () -> client.getDidDocument("did:sov:1"));
+        assertTrue(client.getDidDocument("did:sov:1").isPresent());
+    }
+
+    @Test
+    void testNotModifiedIsServedFromCache() {
+        responses.add(ok("{\"name\":\"first\"}")
+                .header("ETag", "\"v1\"")
+                .header("Last-Modified", "Tue, 01 Jun 2021 10:00:00 GMT"));
+        responses.add(new Response.Builder().code(304).message("Not Modified")
+                .body(ResponseBody.create("", MediaType.get("application/json"))));
+
+        Optional<Map<String, Object>> first = client.call(URL, MAP_TYPE);
+        Optional<Map<String, Object>> second = client.call(URL, MAP_TYPE);
+
+        assertEquals("first", first.orElseThrow().get("name"));
+        assertEquals("first", second.orElseThrow().get("name"));
+        assertNull(requests.get(0).header("If-None-Match"));
+        assertNull(requests.get(0).header("If-Modified-Since"));
+        assertEquals("\"v1\"", requests.get(1).header("If-None-Match"));
+        assertEquals("Tue, 01 Jun 2021 10:00:00 GMT", requests.get(1).header("If-Modified-Since"));
+    }
+
+    @Test
+    void testChangedResourceReplacesCachedResponse() {
+        responses.add(ok("{\"name\":\"first\"}").header("ETag", "\"v1\""));
+        responses.add(ok("{\"name\":\"second\"}").header("ETag", "\"v2\""));
+        responses.add(ok("{\"name\":\"third\"}"));
+        responses.add(ok("{\"name\":\"fourth\"}"));
+
+        client.call(URL, MAP_TYPE);
+        Optional<Map<String, Object>> second = client.call(URL, MAP_TYPE);
+        client.call(URL, MAP_TYPE);
+        client.call(URL, MAP_TYPE);
+
+        assertEquals("second", second.orElseThrow().get("name"));
+        assertEquals("\"v1\"", requests.get(1).header("If-None-Match"));
+        assertEquals("\"v2\"", requests.get(2).header("If-None-Match"));
+        // the third response had no validators, so the fourth request is unconditional
+        assertNull(requests.get(3).header("If-None-Match"));
+    }
+
+    @Test
+    void testNoConditionalRequestWithoutValidators() {
+        responses.add(ok("{\"name\":\"first\"}"));
+        responses.add(ok("{\"name\":\"second\"}"));
+
+        client.call(URL, MAP_TYPE);
+        Optional<Map<String, Object>> second = client.call(URL, MAP_TYPE);
+
+        assertEquals("second", second.orElseThrow().get("name"));
+        assertNull(requests.get(1).header("If-None-Match"));
+        assertNull(requests.get(1).header("If-Modified-Since"));
+    }
+
+    private static Response.Builder ok(String json) {
+        return new Response.Builder().code(200).message("OK")
+                .body(ResponseBody.create(json, MediaType.get("application/json")));
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HttpClientMetricsListenerTest {
+
+    @Test
+    void testNormaliseEndpoint() {
+        assertEquals("/connections/{id}/send-ping", normalise(
+                "http://localhost:8031/connections/3fa85f64-5717-4562-b3fc-2c963f66afa6/send-ping"));
+        assertEquals("/schemas/{id}", normalise(
+                "http://localhost:8031/schemas/M6Mbe3qx7vB4wpZF4sBRjt:2:bank_account:1.0"));
+        assertEquals("/issue-credential-2.0/records", normalise(
+                "http://localhost:8031/issue-credential-2.0/records?state=done"));
+        assertEquals("/resolver/resolve/{id}", normalise(
+                "http://localhost:8031/resolver/resolve/did:sov:M6Mbe3qx7vB4wpZF4sBRjt"));
+        assertEquals("/revocation/registry/{id}", normalise(
+                "http://localhost:8031/revocation/registry/12"));
+    }
+
+    @Test
+    void testHostTagIsBounded() {
+        HttpClientMetricsListener.HostTags hosts = new HttpClientMetricsListener.HostTags(2);
+        assertEquals("a.example", hosts.tag("a.example"));
+        assertEquals("b.example", hosts.tag("b.example"));
+        assertEquals(HttpClientMetricsListener.OTHER_HOST, hosts.tag("c.example"));
+        // known hosts keep their tag
+        assertEquals("a.example", hosts.tag("a.example"));
+    }
+
+    private static String normalise(String url) {
+        return HttpClientMetricsListener.normaliseEndpoint(HttpUrl.get(url));
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.hyperledger.aries.api.ExchangeVersion;
+import org.hyperledger.bpa.api.exception.IssuerException;
+import org.hyperledger.bpa.api.exception.PartnerException;
+import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.controller.api.bulk.BulkIssueCredentialRequest;
+import org.hyperledger.bpa.controller.api.bulk.BulkJobItemState;
+import org.hyperledger.bpa.controller.api.bulk.BulkJobState;
+import org.hyperledger.bpa.controller.api.bulk.BulkJobStatus;
+import org.hyperledger.bpa.controller.api.bulk.BulkJobType;
+import org.hyperledger.bpa.controller.api.bulk.ProofCampaignRequest;
+import org.hyperledger.bpa.controller.api.issuer.IssueCredentialSendRequest;
+import org.hyperledger.bpa.impl.aries.ProofManager;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.model.*;
+import org.hyperledger.bpa.model.prooftemplate.BPAAttributeGroups;
+import org.hyperledger.bpa.repository.*;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@MicronautTest
+class BulkJobManagerTest {
+
+    @Inject
+    BulkJobManager mgmt;
+
+    @Inject
+    ProofManager proofManager;
+
+    @Inject
+    BPAProofTemplateRepository templateRepo;
+
+    @Inject
+    PartnerRepository partnerRepo;
+
+    @Inject
+    TagRepository tagRepo;
+
+    @Inject
+    IssuerCredentialManager issuerManager;
+
+    @Inject
+    BPASchemaRepository schemaRepo;
+
+    @Inject
+    BPACredentialDefinitionRepository credDefRepo;
+
+    @Inject
+    Converter conv;
+
+    @Inject
+    BulkJobRepository jobRepo;
+
+    @Inject
+    BulkJobItemRepository itemRepo;
+
+    @MockBean(ProofManager.class)
+    ProofManager proofManager() {
+        return Mockito.mock(ProofManager.class);
+    }
+
+    @MockBean(IssuerCredentialManager.class)
+    IssuerCredentialManager issuerManager() {
+        return Mockito.mock(IssuerCredentialManager.class);
+    }
+
+    @Test
+    void testProofCampaignByTagAndPartnerIds() throws Exception {
+        BPAProofTemplate template = templateRepo.save(BPAProofTemplate
+                .builder()
+                .name("campaign")
+                .attributeGroups(BPAAttributeGroups.builder().build())
+                .build());
+        Tag tag = tagRepo.save(Tag.builder().name("supplier").build());
+        Partner tagged = partnerRepo.save(partner());
+        tagRepo.createPartnerToTagMapping(tagged.getId(), tag.getId());
+        Partner listed = partnerRepo.save(partner());
+
+        when(proofManager.sendPresentProofRequest(eq(tagged.getId()), any(BPAProofTemplate.class),
+                eq(ExchangeVersion.V2)))
+                        .thenReturn(Optional.of(PartnerProof.builder().presentationExchangeId("ex-1").build()));
+        when(proofManager.sendPresentProofRequest(eq(listed.getId()), any(BPAProofTemplate.class),
+                eq(ExchangeVersion.V2)))
+                        .thenThrow(new PartnerException("no connection"));
+
+        BulkJobStatus started = mgmt.startProofCampaign(template.getId(), ProofCampaignRequest
+                .builder()
+                .tagIds(List.of(tag.getId()))
+                .partnerIds(List.of(listed.getId(), tagged.getId()))
+                .exchangeVersion(ExchangeVersion.V2)
+                .build());
+        assertEquals(2, started.getTotal());
+
+        BulkJobStatus status = awaitFinished(started.getId());
+        assertEquals(1L, status.getProgress().get(BulkJobItemState.SENT));
+        assertEquals(1L, status.getProgress().get(BulkJobItemState.FAILED));
+        BulkJobStatus.Item failed = status.getItems().stream()
+                .filter(i -> listed.getId().equals(i.getPartnerId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("no connection", failed.getErrorMsg());
+        BulkJobStatus.Item sent = status.getItems().stream()
+                .filter(i -> tagged.getId().equals(i.getPartnerId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("ex-1", sent.getExchangeId());
+    }
+
+    @Test
+    void testCampaignWithoutPartners() {
+        BPAProofTemplate template = templateRepo.save(BPAProofTemplate
+                .builder()
+                .name("empty")
+                .attributeGroups(BPAAttributeGroups.builder().build())
+                .build());
+        assertThrows(WrongApiUsageException.class, () -> mgmt.startProofCampaign(template.getId(),
+                ProofCampaignRequest.builder().partnerIds(List.of(UUID.randomUUID())).build()));
+    }
+
+    @Test
+    void testCredentialIssuanceValidatesItemsUpFront() throws Exception {
+        BPASchema schema = schemaRepo.save(BPASchema
+                .builder()
+                .schemaId("bulk-schema")
+                .schemaAttributeNames(Set.of("name"))
+                .seqNo(1)
+                .build());
+        BPACredentialDefinition credDef = credDefRepo.save(BPACredentialDefinition
+                .builder()
+                .credentialDefinitionId("bulk-cred-def")
+                .schema(schema)
+                .tag("bulk")
+                .revocationRegistrySize(200)
+                .build());
+        Partner alice = partnerRepo.save(partner());
+        Partner bob = partnerRepo.save(partner());
+
+        doThrow(new IssuerException("document mismatch")).when(issuerManager)
+                .checkAttributes(argThat(doc -> !doc.containsKey("name")), any(BPACredentialDefinition.class));
+        when(issuerManager.issueCredential(argThat(p -> alice.getId().equals(p.getId())),
+                any(BPACredentialDefinition.class), eq(Map.of("name", "alice")), eq(ExchangeVersion.V2)))
+                        .thenReturn("cex-1");
+
+        BulkJobStatus started = mgmt.startCredentialIssuance(BulkIssueCredentialRequest
+                .builder()
+                .exchangeVersion(ExchangeVersion.V2)
+                .items(List.of(
+                        item(credDef.getId(), alice.getId(), Map.of("name", "alice")),
+                        item(credDef.getId(), bob.getId(), Map.of("surname", "bob")),
+                        item(credDef.getId(), UUID.randomUUID(), Map.of("name", "nobody"))))
+                .build());
+        assertEquals(3, started.getTotal());
+
+        BulkJobStatus status = awaitFinished(started.getId());
+        assertEquals(1L, status.getProgress().get(BulkJobItemState.SENT));
+        assertEquals(2L, status.getProgress().get(BulkJobItemState.FAILED));
+        assertNotNull(status.getItemsPerMinute());
+        BulkJobStatus.Item sent = status.getItems().stream()
+                .filter(i -> alice.getId().equals(i.getPartnerId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("cex-1", sent.getExchangeId());
+        BulkJobStatus.Item mismatch = status.getItems().stream()
+                .filter(i -> bob.getId().equals(i.getPartnerId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("document mismatch", mismatch.getErrorMsg());
+        // invalid items never reach aca-py
+        verify(issuerManager, times(1)).issueCredential(any(Partner.class), any(BPACredentialDefinition.class),
+                anyMap(), any(ExchangeVersion.class));
+    }
+
+    @Test
+    void testCredentialIssuanceWithoutItems() {
+        assertThrows(WrongApiUsageException.class, () -> mgmt.startCredentialIssuance(
+                BulkIssueCredentialRequest.builder().items(List.of()).build()));
+    }
+
+    @Test
+    void testCredentialIssuanceWithInvalidIds() {
+        assertThrows(WrongApiUsageException.class, () -> mgmt.startCredentialIssuance(BulkIssueCredentialRequest
+                .builder()
+                .items(List.of(IssueCredentialSendRequest
+                        .builder()
+                        .credDefId("not-a-uuid")
+                        .partnerId(UUID.randomUUID().toString())
+                        .build()))
+                .build()));
+        assertThrows(WrongApiUsageException.class, () -> mgmt.startCredentialIssuance(BulkIssueCredentialRequest
+                .builder()
+                .items(List.of(IssueCredentialSendRequest
+                        .builder()
+                        .credDefId(UUID.randomUUID().toString())
+                        .build()))
+                .build()));
+    }
+
+    @Test
+    void testItemIsClaimedOnce() {
+        BulkJob job = jobRepo.save(BulkJob
+                .builder()
+                .type(BulkJobType.PROOF_REQUEST)
+                .state(BulkJobState.RUNNING)
+                .build());
+        BulkJobItem item = itemRepo.save(BulkJobItem
+                .builder()
+                .jobId(job.getId())
+                .partnerId(UUID.randomUUID())
+                .state(BulkJobItemState.PENDING)
+                .build());
+
+        assertEquals(1, itemRepo.claim(item.getId()).intValue());
+        assertEquals(0, itemRepo.claim(item.getId()).intValue());
+        assertEquals(BulkJobItemState.PROCESSING, itemRepo.findById(item.getId()).orElseThrow().getState());
+    }
+
+    @Test
+    void testResumedJobSkipsClaimedItems() throws Exception {
+        BPAProofTemplate template = templateRepo.save(BPAProofTemplate
+                .builder()
+                .name("resume")
+                .attributeGroups(BPAAttributeGroups.builder().build())
+                .build());
+        Partner pending = partnerRepo.save(partner());
+        Partner claimed = partnerRepo.save(partner());
+        BulkJob job = jobRepo.save(BulkJob
+                .builder()
+                .type(BulkJobType.PROOF_REQUEST)
+                .state(BulkJobState.RUNNING)
+                .request(Map.of(BulkJobManager.TEMPLATE_ID, template.getId().toString(),
+                        BulkJobManager.EXCHANGE_VERSION, ExchangeVersion.V1.name()))
+                .build());
+        itemRepo.save(BulkJobItem.builder().jobId(job.getId()).partnerId(pending.getId())
+                .state(BulkJobItemState.PENDING).build());
+        // claimed by another instance, or by this one before a crash
+        itemRepo.save(BulkJobItem.builder().jobId(job.getId()).partnerId(claimed.getId())
+                .state(BulkJobItemState.PROCESSING).build());
+        when(proofManager.sendPresentProofRequest(eq(pending.getId()), any(BPAProofTemplate.class),
+                eq(ExchangeVersion.V1)))
+                        .thenReturn(Optional.of(PartnerProof.builder().presentationExchangeId("ex-2").build()));
+
+        mgmt.run(job);
+
+        BulkJobStatus status = awaitFinished(job.getId());
+        assertEquals(1L, status.getProgress().get(BulkJobItemState.SENT));
+        assertEquals(1L, status.getProgress().get(BulkJobItemState.PROCESSING));
+        verify(proofManager, never()).sendPresentProofRequest(eq(claimed.getId()), any(BPAProofTemplate.class),
+                any(ExchangeVersion.class));
+    }
+
+    private IssueCredentialSendRequest item(UUID credDefId, UUID partnerId, Map<String, String> document) {
+        return IssueCredentialSendRequest
+                .builder()
+                .credDefId(credDefId.toString())
+                .partnerId(partnerId.toString())
+                .document(conv.mapToNode(document))
+                .build();
+    }
+
+    private BulkJobStatus awaitFinished(UUID jobId) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            BulkJobStatus status = mgmt.getStatus(jobId);
+            if (BulkJobState.FINISHED.equals(status.getState())) {
+                return status;
+            }
+            Thread.sleep(100);
+        }
+        return fail("Bulk job did not finish");
+    }
+
+    private static Partner partner() {
+        return Partner
+                .builder()
+                .ariesSupport(Boolean.TRUE)
+                .did("did:sov:" + UUID.randomUUID())
+                .connectionId(UUID.randomUUID().toString())
+                .build();
+    }
+}
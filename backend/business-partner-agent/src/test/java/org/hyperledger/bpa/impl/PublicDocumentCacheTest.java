@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
+import org.hyperledger.aries.api.resolver.DIDDocument;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.model.DidDocWeb;
+import org.hyperledger.bpa.repository.DidDocWebRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PublicDocumentCacheTest {
+
+    @Mock
+    DidDocWebRepository didRepo;
+
+    @Mock
+    DidDocManager didDocManager;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Converter conv = new Converter();
+
+    private PublicDocumentCache cache;
+    private Instant now = Instant.parse("2021-12-01T10:00:00Z");
+
+    @BeforeEach
+    void setup() {
+        conv.setMapper(mapper);
+        cache = new PublicDocumentCache();
+        cache.didRepo = didRepo;
+        cache.converter = conv;
+        cache.mapper = mapper;
+        cache.didDocManager = () -> didDocManager;
+        cache.refreshAfter = Duration.ofSeconds(60);
+        tick(0);
+    }
+
+    @Test
+    void testProfileIsLoadedOnce() throws Exception {
+        when(didRepo.findDidDocSingle()).thenReturn(Optional.of(DidDocWeb.builder()
+                .profileJson(conv.toMap(vp("did:sov:1")))
+                .build()));
+
+        PublicDocumentCache.SerializedDocument first = cache.getProfile().orElseThrow();
+        PublicDocumentCache.SerializedDocument second = cache.getProfile().orElseThrow();
+
+        assertSame(first, second);
+        assertTrue(first.getEtag().startsWith("\"") && first.getEtag().endsWith("\""));
+        assertArrayEquals(first.getJson(), new GZIPInputStream(new ByteArrayInputStream(first.getGzip())).readAllBytes());
+        verify(didRepo, times(1)).findDidDocSingle();
+    }
+
+    @Test
+    void testUpdateReplacesProfile() {
+        when(didRepo.findDidDocSingle()).thenReturn(Optional.empty());
+        assertTrue(cache.getProfile().isEmpty());
+
+        cache.updateProfile(vp("did:sov:1"));
+        String etag = cache.getProfile().orElseThrow().getEtag();
+        cache.updateProfile(vp("did:sov:2"));
+
+        assertNotEquals(etag, cache.getProfile().orElseThrow().getEtag());
+        verify(didRepo, times(1)).findDidDocSingle();
+    }
+
+    @Test
+    void testSameContentSameEtag() {
+        cache.updateProfile(vp("did:sov:1"));
+        String etag = cache.getProfile().orElseThrow().getEtag();
+        cache.updateProfile(vp("did:sov:1"));
+        assertEquals(etag, cache.getProfile().orElseThrow().getEtag());
+    }
+
+    @Test
+    void testDidDocumentReloadedAfterRefreshAndInvalidate() {
+        when(didDocManager.getDidDocument()).thenReturn(Optional.of(DIDDocument.builder().id("did:sov:1").build()));
+
+        cache.getDidDocument();
+        tick(30);
+        cache.getDidDocument();
+        verify(didDocManager, times(1)).getDidDocument();
+
+        tick(61);
+        cache.getDidDocument();
+        verify(didDocManager, times(2)).getDidDocument();
+
+        cache.invalidateDidDocument();
+        assertTrue(cache.getDidDocument().isPresent());
+        verify(didDocManager, times(3)).getDidDocument();
+    }
+
+    private void tick(long seconds) {
+        now = now.plusSeconds(seconds);
+        cache.clock = Clock.fixed(now, ZoneOffset.UTC);
+    }
+
+    private static VerifiablePresentation<VerifiableIndyCredential> vp(String issuer) {
+        return VerifiablePresentation.<VerifiableIndyCredential>builder()
+                .verifiableCredential(List.of(VerifiableIndyCredential.builder().issuer(issuer).build()))
+                .build();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
+import org.hyperledger.aries.api.revocation.CredRevRecordResult;
+import org.hyperledger.aries.api.revocation.PublishRevocations;
+import org.hyperledger.aries.api.revocation.RevRegCreateResponse;
+import org.hyperledger.aries.api.revocation.RevocationEvent;
+import org.hyperledger.aries.api.revocation.RevokeRequest;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.config.RuntimeConfig;
+import org.hyperledger.bpa.controller.api.issuer.RevokeCredentialsRequest;
+import org.hyperledger.bpa.controller.api.issuer.RevokeCredentialsResponse;
+import org.hyperledger.bpa.model.BPACredentialExchange;
+import org.hyperledger.bpa.repository.IssuerCredExRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevocationBatchManagerTest {
+
+    @Mock
+    AriesClient ac;
+
+    @Mock
+    IssuerCredExRepository credExRepo;
+
+    @Mock
+    RuntimeConfig config;
+
+    @Mock
+    BPAMessageSource.DefaultMessageSource msg;
+
+    @InjectMocks
+    RevocationBatchManager mgmt;
+
+    @Test
+    void testRevokeDoesNotPublish() throws Exception {
+        BPACredentialExchange c1 = issued("reg-1", "1");
+        BPACredentialExchange c2 = issued(null, null);
+        when(config.getTailsServerConfigured()).thenReturn(Boolean.TRUE);
+        when(credExRepo.findByIdIn(any())).thenReturn(List.of(c1, c2));
+        when(msg.getMessage("api.issuer.credential.missing.revocation.info")).thenReturn("missing");
+
+        RevokeCredentialsResponse res = mgmt.revoke(RevokeCredentialsRequest
+                .builder()
+                .ids(List.of(c1.getId(), c2.getId()))
+                .build());
+
+        assertEquals(List.of(c1.getId()), res.getPending());
+        assertEquals(Map.of(c2.getId(), "missing"), res.getFailed());
+        ArgumentCaptor<RevokeRequest> revoke = ArgumentCaptor.forClass(RevokeRequest.class);
+        verify(ac, times(1)).revocationRevoke(revoke.capture());
+        assertEquals(Boolean.FALSE, revoke.getValue().getPublish());
+        verify(credExRepo).updateRevocationPending(List.of(c1.getId()), Boolean.TRUE);
+        verify(ac, never()).revocationPublishRevocations(any());
+    }
+
+    @Test
+    void testAcceptedRevocationsAreFlaggedInOneUpdate() throws Exception {
+        BPACredentialExchange c1 = issued("reg-1", "1");
+        BPACredentialExchange c2 = issued("reg-1", "2");
+        BPACredentialExchange c3 = issued("reg-2", "1");
+        when(config.getTailsServerConfigured()).thenReturn(Boolean.TRUE);
+        when(credExRepo.findByIdIn(any())).thenReturn(List.of(c1, c2, c3));
+
+        RevokeCredentialsResponse res = mgmt.revoke(RevokeCredentialsRequest
+                .builder()
+                .ids(List.of(c1.getId(), c2.getId(), c3.getId()))
+                .build());
+
+        assertEquals(List.of(c1.getId(), c2.getId(), c3.getId()), res.getPending());
+        verify(ac, times(3)).revocationRevoke(any());
+        verify(credExRepo, times(1)).updateRevocationPending(any(), any());
+        verify(credExRepo).updateRevocationPending(List.of(c1.getId(), c2.getId(), c3.getId()), Boolean.TRUE);
+    }
+
+    @Test
+    void testFailedRevokeIsNotFlagged() throws Exception {
+        BPACredentialExchange c1 = issued("reg-1", "1");
+        BPACredentialExchange c2 = issued("reg-1", "2");
+        when(config.getTailsServerConfigured()).thenReturn(Boolean.TRUE);
+        when(credExRepo.findByIdIn(any())).thenReturn(List.of(c1, c2));
+        when(msg.getMessage("acapy.unavailable")).thenReturn("unavailable");
+        doThrow(new IOException("down")).when(ac).revocationRevoke(argThat(r -> "1".equals(r.getCredRevId())));
+
+        RevokeCredentialsResponse res = mgmt.revoke(RevokeCredentialsRequest
+                .builder()
+                .ids(List.of(c1.getId(), c2.getId()))
+                .build());
+
+        assertEquals(List.of(c2.getId()), res.getPending());
+        assertEquals(Map.of(c1.getId(), "unavailable"), res.getFailed());
+        verify(credExRepo, times(1)).updateRevocationPending(any(), any());
+        verify(credExRepo).updateRevocationPending(List.of(c2.getId()), Boolean.TRUE);
+    }
+
+    @Test
+    void testPublishOncePerRegistry() throws Exception {
+        List<BPACredentialExchange> pending = List.of(
+                issued("reg-1", "1"), issued("reg-1", "2"), issued("reg-2", "1"));
+        when(credExRepo.findByRevocationPendingTrue()).thenReturn(pending);
+        when(ac.revocationRegistryGetById("reg-1")).thenReturn(Optional.of(registry("reg-1", "1", "2")));
+        when(ac.revocationRegistryGetById("reg-2")).thenReturn(Optional.of(registry("reg-2", "1")));
+
+        Map<String, Integer> published = mgmt.publishPending();
+
+        assertEquals(Map.of("reg-1", 2, "reg-2", 1), published);
+        ArgumentCaptor<PublishRevocations> publish = ArgumentCaptor.forClass(PublishRevocations.class);
+        verify(ac, times(1)).revocationPublishRevocations(publish.capture());
+        assertEquals(Map.of("reg-1", List.of("1", "2"), "reg-2", List.of("1")),
+                publish.getValue().getRrid2crid());
+        verify(credExRepo, times(1)).updateAll(pending);
+        pending.forEach(c -> {
+            assertTrue(c.getRevoked());
+            assertFalse(c.getRevocationPending());
+            assertEquals(CredentialExchangeState.REVOKED, c.getState());
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPublishClearsFlagsNotPendingInAcaPy() throws Exception {
+        BPACredentialExchange known = issued("reg-1", "1");
+        BPACredentialExchange stale = issued("reg-1", "2");
+        BPACredentialExchange unknownRegistry = issued("reg-2", "1");
+        when(credExRepo.findByRevocationPendingTrue()).thenReturn(List.of(known, stale, unknownRegistry));
+        when(ac.revocationRegistryGetById("reg-1")).thenReturn(Optional.of(registry("reg-1", "1")));
+        when(ac.revocationRegistryGetById("reg-2")).thenReturn(Optional.empty());
+
+        Map<String, Integer> published = mgmt.publishPending();
+
+        assertEquals(Map.of("reg-1", 1), published);
+        ArgumentCaptor<PublishRevocations> publish = ArgumentCaptor.forClass(PublishRevocations.class);
+        verify(ac, times(1)).revocationPublishRevocations(publish.capture());
+        assertEquals(Map.of("reg-1", List.of("1")), publish.getValue().getRrid2crid());
+        ArgumentCaptor<List<UUID>> cleared = ArgumentCaptor.forClass(List.class);
+        verify(credExRepo).updateRevocationPending(cleared.capture(), eq(Boolean.FALSE));
+        assertEquals(2, cleared.getValue().size());
+        assertTrue(cleared.getValue().containsAll(List.of(stale.getId(), unknownRegistry.getId())));
+        verify(credExRepo, times(1)).updateAll(List.of(known));
+    }
+
+    @Test
+    void testNothingToPublishWhenAcaPyHasNoPendingRevocations() throws Exception {
+        BPACredentialExchange stale = issued("reg-1", "1");
+        when(credExRepo.findByRevocationPendingTrue()).thenReturn(List.of(stale));
+        when(ac.revocationRegistryGetById("reg-1")).thenReturn(Optional.of(registry("reg-1")));
+
+        assertEquals(Map.of(), mgmt.publishPending());
+
+        verify(credExRepo).updateRevocationPending(List.of(stale.getId()), Boolean.FALSE);
+        verify(ac, never()).revocationPublishRevocations(any());
+    }
+
+    @Test
+    void testPublishMarksRevocationsPublishedByAcaPyAsRevoked() throws Exception {
+        BPACredentialExchange published = issued("reg-1", "1");
+        BPACredentialExchange stale = issued("reg-1", "2");
+        when(credExRepo.findByRevocationPendingTrue()).thenReturn(List.of(published, stale));
+        when(ac.revocationRegistryGetById("reg-1")).thenReturn(Optional.of(registry("reg-1")));
+        when(ac.revocationCredentialRecord(argThat(r -> r != null && "1".equals(r.getCredRevId()))))
+                .thenReturn(Optional.of(record(RevocationEvent.RevocationEventState.REVOKED)));
+        when(ac.revocationCredentialRecord(argThat(r -> r != null && "2".equals(r.getCredRevId()))))
+                .thenReturn(Optional.of(record(RevocationEvent.RevocationEventState.ISSUED)));
+
+        assertEquals(Map.of(), mgmt.publishPending());
+
+        verify(ac, never()).revocationPublishRevocations(any());
+        verify(credExRepo).updateAll(List.of(published));
+        assertTrue(published.getRevoked());
+        assertFalse(published.getRevocationPending());
+        assertEquals(CredentialExchangeState.REVOKED, published.getState());
+        verify(credExRepo).updateRevocationPending(List.of(stale.getId()), Boolean.FALSE);
+    }
+
+    private static CredRevRecordResult record(RevocationEvent.RevocationEventState state) {
+        RevocationEvent event = new RevocationEvent();
+        event.setState(state);
+        CredRevRecordResult res = new CredRevRecordResult();
+        res.setResult(event);
+        return res;
+    }
+
+    private static RevRegCreateResponse registry(String revRegId, String... pendingPub) {
+        RevRegCreateResponse res = new RevRegCreateResponse();
+        res.setRevocRegId(revRegId);
+        res.setPendingPub(List.of(pendingPub));
+        return res;
+    }
+
+    private static BPACredentialExchange issued(String revRegId, String credRevId) {
+        return BPACredentialExchange
+                .builder()
+                .id(UUID.randomUUID())
+                .role(CredentialExchangeRole.ISSUER)
+                .state(CredentialExchangeState.CREDENTIAL_ACKED)
+                .revRegId(revRegId)
+                .credRevId(credRevId)
+                .build();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.revocation.RevRegCreateRequest;
+import org.hyperledger.aries.api.revocation.RevRegCreateResponse;
+import org.hyperledger.bpa.model.BPACredentialDefinition;
+import org.hyperledger.bpa.repository.BPACredentialDefinitionRepository;
+import org.hyperledger.bpa.repository.IssuerCredExRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevocationRegistryMonitorTest {
+
+    @Mock
+    AriesClient ac;
+
+    @Mock
+    BPACredentialDefinitionRepository credDefRepo;
+
+    @Mock
+    IssuerCredExRepository credExRepo;
+
+    @InjectMocks
+    RevocationRegistryMonitor monitor;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setup() {
+        monitor.registry = registry;
+    }
+
+    @Test
+    void testRemainingCapacity() throws Exception {
+        BPACredentialDefinition credDef = credDef();
+        when(ac.revocationActiveRegistry("cred-def")).thenReturn(Optional.of(registry("reg-1", 100)));
+        when(credExRepo.countByRevRegId("reg-1")).thenReturn(85L);
+
+        monitor.checkCredDef(credDef);
+
+        assertEquals(15, registry.get("bpa.revocation.registry.remaining").gauge().value());
+        verify(ac, never()).revocationCreateRegistry(any(RevRegCreateRequest.class));
+    }
+
+    @Test
+    void testRolloverUpdatesGauge() throws Exception {
+        BPACredentialDefinition credDef = credDef();
+        when(ac.revocationActiveRegistry("cred-def"))
+                .thenReturn(Optional.of(registry("reg-1", 100)))
+                .thenReturn(Optional.of(registry("reg-2", 100)));
+        when(credExRepo.countByRevRegId("reg-1")).thenReturn(100L);
+        when(credExRepo.countByRevRegId("reg-2")).thenReturn(1L);
+
+        monitor.checkCredDef(credDef);
+        assertEquals(0, registry.get("bpa.revocation.registry.remaining").gauge().value());
+
+        monitor.checkCredDef(credDef);
+        assertEquals(99, registry.get("bpa.revocation.registry.remaining").gauge().value());
+    }
+
+    @Test
+    void testFallbackToCredDefSize() throws Exception {
+        BPACredentialDefinition credDef = credDef();
+        when(ac.revocationActiveRegistry("cred-def")).thenReturn(Optional.of(registry("reg-1", null)));
+        when(credExRepo.countByRevRegId("reg-1")).thenReturn(10L);
+
+        monitor.checkCredDef(credDef);
+
+        assertEquals(90, registry.get("bpa.revocation.registry.remaining").gauge().value());
+    }
+
+    @Test
+    void testNoActiveRegistry() throws Exception {
+        when(ac.revocationActiveRegistry("cred-def")).thenReturn(Optional.empty());
+
+        monitor.checkCredDef(credDef());
+
+        verifyNoInteractions(credExRepo);
+    }
+
+    private static BPACredentialDefinition credDef() {
+        return BPACredentialDefinition
+                .builder()
+                .id(UUID.randomUUID())
+                .credentialDefinitionId("cred-def")
+                .isSupportRevocation(Boolean.TRUE)
+                .revocationRegistrySize(100)
+                .build();
+    }
+
+    private static RevRegCreateResponse registry(String revRegId, Integer maxCredNum) {
+        RevRegCreateResponse res = new RevRegCreateResponse();
+        res.setRevocRegId(revRegId);
+        res.setMaxCredNum(maxCredNum);
+        return res;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.event.ApplicationEventPublisher;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.health.HealthStatus;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.bpa.impl.activity.VPManager;
+import org.hyperledger.bpa.impl.aries.PartnerCredDefLookup;
+import org.hyperledger.bpa.impl.aries.config.SchemaService;
+import org.hyperledger.bpa.impl.mode.web.WebStartupTasks;
+import org.hyperledger.bpa.repository.BPAStateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StartupTasksTest {
+
+    @Mock
+    BPAStateRepository stateRepo;
+
+    @Mock
+    AriesClient ac;
+
+    @Mock
+    SchemaService schemaService;
+
+    @Mock
+    TagService tagService;
+
+    @Mock
+    PartnerCredDefLookup credLookup;
+
+    @Mock
+    VPManager vpMgmt;
+
+    @Mock
+    WebStartupTasks webTasks;
+
+    @Mock
+    ApplicationEventPublisher<Object> eventPublisher;
+
+    @Mock
+    ApplicationContext applicationContext;
+
+    @InjectMocks
+    StartupTasks startupTasks;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final TestReadinessCheck readiness = new TestReadinessCheck();
+
+    @BeforeEach
+    void setup() {
+        startupTasks.envState = Boolean.TRUE;
+        startupTasks.host = "test.me";
+        startupTasks.webTasks = Optional.of(webTasks);
+        startupTasks.indyTasks = Optional.empty();
+        startupTasks.executor = executor;
+        startupTasks.registry = new SimpleMeterRegistry();
+        startupTasks.maxAttempts = 3;
+        startupTasks.initialBackoff = Duration.ofMillis(10);
+        startupTasks.maxBackoff = Duration.ofMillis(50);
+        readiness.startupTasks = startupTasks;
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testCriticalStepsRunAfterAcaPyIsReady() {
+        startupTasks.onServiceStartedEvent(mock(StartupEvent.class));
+
+        await(startupTasks::isReady);
+        InOrder schemas = inOrder(ac, schemaService);
+        schemas.verify(ac).statusWaitUntilReady(any(Duration.class));
+        schemas.verify(schemaService).resetWriteOnlySchemas();
+        InOrder mode = inOrder(ac, webTasks);
+        mode.verify(ac).statusWaitUntilReady(any(Duration.class));
+        mode.verify(webTasks).onServiceStartedEvent();
+        verify(tagService).createDefaultTags();
+
+        InOrder events = inOrder(eventPublisher, schemaService);
+        events.verify(eventPublisher).publishEvent(any(StartupTasks.AcaPyReady.class));
+        events.verify(schemaService).resetWriteOnlySchemas();
+        verify(eventPublisher, timeout(5000)).publishEvent(any(StartupTasks.BpaReady.class));
+        verify(vpMgmt, timeout(5000)).recreateVerifiablePresentation();
+        verify(credLookup, timeout(5000)).lookupTypesForAllPartnersAsync();
+        assertEquals(HealthStatus.UP, readiness.status());
+        assertTrue(readiness.details().keySet().containsAll(
+                List.of("acapy-ready", "default-tags", "default-schemas", "web-mode")));
+    }
+
+    @Test
+    void testNotReadyWhileAcaPyIsStarting() throws Exception {
+        CountDownLatch acaPyStarted = new CountDownLatch(1);
+        doAnswer(inv -> {
+            acaPyStarted.await();
+            return null;
+        }).when(ac).statusWaitUntilReady(any(Duration.class));
+
+        startupTasks.onServiceStartedEvent(mock(StartupEvent.class));
+
+        verify(tagService, timeout(5000)).createDefaultTags();
+        assertFalse(startupTasks.isReady());
+        assertEquals(HealthStatus.DOWN, readiness.status());
+        verify(schemaService, never()).resetWriteOnlySchemas();
+        verify(webTasks, never()).onServiceStartedEvent();
+        verify(vpMgmt, never()).getVerifiablePresentation();
+        verify(eventPublisher, never()).publishEvent(any());
+
+        acaPyStarted.countDown();
+
+        await(startupTasks::isReady);
+        assertEquals(HealthStatus.UP, readiness.status());
+        verify(schemaService).resetWriteOnlySchemas();
+    }
+
+    @Test
+    void testFailedStepIsRetried() {
+        doThrow(new RuntimeException("aca-py down"))
+                .doNothing()
+                .when(ac).statusWaitUntilReady(any(Duration.class));
+
+        startupTasks.onServiceStartedEvent(mock(StartupEvent.class));
+
+        await(startupTasks::isReady);
+        verify(ac, times(2)).statusWaitUntilReady(any(Duration.class));
+        assertFalse(startupTasks.getSteps().get("acapy-ready").startsWith("failed"));
+        // only the step is retried, the listeners run once
+        verify(eventPublisher, times(1)).publishEvent(any(StartupTasks.AcaPyReady.class));
+        verify(eventPublisher, timeout(5000).times(1)).publishEvent(any(StartupTasks.BpaReady.class));
+        verify(applicationContext, never()).stop();
+    }
+
+    @Test
+    void testStopsWhenStepFailsAfterMaxAttempts() {
+        doThrow(new RuntimeException("aca-py down")).when(ac).statusWaitUntilReady(any(Duration.class));
+
+        startupTasks.onServiceStartedEvent(mock(StartupEvent.class));
+
+        verify(applicationContext, timeout(5000)).stop();
+        verify(ac, times(3)).statusWaitUntilReady(any(Duration.class));
+        assertFalse(startupTasks.isReady());
+        assertEquals(HealthStatus.DOWN, readiness.status());
+        assertEquals("failed: aca-py down", readiness.details().get("acapy-ready"));
+        verify(schemaService, never()).resetWriteOnlySchemas();
+        verify(vpMgmt, never()).getVerifiablePresentation();
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testBackoffIsCapped() {
+        assertEquals(Duration.ofMillis(10), startupTasks.backoff(1));
+        assertEquals(Duration.ofMillis(20), startupTasks.backoff(2));
+        assertEquals(Duration.ofMillis(40), startupTasks.backoff(3));
+        assertEquals(Duration.ofMillis(50), startupTasks.backoff(4));
+        assertEquals(Duration.ofMillis(50), startupTasks.backoff(100));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long until = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < until, "condition not met within 5s");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    private static class TestReadinessCheck extends StartupReadinessCheck {
+
+        HealthStatus status() {
+            getHealthInformation();
+            return healthStatus;
+        }
+
+        Map<String, String> details() {
+            return getHealthInformation();
+        }
+    }
+}
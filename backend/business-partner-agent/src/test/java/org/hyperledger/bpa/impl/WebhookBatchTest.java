@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import org.hyperledger.bpa.core.RegisteredWebhook;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookBatchSettings;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookBatchTest {
+
+    private final RegisteredWebhook hook = RegisteredWebhook.builder()
+            .url("https://test.me")
+            .batch(WebhookBatchSettings.builder().maxSize(2).maxLingerMs(60_000L).build())
+            .build();
+
+    @Test
+    void testFullBatchIsSentInOrder() {
+        WebhookBatch batch = new WebhookBatch(hook, 10_000, Duration.ofMinutes(5));
+        assertFalse(batch.add(hook, bytes("1")));
+        assertTrue(batch.add(hook, bytes("2")));
+        batch.add(hook, bytes("3"));
+
+        List<String> sent = new ArrayList<>();
+        batch.flush(b -> sent.add(new String(b, StandardCharsets.UTF_8)));
+
+        assertEquals(List.of("[1,2]", "[3]"), sent);
+        assertEquals(0, batch.size());
+    }
+
+    @Test
+    void testFailedBatchIsKept() {
+        WebhookBatch batch = new WebhookBatch(hook, 10_000, Duration.ofMinutes(5));
+        batch.add(hook, bytes("1"));
+        batch.add(hook, bytes("2"));
+
+        batch.flush(b -> false);
+        assertEquals(2, batch.size());
+
+        List<String> sent = new ArrayList<>();
+        batch.flush(b -> sent.add(new String(b, StandardCharsets.UTF_8)));
+        assertEquals(List.of("[1,2]"), sent);
+    }
+
+    @Test
+    void testLinger() {
+        WebhookBatch batch = new WebhookBatch(hook, 10_000, Duration.ofMinutes(5));
+        assertFalse(batch.isDue(Instant.now()));
+        batch.add(hook, bytes("1"));
+        assertFalse(batch.isDue(Instant.now()));
+        assertTrue(batch.isDue(Instant.now().plusSeconds(61)));
+    }
+
+    @Test
+    void testBufferIsBounded() {
+        WebhookBatch batch = new WebhookBatch(hook, 3, Duration.ofMinutes(5));
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(batch.hasRoom());
+            batch.add(hook, bytes(String.valueOf(i)));
+        }
+        assertFalse(batch.hasRoom());
+        assertEquals(0, batch.remaining());
+
+        batch.setOverflowing(true);
+        List<String> sent = new ArrayList<>();
+        batch.flush(b -> sent.add(new String(b, StandardCharsets.UTF_8)));
+        assertEquals(List.of("[1,2]", "[3]"), sent);
+        // newer events are in the overflow, they have to be sent first
+        assertEquals(3, batch.remaining());
+        assertFalse(batch.hasRoom());
+    }
+
+    @Test
+    void testFailureBacksOff() {
+        WebhookBatch batch = new WebhookBatch(hook, 10_000, Duration.ofMinutes(5));
+        batch.add(hook, bytes("1"));
+        batch.add(hook, bytes("2"));
+        assertTrue(batch.isDue(Instant.now()));
+
+        batch.flush(b -> false);
+        assertTrue(batch.isBackingOff(Instant.now()));
+        assertFalse(batch.isDue(Instant.now()));
+        assertTrue(batch.isDue(Instant.now().plusSeconds(2)));
+
+        batch.flush(b -> true);
+        assertFalse(batch.isBackingOff(Instant.now()));
+    }
+
+    @Test
+    void testBackoffIsCapped() {
+        Duration max = Duration.ofMinutes(5);
+        assertEquals(Duration.ofSeconds(1), WebhookBatch.backoff(1, max));
+        assertEquals(Duration.ofSeconds(8), WebhookBatch.backoff(4, max));
+        assertEquals(max, WebhookBatch.backoff(10, max));
+        assertEquals(max, WebhookBatch.backoff(1000, max));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micronaut.context.event.ApplicationEventPublisher;
+import org.hyperledger.bpa.core.RegisteredWebhook;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookEventType;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.model.BPAWebhook;
+import org.hyperledger.bpa.repository.BPAWebhookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookRegistryTest {
+
+    @Mock
+    BPAWebhookRepository repo;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    private final Converter conv = new Converter();
+
+    private WebhookRegistry registry;
+
+    @BeforeEach
+    void setup() {
+        conv.setMapper(new ObjectMapper());
+        registry = new WebhookRegistry();
+        registry.repo = repo;
+        registry.conv = conv;
+        registry.eventPublisher = eventPublisher;
+    }
+
+    @Test
+    void testGroupedByEventType() {
+        when(repo.findAll()).thenReturn(List.of(
+                webhook("https://a.me", WebhookEventType.PARTNER_ADD),
+                webhook("https://b.me", WebhookEventType.PARTNER_ADD, WebhookEventType.PARTNER_UPDATE)));
+
+        assertEquals(2, registry.findByEventType(WebhookEventType.PARTNER_ADD).size());
+        assertEquals(1, registry.findByEventType(WebhookEventType.PARTNER_UPDATE).size());
+        assertTrue(registry.findByEventType(WebhookEventType.ALL).isEmpty());
+
+        verify(repo, times(1)).findAll();
+    }
+
+    @Test
+    void testInvalidateReloads() {
+        when(repo.findAll())
+                .thenReturn(List.of(webhook("https://a.me", WebhookEventType.PARTNER_ADD)))
+                .thenReturn(List.of());
+
+        assertEquals(1, registry.findByEventType(WebhookEventType.PARTNER_ADD).size());
+        registry.invalidate();
+        assertTrue(registry.findByEventType(WebhookEventType.PARTNER_ADD).isEmpty());
+
+        verify(repo, times(2)).findAll();
+        verify(eventPublisher, times(1)).publishEvent(any(WebhookRegistry.WebhooksChanged.class));
+    }
+
+    private BPAWebhook webhook(String url, WebhookEventType... types) {
+        RegisteredWebhook hook = RegisteredWebhook.builder()
+                .url(url)
+                .registeredEvent(List.of(types))
+                .build();
+        return BPAWebhook.builder().webhook(conv.toMap(hook)).build();
+    }
+}
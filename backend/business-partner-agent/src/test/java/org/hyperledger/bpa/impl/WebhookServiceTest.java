@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.data.model.Pageable;
+import okhttp3.*;
+import okio.Buffer;
+import org.hyperledger.bpa.client.OutboundHttpClients;
+import org.hyperledger.bpa.core.RegisteredWebhook;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookBatchSettings;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookEventType;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.model.BPAWebhook;
+import org.hyperledger.bpa.model.WebhookOverflow;
+import org.hyperledger.bpa.repository.BPAWebhookRepository;
+import org.hyperledger.bpa.repository.WebhookOverflowRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WebhookServiceTest {
+
+    private static final String URL = "https://hook.me/events";
+    private static final Pattern PAYLOAD = Pattern.compile("\"payload\":\"(\\d+)\"");
+
+    private final RegisteredWebhook hook = RegisteredWebhook.builder()
+            .url(URL)
+            .registeredEvent(List.of(WebhookEventType.PARTNER_ADD))
+            .batch(WebhookBatchSettings.builder().maxSize(10).maxLingerMs(1_000L).build())
+            .build();
+
+    /** stand-in for the webhook_overflow table */
+    private final List<WebhookOverflow> table = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    private final List<String> delivered = new ArrayList<>();
+    private final AtomicBoolean up = new AtomicBoolean();
+
+    private final WebhookOverflowRepository overflowRepo = mock(WebhookOverflowRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WebhookService service;
+
+    @BeforeEach
+    void setup() {
+        Converter conv = new Converter();
+        conv.setMapper(new ObjectMapper());
+
+        service = new WebhookService();
+        service.conv = conv;
+        service.repo = mock(BPAWebhookRepository.class);
+        service.registry = mock(WebhookRegistry.class);
+        service.overflowRepo = overflowRepo;
+        service.meterRegistry = meterRegistry;
+        service.maxBuffered = 2;
+        service.maxBackoff = Duration.ofMinutes(5);
+        service.http = mock(OutboundHttpClients.class);
+        when(service.registry.findByEventType(WebhookEventType.PARTNER_ADD)).thenReturn(List.of(hook));
+        Interceptor server = chain -> {
+            Buffer body = new Buffer();
+            chain.request().body().writeTo(body);
+            if (up.get()) {
+                delivered.add(body.readString(StandardCharsets.UTF_8));
+            }
+            return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(up.get() ? 200 : 503)
+                    .message("test")
+                    .body(ResponseBody.create("", WebhookService.JSON_TYPE))
+                    .build();
+        };
+        when(service.http.forDestination(OutboundHttpClients.WEBHOOK))
+                .thenReturn(new OkHttpClient.Builder().addInterceptor(server).build());
+
+        when(overflowRepo.save(any(WebhookOverflow.class))).thenAnswer(inv -> {
+            WebhookOverflow o = inv.getArgument(0);
+            o.setId(ids.incrementAndGet());
+            table.add(o);
+            return o;
+        });
+        when(overflowRepo.findByUrlOrderById(anyString(), any(Pageable.class))).thenAnswer(inv -> table.stream()
+                .filter(o -> o.getUrl().equals(inv.getArgument(0)))
+                .limit(((Pageable) inv.getArgument(1)).getSize())
+                .collect(Collectors.toList()));
+        doAnswer(inv -> {
+            List<Long> deleted = inv.getArgument(0);
+            table.removeIf(o -> deleted.contains(o.getId()));
+            return null;
+        }).when(overflowRepo).deleteByIdIn(anyList());
+    }
+
+    @Test
+    void testFullBufferOverflowsAndIsSentInOrder() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            service.convertAndSend(WebhookEventType.PARTNER_ADD, String.valueOf(i));
+        }
+        // two events in memory, the rest is stored instead of dropped
+        assertEquals(3, table.size());
+        assertEquals(3, meterRegistry.counter("bpa.webhook.overflow").count());
+        assertTrue(delivered.isEmpty());
+
+        up.set(true);
+        // wait for the backoff of the failed post and the linger time
+        Thread.sleep(1100);
+        service.flushBatches();
+
+        assertEquals(List.of("1", "2", "3", "4", "5"), payloads());
+        assertTrue(table.isEmpty());
+
+        service.convertAndSend(WebhookEventType.PARTNER_ADD, "6");
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    void testOverflowIsResumedAfterRestart() {
+        table.add(WebhookOverflow.builder().id(ids.incrementAndGet()).url(URL).event(event("1")).build());
+        table.add(WebhookOverflow.builder().id(ids.incrementAndGet()).url(URL).event(event("2")).build());
+        table.add(WebhookOverflow.builder().id(ids.incrementAndGet()).url(URL).event(event("3")).build());
+        when(overflowRepo.findDistinctUrl()).thenReturn(List.of(URL, "https://deleted.me"));
+        when(service.repo.findByUrl(URL)).thenReturn(Optional.of(BPAWebhook
+                .builder()
+                .webhook(service.conv.toMap(hook))
+                .build()));
+        when(service.repo.findByUrl("https://deleted.me")).thenReturn(Optional.empty());
+        up.set(true);
+
+        service.restoreOverflow(mock(StartupEvent.class));
+        verify(overflowRepo).deleteByUrl("https://deleted.me");
+
+        service.flushBatches();
+        assertEquals(List.of("1", "2", "3"), payloads());
+        assertTrue(table.isEmpty());
+    }
+
+    private List<String> payloads() {
+        List<String> result = new ArrayList<>();
+        delivered.forEach(body -> {
+            Matcher m = PAYLOAD.matcher(body);
+            while (m.find()) {
+                result.add(m.group(1));
+            }
+        });
+        return result;
+    }
+
+    private static String event(String payload) {
+        return "{\"type\":\"PARTNER_ADD\",\"payload\":\"" + payload + "\"}";
+    }
+}
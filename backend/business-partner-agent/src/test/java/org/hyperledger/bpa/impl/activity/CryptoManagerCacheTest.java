@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.activity;
+
+import io.micronaut.cache.SyncCache;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
+import org.hyperledger.aries.api.jsonld.VerifyResponse;
+import org.hyperledger.aries.config.GsonConfig;
+import org.hyperledger.bpa.util.CryptoUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CryptoManagerCacheTest {
+
+    private final AriesClient ac = mock(AriesClient.class);
+
+    @SuppressWarnings("unchecked")
+    private final SyncCache<Object> cache = mock(SyncCache.class);
+
+    private CryptoManager mgmt;
+
+    @BeforeEach
+    void setup() {
+        mgmt = new CryptoManager();
+        mgmt.acaPy = ac;
+        mgmt.verificationCache = cache;
+    }
+
+    @Test
+    void testCachedResultIsReturned() throws Exception {
+        when(cache.get(anyString(), eq(Boolean.class))).thenReturn(Optional.of(Boolean.TRUE));
+
+        assertTrue(mgmt.verify("verkey", presentation()));
+
+        verify(ac, never()).jsonldVerify(anyString(), any());
+    }
+
+    @Test
+    void testDefiniteResultIsCached() throws Exception {
+        when(ac.jsonldVerify(anyString(), any())).thenReturn(Optional.of(response(false)));
+
+        assertFalse(mgmt.verify("verkey", presentation()));
+
+        verify(cache, times(1)).put(anyString(), eq(Boolean.FALSE));
+    }
+
+    @Test
+    void testSameKeyForSamePresentation() throws Exception {
+        when(ac.jsonldVerify(anyString(), any())).thenReturn(Optional.of(response(true)));
+
+        mgmt.verify("verkey", presentation());
+        mgmt.verify("verkey", presentation());
+        mgmt.verify("other", presentation());
+
+        verify(cache, times(2)).get(eq(hashOf("verkey")), eq(Boolean.class));
+        verify(cache, times(1)).get(eq(hashOf("other")), eq(Boolean.class));
+    }
+
+    @Test
+    void testEmptyResponseIsNotCached() throws Exception {
+        when(ac.jsonldVerify(anyString(), any())).thenReturn(Optional.empty());
+
+        assertFalse(mgmt.verify("verkey", presentation()));
+
+        verify(cache, never()).put(any(), any());
+    }
+
+    private static String hashOf(String verkey) {
+        return CryptoUtil.toSHA256Hex(verkey + GsonConfig.defaultConfig().toJson(presentation()));
+    }
+
+    private static VerifyResponse response(boolean valid) {
+        return GsonConfig.defaultConfig().fromJson("{\"valid\":" + valid + "}", VerifyResponse.class);
+    }
+
+    private static VerifiablePresentation<VerifiableIndyCredential> presentation() {
+        return VerifiablePresentation.<VerifiableIndyCredential>builder()
+                .verifiableCredential(List.of(VerifiableIndyCredential.builder().issuer("did:sov:1").build()))
+                .build();
+    }
+}
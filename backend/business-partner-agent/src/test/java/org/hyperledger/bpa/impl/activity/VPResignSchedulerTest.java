@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.activity;
+
+import io.micronaut.scheduling.TaskScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VPResignSchedulerTest {
+
+    @Mock
+    VPManager vpMgmt;
+
+    @Mock
+    TaskScheduler taskScheduler;
+
+    @Mock
+    ScheduledFuture<Object> future;
+
+    private final VPResignScheduler scheduler = new VPResignScheduler();
+    private Instant now = Instant.parse("2021-12-01T10:00:00Z");
+
+    @BeforeEach
+    void setup() {
+        scheduler.vpMgmt = vpMgmt;
+        scheduler.scheduler = taskScheduler;
+        scheduler.debounce = Duration.ofSeconds(1);
+        scheduler.maxDelay = Duration.ofSeconds(10);
+        tick(0);
+        doReturn(future).when(taskScheduler).schedule(any(Duration.class), any(Runnable.class));
+    }
+
+    @Test
+    void testBurstIsCollapsed() {
+        ArgumentCaptor<Duration> delay = ArgumentCaptor.forClass(Duration.class);
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+
+        scheduler.requestResign();
+        tick(0);
+        scheduler.requestResign();
+        scheduler.requestResign();
+
+        verify(future, times(2)).cancel(false);
+        verify(taskScheduler, times(3)).schedule(delay.capture(), task.capture());
+        assertEquals(Duration.ofSeconds(1), delay.getValue());
+
+        task.getValue().run();
+        verify(vpMgmt, times(1)).recreateVerifiablePresentation();
+    }
+
+    @Test
+    void testMaxDelayIsRespected() {
+        ArgumentCaptor<Duration> delay = ArgumentCaptor.forClass(Duration.class);
+
+        scheduler.requestResign();
+        tick(9);
+        scheduler.requestResign();
+        tick(2);
+        scheduler.requestResign();
+
+        verify(taskScheduler, times(3)).schedule(delay.capture(), any(Runnable.class));
+        assertEquals(Duration.ofSeconds(1), delay.getAllValues().get(1));
+        assertEquals(Duration.ZERO, delay.getAllValues().get(2));
+    }
+
+    @Test
+    void testNewBurstAfterRun() {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        scheduler.requestResign();
+        verify(taskScheduler).schedule(any(Duration.class), task.capture());
+        task.getValue().run();
+
+        tick(30);
+        ArgumentCaptor<Duration> delay = ArgumentCaptor.forClass(Duration.class);
+        scheduler.requestResign();
+        verify(taskScheduler, times(2)).schedule(delay.capture(), any(Runnable.class));
+        assertEquals(Duration.ofSeconds(1), delay.getValue());
+        verify(future, never()).cancel(false);
+    }
+
+    private void tick(long seconds) {
+        now = now.plusSeconds(seconds);
+        scheduler.clock = Clock.fixed(now, ZoneOffset.UTC);
+    }
+}
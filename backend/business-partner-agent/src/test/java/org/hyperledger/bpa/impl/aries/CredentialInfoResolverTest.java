@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries;
+
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.present_proof.PresentationRequestCredentials.CredentialInfo;
+import org.hyperledger.bpa.api.aries.AriesCredential;
+import org.hyperledger.bpa.impl.aries.config.RestrictionsManager;
+import org.hyperledger.bpa.impl.aries.config.SchemaService;
+import org.hyperledger.bpa.model.BPACredentialExchange;
+import org.hyperledger.bpa.repository.HolderCredExRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CredentialInfoResolverTest {
+
+    private static final String SCHEMA_ID = "M6Mbe3qx7vB4wpZF4sBRjt:2:bank_account:1.0";
+    private static final String CRED_DEF_ID = "M6Mbe3qx7vB4wpZF4sBRjt:3:CL:571:bank";
+
+    @Mock
+    AriesClient ac;
+
+    @Mock
+    SchemaService schemaService;
+
+    @Mock
+    RestrictionsManager restrictionsManager;
+
+    @Mock
+    HolderCredExRepository holderCredExRepo;
+
+    @InjectMocks
+    CredentialInfoResolver resolver;
+
+    @BeforeEach
+    void setup() {
+        resolver.revocationExecutor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        resolver.revocationExecutor.shutdownNow();
+    }
+
+    @Test
+    void testBatchResolvesLabelsOnceAndKeepsOrder() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        when(schemaService.getSchemaLabel(SCHEMA_ID)).thenReturn("Bank Account");
+        when(restrictionsManager.findIssuerLabelByDid(CRED_DEF_ID)).thenReturn("My Bank");
+        when(holderCredExRepo.findByReferentIn(anyList())).thenReturn(List.of(BPACredentialExchange
+                .builder()
+                .id(walletId)
+                .referent("r2")
+                .label("savings")
+                .build()));
+        when(ac.credentialRevoked(anyString())).thenReturn(Optional.empty());
+
+        List<AriesCredential.BPACredentialInfo> result = resolver.populateCredentialInfo(List.of(
+                credentialInfo("r1"), credentialInfo("r2"), credentialInfo("r1")));
+
+        assertEquals(3, result.size());
+        result.forEach(i -> {
+            assertEquals("Bank Account", i.getSchemaLabel());
+            assertEquals("My Bank", i.getIssuerLabel());
+        });
+        assertNull(result.get(0).getCredentialId());
+        assertEquals(walletId, result.get(1).getCredentialId());
+        assertEquals("savings", result.get(1).getCredentialLabel());
+
+        verify(schemaService, times(1)).getSchemaLabel(SCHEMA_ID);
+        verify(restrictionsManager, times(1)).findIssuerLabelByDid(CRED_DEF_ID);
+        verify(holderCredExRepo, times(1)).findByReferentIn(List.of("r1", "r2"));
+        verify(holderCredExRepo, never()).findByReferent(anyString());
+        verify(ac, times(1)).credentialRevoked("r1");
+        verify(ac, times(1)).credentialRevoked("r2");
+    }
+
+    @Test
+    void testEmptyBatch() {
+        assertTrue(resolver.populateCredentialInfo(List.of()).isEmpty());
+        verifyNoInteractions(holderCredExRepo, ac);
+    }
+
+    private static CredentialInfo credentialInfo(String referent) {
+        CredentialInfo ci = new CredentialInfo();
+        ci.setReferent(referent);
+        ci.setSchemaId(SCHEMA_ID);
+        ci.setCredentialDefinitionId(CRED_DEF_ID);
+        return ci;
+    }
+}
@@ -20,7 +20,7 @@ package org.hyperledger.bpa.impl.aries;
 import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
 import jakarta.inject.Inject;
 import org.hyperledger.bpa.client.LedgerExplorerClient;
-import org.hyperledger.bpa.controller.api.partner.PartnerCredentialType;
+import org.hyperledger.bpa.client.api.LedgerQueryResult;
 import org.hyperledger.bpa.model.BPASchema;
 import org.hyperledger.bpa.model.Partner;
 import org.hyperledger.bpa.repository.BPARestrictionsRepository;
@@ -32,14 +32,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 @MicronautTest
 @ExtendWith(MockitoExtension.class)
@@ -92,14 +91,16 @@ class MockPartnerCredDefLookupTest {
                 BPASchema.builder().seqNo(977).build(),
                 BPASchema.builder().seqNo(9999).build()));
 
-        when(ledger.queryCredentialDefinitions(anyString()))
-                .thenReturn(Optional.of(List.of(
-                        PartnerCredentialType.fromCredDefId("did-1:3:CL:1077:commercial register entry"),
-                        PartnerCredentialType.fromCredDefId("did-1:3:CL:1077:commereg test"),
-                        PartnerCredentialType.fromCredDefId("other:3:CL:1077:commreg"))))
-                .thenReturn(Optional.of(List.of(
-                        PartnerCredentialType.fromCredDefId("did-1:3:CL:977:bank"),
-                        PartnerCredentialType.fromCredDefId("did-2:3:CL:977:my-bank"))))
+        when(ledger.queryCredentialDefinitionTransactions("1077"))
+                .thenReturn(Optional.of(credDefs(
+                        "did-1:3:CL:1077:commercial register entry",
+                        "did-1:3:CL:1077:commereg test",
+                        "other:3:CL:1077:commreg")));
+        when(ledger.queryCredentialDefinitionTransactions("977"))
+                .thenReturn(Optional.of(credDefs(
+                        "did-1:3:CL:977:bank",
+                        "did-2:3:CL:977:my-bank")));
+        when(ledger.queryCredentialDefinitionTransactions("9999"))
                 .thenReturn(Optional.empty());
 
         lookup.lookupTypesForAllPartners();
@@ -116,5 +117,90 @@ class MockPartnerCredDefLookupTest {
 
         partners = pRepo.findBySupportedCredential("9999");
         assertEquals(0, partners.size());
+
+        // a partner added later is resolved from the last scan
+        String did3 = "other";
+        pRepo.save(Partner
+                .builder()
+                .ariesSupport(Boolean.TRUE)
+                .did(did3)
+                .connectionId(did3)
+                .build());
+        lookup.lookupTypesForPartner(did3);
+
+        partners = pRepo.findBySupportedCredential("1077");
+        assertEquals(2, partners.size());
+        verify(ledger, times(1)).queryCredentialDefinitionTransactions("1077");
+    }
+
+    @Test
+    void testIssuersOfRemovedSchemasAreUpdated() {
+        String did = "did-removed";
+        pRepo.save(Partner
+                .builder()
+                .ariesSupport(Boolean.TRUE)
+                .did(did)
+                .connectionId(did)
+                .build());
+        BPASchema kept = BPASchema.builder().seqNo(501).build();
+        when(schemaRepo.findAll())
+                .thenReturn(List.of(kept, BPASchema.builder().seqNo(502).build()))
+                .thenReturn(List.of(kept));
+        when(ledger.queryCredentialDefinitionTransactions("501"))
+                .thenReturn(Optional.of(credDefs("did-other:3:CL:501:kept")));
+        when(ledger.queryCredentialDefinitionTransactions("502"))
+                .thenReturn(Optional.of(credDefs("did-removed:3:CL:502:removed")));
+
+        lookup.lookupTypesForAllPartners();
+        assertEquals(1, pRepo.findBySupportedCredential("502").size());
+
+        // the schema is gone, so is the partners only credential type
+        lookup.lookupTypesForAllPartners();
+        assertTrue(pRepo.findBySupportedCredential("502").isEmpty());
+        assertNotNull(pRepo.findByDid(did).orElseThrow().getSupportedCredentials());
+    }
+
+    @Test
+    void testPartnerAddedDuringScanIsUpdatedAfterIt() {
+        String did = "did-queued";
+        when(schemaRepo.findAll()).thenReturn(List.of(BPASchema.builder().seqNo(601).build()));
+        LedgerQueryResult result = credDefs("did-queued:3:CL:601:queued");
+        when(ledger.queryCredentialDefinitionTransactions("601"))
+                .thenReturn(Optional.of(result))
+                .thenAnswer(inv -> {
+                    // the partner is added while the scan holds the lock
+                    Thread added = new Thread(() -> lookup.lookupTypesForPartner(did));
+                    added.start();
+                    added.join();
+                    return Optional.of(result);
+                });
+
+        lookup.lookupTypesForAllPartners();
+        pRepo.save(Partner
+                .builder()
+                .ariesSupport(Boolean.TRUE)
+                .did(did)
+                .connectionId(did)
+                .build());
+        assertTrue(pRepo.findBySupportedCredential("601").isEmpty());
+
+        // unchanged scan, the partner is only updated because it was queued
+        lookup.lookupTypesForAllPartners();
+        assertEquals(1, pRepo.findBySupportedCredential("601").size());
+    }
+
+    private static LedgerQueryResult credDefs(String... credDefIds) {
+        LedgerQueryResult result = new LedgerQueryResult();
+        List<LedgerQueryResult.DomainTransaction> txns = new ArrayList<>();
+        for (int i = 0; i < credDefIds.length; i++) {
+            LedgerQueryResult.DomainTransaction.TxnMetadata md = new LedgerQueryResult.DomainTransaction.TxnMetadata();
+            md.setSeqNo(100 + i);
+            md.setTxnId(credDefIds[i]);
+            LedgerQueryResult.DomainTransaction txn = new LedgerQueryResult.DomainTransaction();
+            txn.setTxnMetadata(md);
+            txns.add(txn);
+        }
+        result.setResults(txns);
+        return result;
     }
 }
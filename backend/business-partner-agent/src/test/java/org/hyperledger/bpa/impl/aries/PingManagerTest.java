@@ -17,6 +17,7 @@
  */
 package org.hyperledger.bpa.impl.aries;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.NonNull;
 import org.hyperledger.aries.AriesClient;
 import org.hyperledger.aries.api.connection.ConnectionState;
@@ -26,17 +27,27 @@ import org.hyperledger.aries.api.trustping.PingRequest;
 import org.hyperledger.aries.api.trustping.PingResponse;
 import org.hyperledger.bpa.model.Partner;
 import org.hyperledger.bpa.repository.PartnerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -49,12 +60,33 @@ class PingManagerTest {
     @Mock
     private PartnerRepository repo;
 
+    @Mock
+    private ReconciliationManager reconciliation;
+
     @InjectMocks
     private PingManager ping;
 
+    private static final Instant START = Instant.parse("2021-11-01T10:00:00Z");
+
+    @BeforeEach
+    void setup() {
+        ping.executor = Executors.newFixedThreadPool(2);
+        ping.registry = new SimpleMeterRegistry();
+        ping.interval = Duration.ofMinutes(1);
+        ping.maxInterval = Duration.ofMinutes(4);
+        ping.registerMetrics();
+        minutesPassed(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ping.executor.shutdownNow();
+    }
+
     @Test
     void testHappyFlow() throws Exception {
         ping.checkConnections();
+        minutesPassed(1);
 
         when(repo.findByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter))
                 .thenReturn(List.of(
@@ -73,98 +105,104 @@ class PingManagerTest {
         assertEquals(1, ping.getReceivedSize());
 
         ping.checkConnections();
+        minutesPassed(2);
 
         verify(repo, times(2)).findByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter);
-        verify(repo, never()).updateStateByConnectionId(anyString(), any(ConnectionState.class));
-        verify(repo, never()).updateStateAndLastSeenByConnectionId(any(), any(), any());
+        verify(repo, never()).updateStateByConnectionIdIn(anyList(), any(ConnectionState.class));
+        verify(repo, never()).updateStateAndLastSeenByConnectionIdIn(any(), any(), any());
 
         assertEquals(2, ping.getSentSize());
         assertEquals(0, ping.getReceivedSize());
 
         ping.checkConnections();
 
+        // both missed the ping, so they are due again after two minutes
         verify(repo, times(3)).findByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter);
-        verify(repo, times(1)).updateStateByConnectionId("1", ConnectionState.PING_NO_RESPONSE);
-        verify(repo, times(1)).updateStateByConnectionId("2", ConnectionState.PING_NO_RESPONSE);
-        verify(repo, never()).updateStateAndLastSeenByConnectionId(any(), any(), any());
+        verify(repo, times(1)).updateStateByConnectionIdIn(
+                argThat(ids -> ids.size() == 2 && ids.containsAll(List.of("1", "2"))),
+                eq(ConnectionState.PING_NO_RESPONSE));
+        verify(repo, never()).updateStateAndLastSeenByConnectionIdIn(any(), any(), any());
 
-        assertEquals(2, ping.getSentSize());
+        assertEquals(0, ping.getSentSize());
         assertEquals(0, ping.getReceivedSize());
 
+        minutesPassed(3);
+        ping.checkConnections();
+        assertEquals(2, ping.getSentSize());
+
         ping.handlePingEvent(PingEvent.of("a", PingEventState.RESPONSE_RECEIVED));
         ping.handlePingEvent(PingEvent.of("b", PingEventState.RESPONSE_RECEIVED));
         ping.handlePingEvent(PingEvent.of("comment", PingEventState.RECEIVED));
 
         assertEquals(2, ping.getReceivedSize());
 
+        minutesPassed(4);
         ping.checkConnections();
 
-        verify(repo, times(1)).updateStateAndLastSeenByConnectionId(
-                argThat(a -> a.equals("1")),
-                argThat(a -> a.equals(ConnectionState.PING_RESPONSE)),
-                argThat(a -> a.isBefore(Instant.now())));
-        verify(repo, times(1)).updateStateAndLastSeenByConnectionId(
-                argThat(a -> a.equals("2")),
-                argThat(a -> a.equals(ConnectionState.PING_RESPONSE)),
-                argThat(a -> a.isBefore(Instant.now())));
+        verify(repo, times(1)).updateStateAndLastSeenByConnectionIdIn(
+                argThat(ids -> ids.size() == 2 && ids.containsAll(List.of("1", "2"))),
+                eq(ConnectionState.PING_RESPONSE),
+                argThat(a -> !a.isAfter(Instant.now())));
+        verify(repo, times(1)).updateStateByConnectionIdIn(anyList(), any(ConnectionState.class));
 
         assertEquals(2, ping.getSentSize());
+        assertEquals(1, ping.registry.find("bpa.ping.response-rate").gauges().size());
+        assertEquals(1.0, ping.registry.get("bpa.ping.response-rate").gauge().value());
     }
 
     @Test
-    void testInitialState() {
+    void testUpdatesAreChunked() {
+        ping.checkConnections();
+        int partners = PingManager.UPDATE_CHUNK * 2 + 500;
         when(repo.findByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter))
-                .thenReturn(List.of(
-                        createPartner("1"),
-                        createPartner("2")));
+                .thenReturn(IntStream.range(0, partners)
+                        .mapToObj(i -> createPartner(String.valueOf(i)))
+                        .collect(Collectors.toList()));
+        when(aries.connectionsSendPing(anyString(), any(PingRequest.class)))
+                .thenAnswer(inv -> Optional.of(new PingResponse(UUID.randomUUID().toString())));
 
         ping.checkConnections();
-        verify(repo, never()).updateStateByConnectionId(anyString(), any(ConnectionState.class));
+        assertEquals(partners, ping.getSentSize());
+        minutesPassed(1);
+        ping.checkConnections();
 
-        assertEquals(0, ping.getSentSize());
+        verify(repo, times(2)).updateStateByConnectionIdIn(
+                argThat(ids -> ids.size() == PingManager.UPDATE_CHUNK), eq(ConnectionState.PING_NO_RESPONSE));
+        verify(repo, times(1)).updateStateByConnectionIdIn(
+                argThat(ids -> ids.size() == 500), eq(ConnectionState.PING_NO_RESPONSE));
+        assertEquals(0.0, ping.registry.get("bpa.ping.response-rate").gauge().value());
     }
 
     @Test
-    void testRemoveStale() throws Exception {
-        when(aries.connectionIds()).thenReturn(List.of("1", "2", "3"));
-        when(repo.findAll()).thenReturn(List.of(Partner.builder().connectionId("1").build()));
-
-        ping.deleteStaleConnections();
-
-        verify(aries, times(1)).connectionsRemove("2");
-        verify(aries, times(1)).connectionsRemove("3");
+    void testBackoff() {
+        assertEquals(Duration.ofMinutes(2), ping.backoff(1));
+        assertEquals(Duration.ofMinutes(4), ping.backoff(2));
+        assertEquals(Duration.ofMinutes(4), ping.backoff(10));
+        assertTrue(ping.backoff(100).compareTo(ping.maxInterval) <= 0);
     }
 
     @Test
-    void testRemoveStaleOnlyBpa() throws Exception {
-        when(aries.connectionIds()).thenReturn(List.of());
-        when(repo.findAll()).thenReturn(List.of(Partner.builder().connectionId("1").build()));
+    void testInitialState() {
+        when(repo.findByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter))
+                .thenReturn(List.of(
+                        createPartner("1"),
+                        createPartner("2")));
 
-        ping.deleteStaleConnections();
+        ping.checkConnections();
+        verify(repo, never()).updateStateByConnectionIdIn(anyList(), any(ConnectionState.class));
 
-        verify(aries, never()).connectionsRemove(anyString());
+        assertEquals(0, ping.getSentSize());
     }
 
     @Test
-    void testRemoveStaleBothEmpty() throws Exception {
-        when(aries.connectionIds()).thenReturn(List.of());
-        when(repo.findAll()).thenReturn(List.of());
-
+    void testRemoveStaleDelegates() throws Exception {
         ping.deleteStaleConnections();
 
-        verify(aries, never()).connectionsRemove(anyString());
+        verify(reconciliation, times(1)).removeStaleConnections();
     }
 
-    @Test
-    void testRemoveStaleBothSame() throws Exception {
-        when(aries.connectionIds()).thenReturn(List.of("1", "2"));
-        when(repo.findAll()).thenReturn(List.of(
-                Partner.builder().connectionId("1").build(),
-                Partner.builder().connectionId("2").build()));
-
-        ping.deleteStaleConnections();
-
-        verify(aries, never()).connectionsRemove(anyString());
+    private void minutesPassed(long minutes) {
+        ping.clock = Clock.fixed(START.plus(Duration.ofMinutes(minutes)), ZoneOffset.UTC);
     }
 
     private Partner createPartner(@NonNull String connectionId) {
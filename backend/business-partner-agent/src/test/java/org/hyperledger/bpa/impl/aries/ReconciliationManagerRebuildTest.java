@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries;
+
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.connection.ConnectionRecord;
+import org.hyperledger.aries.api.connection.ConnectionState;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
+import org.hyperledger.aries.api.issue_credential_v1.IssueCredentialRecordsFilter;
+import org.hyperledger.aries.api.issue_credential_v1.V1CredentialExchange;
+import org.hyperledger.aries.api.present_proof.PresentProofRecordsFilter;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeRecord;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
+import org.hyperledger.aries.config.GsonConfig;
+import org.hyperledger.aries.webhook.EventParser;
+import org.hyperledger.bpa.BaseTest;
+import org.hyperledger.bpa.controller.api.admin.ReconciliationReport;
+import org.hyperledger.bpa.model.BPACredentialExchange;
+import org.hyperledger.bpa.model.Partner;
+import org.hyperledger.bpa.model.PartnerProof;
+import org.hyperledger.bpa.repository.IssuerCredExRepository;
+import org.hyperledger.bpa.repository.PartnerProofRepository;
+import org.hyperledger.bpa.repository.PartnerRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@MicronautTest
+class ReconciliationManagerRebuildTest extends BaseTest {
+
+    @Inject
+    ReconciliationManager mgmt;
+
+    @Inject
+    AriesClient ac;
+
+    @Inject
+    PartnerRepository partnerRepo;
+
+    @Inject
+    IssuerCredExRepository credExRepo;
+
+    @Inject
+    PartnerProofRepository proofRepo;
+
+    private final EventParser ep = new EventParser();
+
+    @MockBean(AriesClient.class)
+    AriesClient ariesClient() {
+        return Mockito.mock(AriesClient.class);
+    }
+
+    @Test
+    void testRebuildCreatesLostRecords() throws Exception {
+        V1CredentialExchange credEx = GsonConfig.defaultConfig().fromJson(
+                loader.load("files/v1-credex-holder/04-acked.json"), V1CredentialExchange.class);
+        PresentationExchangeRecord proof = ep.parsePresentProof(
+                loader.load("files/self-request-proof/03-verifier-verified.json")).orElseThrow();
+        ConnectionRecord issuer = connection(credEx.getConnectionId(), ConnectionState.ACTIVE);
+        ConnectionRecord prover = connection(proof.getConnectionId(), ConnectionState.COMPLETED);
+        V1CredentialExchange orphan = GsonConfig.defaultConfig().fromJson(
+                loader.load("files/v1-credex-holder/01-offer.json"), V1CredentialExchange.class);
+        orphan.setCredentialExchangeId("orphan");
+        orphan.setConnectionId("no-such-connection");
+
+        when(ac.connections()).thenReturn(Optional.of(List.of(issuer, prover)));
+        when(ac.connectionIds()).thenReturn(List.of(issuer.getConnectionId(), prover.getConnectionId()));
+        when(ac.issueCredentialRecords(any(IssueCredentialRecordsFilter.class)))
+                .thenReturn(Optional.of(List.of(credEx, orphan)));
+        when(ac.presentProofRecords(any(PresentProofRecordsFilter.class)))
+                .thenReturn(Optional.of(List.of(proof)));
+
+        ReconciliationReport report = mgmt.rebuild();
+
+        // two connections, one credential and one presentation exchange, not the orphan
+        assertEquals(4, report.getRebuilt());
+        assertTrue(report.getConnections().getOnlyInAcaPy().isEmpty());
+        assertEquals(List.of("orphan"), report.getCredentialExchanges().getOnlyInAcaPy());
+        assertTrue(report.getPresentationExchanges().getOnlyInAcaPy().isEmpty());
+
+        Partner partner = partnerRepo.findByConnectionId(credEx.getConnectionId()).orElseThrow();
+        assertEquals(ConnectionState.ACTIVE, partner.getState());
+        assertEquals("Issuer", partner.getLabel());
+
+        BPACredentialExchange dbCredEx = credExRepo.findByCredentialExchangeId(credEx.getCredentialExchangeId())
+                .orElseThrow();
+        assertEquals(CredentialExchangeRole.HOLDER, dbCredEx.getRole());
+        assertEquals(CredentialExchangeState.CREDENTIAL_ACKED, dbCredEx.getState());
+        assertEquals(partner.getId(), dbCredEx.getPartner().getId());
+        assertNotNull(dbCredEx.getCredential());
+        assertEquals(credEx.getCredential().getReferent(), dbCredEx.getReferent());
+
+        PartnerProof dbProof = proofRepo.findByPresentationExchangeId(proof.getPresentationExchangeId())
+                .orElseThrow();
+        assertEquals(PresentationExchangeState.VERIFIED, dbProof.getState());
+        assertNotNull(dbProof.getProof());
+
+        // nothing left to rebuild
+        assertEquals(0, mgmt.rebuild().getRebuilt());
+    }
+
+    @Test
+    void testStaleConnectionsAreKeptWhenTheBpaHasNoConnections() throws Exception {
+        partnerRepo.deleteAll();
+        when(ac.connectionIds()).thenReturn(List.of("lost-1", "lost-2"));
+
+        assertEquals(0, mgmt.removeStaleConnections());
+
+        verify(ac, never()).connectionsRemove(any());
+    }
+
+    private static ConnectionRecord connection(String connectionId, ConnectionState state) {
+        ConnectionRecord con = new ConnectionRecord();
+        con.setConnectionId(connectionId);
+        con.setState(state);
+        con.setTheirDid("F6dB7dMVHUQSC64qemnBi7");
+        con.setTheirLabel("Issuer");
+        con.setUpdatedAt("2021-06-01T10:00:00.000000Z");
+        return con;
+    }
+}
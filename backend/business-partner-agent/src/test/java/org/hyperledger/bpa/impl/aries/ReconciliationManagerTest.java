@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries;
+
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.connection.ConnectionRecord;
+import org.hyperledger.aries.api.connection.ConnectionState;
+import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.admin.ReconciliationRebuildStatus;
+import org.hyperledger.bpa.controller.api.admin.ReconciliationRebuildStatus.RebuildState;
+import org.hyperledger.bpa.controller.api.admin.ReconciliationReport;
+import org.hyperledger.bpa.model.Partner;
+import org.hyperledger.bpa.repository.IssuerCredExRepository;
+import org.hyperledger.bpa.repository.PartnerProofRepository;
+import org.hyperledger.bpa.repository.PartnerRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReconciliationManagerTest {
+
+    @Mock
+    AriesClient ac;
+
+    @Mock
+    PartnerRepository partnerRepo;
+
+    @Mock
+    IssuerCredExRepository credExRepo;
+
+    @Mock
+    PartnerProofRepository proofRepo;
+
+    @Mock
+    ExecutorService executor;
+
+    @Mock
+    BPAMessageSource.DefaultMessageSource ms;
+
+    @InjectMocks
+    ReconciliationManager mgmt;
+
+    @Test
+    void testRemoveStale() throws Exception {
+        when(ac.connectionIds()).thenReturn(List.of("1", "2", "3"));
+        when(partnerRepo.findConnectionIds()).thenReturn(List.of("1"));
+
+        assertEquals(2, mgmt.removeStaleConnections());
+
+        verify(ac, times(1)).connectionsRemove("2");
+        verify(ac, times(1)).connectionsRemove("3");
+    }
+
+    @Test
+    void testRemoveStaleOnlyBpa() throws Exception {
+        when(ac.connectionIds()).thenReturn(List.of());
+        when(partnerRepo.findConnectionIds()).thenReturn(List.of("1"));
+
+        mgmt.removeStaleConnections();
+
+        verify(ac, never()).connectionsRemove(anyString());
+    }
+
+    @Test
+    void testRemoveStaleOnlyAcaPy() throws Exception {
+        when(ac.connectionIds()).thenReturn(List.of("1", "2"));
+        when(partnerRepo.findConnectionIds()).thenReturn(List.of());
+
+        assertEquals(0, mgmt.removeStaleConnections());
+
+        verify(ac, never()).connectionsRemove(anyString());
+    }
+
+    @Test
+    void testRemoveStaleBothEmpty() throws Exception {
+        when(ac.connectionIds()).thenReturn(List.of());
+        when(partnerRepo.findConnectionIds()).thenReturn(List.of());
+
+        mgmt.removeStaleConnections();
+
+        verify(ac, never()).connectionsRemove(anyString());
+    }
+
+    @Test
+    void testRemoveStaleBothSame() throws Exception {
+        when(ac.connectionIds()).thenReturn(List.of("1", "2"));
+        when(partnerRepo.findConnectionIds()).thenReturn(List.of("1", "2"));
+
+        mgmt.removeStaleConnections();
+
+        verify(ac, never()).connectionsRemove(anyString());
+    }
+
+    @Test
+    void testOnlyOneRebuildRuns() throws Exception {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        doNothing().when(executor).execute(task.capture());
+
+        ReconciliationRebuildStatus started = mgmt.startRebuild();
+        assertEquals(RebuildState.RUNNING, started.getState());
+        assertEquals(started, mgmt.rebuildStatus().orElseThrow());
+
+        assertThrows(WrongApiUsageException.class, () -> mgmt.startRebuild());
+        assertThrows(WrongApiUsageException.class, () -> mgmt.rebuild());
+        verify(executor, times(1)).execute(any(Runnable.class));
+
+        when(ac.connections()).thenReturn(Optional.empty());
+        task.getValue().run();
+
+        ReconciliationRebuildStatus done = mgmt.rebuildStatus().orElseThrow();
+        assertEquals(RebuildState.DONE, done.getState());
+        assertEquals(0, done.getReport().getRebuilt());
+        assertNotNull(done.getFinishedAt());
+
+        // released again
+        mgmt.startRebuild();
+        verify(executor, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void testRebuildSavesInChunks() throws Exception {
+        mgmt.chunkSize = 2;
+        mgmt.didPrefix = "did:sov:";
+        List<ConnectionRecord> connections = IntStream.range(0, 5).mapToObj(i -> {
+            ConnectionRecord c = new ConnectionRecord();
+            c.setConnectionId("con-" + i);
+            c.setState(ConnectionState.ACTIVE);
+            return c;
+        }).collect(Collectors.toList());
+        when(ac.connections()).thenReturn(Optional.of(connections));
+        when(partnerRepo.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        assertEquals(5, mgmt.rebuild().getRebuilt());
+
+        // 2 + 2 + 1
+        verify(partnerRepo, times(3)).saveAll(anyList());
+        verify(partnerRepo, never()).save(any(Partner.class));
+    }
+
+    @Test
+    void testDiff() {
+        ReconciliationReport.Diff diff = ReconciliationManager.diff(
+                List.of("a", "b", "c", "c"), List.of("b", "c", "d"));
+        assertEquals(3, diff.getAcaPy());
+        assertEquals(3, diff.getBpa());
+        assertEquals(List.of("a"), diff.getOnlyInAcaPy());
+        assertEquals(List.of("d"), diff.getOnlyInBpa());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries;
+
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.credentials.Credential;
+import org.hyperledger.bpa.model.BPACredentialExchange;
+import org.hyperledger.bpa.repository.HolderCredExRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevocationStatusSweeperTest {
+
+    private static final Instant NOW = Instant.parse("2021-11-01T10:00:00Z");
+
+    @Mock
+    AriesClient ac;
+
+    @Mock
+    HolderCredExRepository holderCredExRepo;
+
+    @InjectMocks
+    RevocationStatusSweeper sweeper;
+
+    @BeforeEach
+    void setup() {
+        sweeper.executor = Executors.newFixedThreadPool(2);
+        sweeper.clock = Clock.fixed(NOW, ZoneOffset.UTC);
+        sweeper.checkInterval = Duration.ofMinutes(5);
+        sweeper.maxCheckInterval = Duration.ofHours(6);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweeper.executor.shutdownNow();
+    }
+
+    @Test
+    void testUnchangedCredentialsAreRescheduled() throws Exception {
+        BPACredentialExchange c1 = credential("reg-1", null, null);
+        BPACredentialExchange c2 = credential("reg-1", NOW.minus(Duration.ofMinutes(10)), NOW);
+        BPACredentialExchange c3 = credential("reg-2", null, null);
+        when(holderCredExRepo.findRevocationCheckDue(NOW)).thenReturn(List.of(c1, c2, c3));
+        when(ac.credentialRevoked(anyString())).thenReturn(Optional.empty());
+
+        sweeper.checkRevocationStatus();
+
+        verify(ac, times(3)).credentialRevoked(anyString());
+        verify(holderCredExRepo).updateRevocationCheck(c1.getId(), NOW, NOW.plus(Duration.ofMinutes(5)));
+        verify(holderCredExRepo).updateRevocationCheck(c2.getId(), NOW, NOW.plus(Duration.ofMinutes(20)));
+        verify(holderCredExRepo).updateRevocationCheck(c3.getId(), NOW, NOW.plus(Duration.ofMinutes(5)));
+        verify(holderCredExRepo, never()).updateRevoked(any(), any(), any());
+    }
+
+    @Test
+    void testNextIntervalIsBounded() {
+        assertEquals(Duration.ofMinutes(5), sweeper.nextInterval(credential("reg", null, null)));
+        assertEquals(Duration.ofMinutes(5), sweeper.nextInterval(
+                credential("reg", NOW, NOW.plus(Duration.ofMinutes(1)))));
+        assertEquals(Duration.ofHours(4), sweeper.nextInterval(
+                credential("reg", NOW, NOW.plus(Duration.ofHours(2)))));
+        assertEquals(Duration.ofHours(6), sweeper.nextInterval(
+                credential("reg", NOW, NOW.plus(Duration.ofHours(5)))));
+    }
+
+    private static BPACredentialExchange credential(String revRegId, Instant checkedAt, Instant nextCheckAt) {
+        Credential c = new Credential();
+        c.setRevRegId(revRegId);
+        return BPACredentialExchange
+                .builder()
+                .id(UUID.randomUUID())
+                .referent(UUID.randomUUID().toString())
+                .credential(c)
+                .revocationCheckedAt(checkedAt)
+                .revocationNextCheckAt(nextCheckAt)
+                .build();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020-2021 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.config;
+
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.schema.SchemaSendResponse;
+import org.hyperledger.bpa.model.LedgerArtifact;
+import org.hyperledger.bpa.repository.LedgerArtifactRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerArtifactCacheTest {
+
+    private static final String SCHEMA_ID = "M6Mbe3qx7vB4wpZF4sBRjt:2:bank_account:1.0";
+
+    @Mock
+    LedgerArtifactRepository artifactRepo;
+
+    @Mock
+    AriesClient ac;
+
+    private final LedgerArtifactCache cache = new LedgerArtifactCache();
+
+    @BeforeEach
+    void setup() {
+        cache.artifactRepo = artifactRepo;
+        cache.ac = ac;
+    }
+
+    @Test
+    void testLedgerIsOnlyAskedOnce() throws Exception {
+        when(artifactRepo.findByType(LedgerArtifact.ArtifactType.SCHEMA)).thenReturn(List.of());
+        when(ac.schemasGetById(SCHEMA_ID)).thenReturn(Optional.of(schema()));
+
+        assertEquals(List.of("iban", "bic"), cache.getSchema(SCHEMA_ID).orElseThrow().getAttrNames());
+        assertEquals(List.of("iban", "bic"), cache.getSchema(SCHEMA_ID).orElseThrow().getAttrNames());
+
+        verify(ac, times(1)).schemasGetById(SCHEMA_ID);
+        ArgumentCaptor<LedgerArtifact> saved = ArgumentCaptor.forClass(LedgerArtifact.class);
+        verify(artifactRepo).save(saved.capture());
+        assertEquals(SCHEMA_ID, saved.getValue().getId());
+        assertEquals(LedgerArtifact.ArtifactType.SCHEMA, saved.getValue().getType());
+    }
+
+    @Test
+    void testStoredSchemaIsServedWithoutLedger() throws Exception {
+        Map<String, Object> content = Map.of(
+                "id", SCHEMA_ID,
+                "seqNo", 571.0,
+                "attrNames", List.of("iban", "bic"));
+        when(artifactRepo.findByType(LedgerArtifact.ArtifactType.SCHEMA)).thenReturn(List.of(LedgerArtifact.builder()
+                .id(SCHEMA_ID)
+                .type(LedgerArtifact.ArtifactType.SCHEMA)
+                .content(content)
+                .build()));
+
+        SchemaSendResponse.Schema schema = cache.getSchema(SCHEMA_ID).orElseThrow();
+
+        assertEquals(571, schema.getSeqNo());
+        assertEquals(List.of("iban", "bic"), schema.getAttrNames());
+        verify(ac, never()).schemasGetById(anyString());
+        verify(artifactRepo, never()).save(any());
+    }
+
+    @Test
+    void testUnknownSchemaIsNotStored() throws Exception {
+        when(artifactRepo.findByType(LedgerArtifact.ArtifactType.SCHEMA)).thenReturn(List.of());
+        when(ac.schemasGetById(SCHEMA_ID)).thenReturn(Optional.empty());
+
+        assertTrue(cache.getSchema(SCHEMA_ID).isEmpty());
+        verify(artifactRepo, never()).save(any());
+    }
+
+    private static SchemaSendResponse.Schema schema() {
+        return SchemaSendResponse.Schema.builder()
+                .id(SCHEMA_ID)
+                .seqNo(571)
+                .name("bank_account")
+                .attrNames(List.of("iban", "bic"))
+                .build();
+    }
+}
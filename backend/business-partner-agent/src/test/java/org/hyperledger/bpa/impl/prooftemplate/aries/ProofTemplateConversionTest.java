@@ -25,6 +25,7 @@ import org.hyperledger.bpa.model.BPAProofTemplate;
 import org.hyperledger.bpa.model.prooftemplate.*;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 
 import java.util.List;
 import java.util.UUID;
@@ -475,4 +476,36 @@ public class ProofTemplateConversionTest extends ProofTemplateConversionTestBase
         assertWithAcapy(actual);
         assertEqualAttributesInProofRequests(expected, actual);
     }
+
+    @Test
+    public void testThatACompiledTemplateIsReusedWithFreshNonRevocation() {
+        UUID schemaId = prepareSchemaWithAttributes("mySchemaId", "name");
+        prepareConnectionId("myConnectionId");
+        BPAProofTemplate template = BPAProofTemplate.builder()
+                .id(UUID.randomUUID())
+                .name("MyTestTemplate")
+                .attributeGroups(BPAAttributeGroups.builder()
+                        .attributeGroup(BPAAttributeGroup.builder()
+                                .schemaId(schemaId.toString())
+                                .nonRevoked(Boolean.TRUE)
+                                .attribute(BPAAttribute.builder()
+                                        .name("name")
+                                        .build())
+                                .build())
+                        .build())
+                .build();
+
+        PresentProofRequest first = proofTemplateConversion.proofRequestViaVisitorFrom(UUID.randomUUID(), template);
+        PresentProofRequest second = proofTemplateConversion.proofRequestViaVisitorFrom(UUID.randomUUID(), template);
+
+        assertEqualAttributesInProofRequests(first, second);
+        Assertions.assertNotSame(first.getProofRequest(), second.getProofRequest());
+        long now = Math.floorDiv(clock.millis(), 1000);
+        PresentProofRequest.ProofRequest.ProofRequestedAttributes attributes = second.getProofRequest()
+                .getRequestedAttributes().get("mySchemaId");
+        Assertions.assertEquals(now, attributes.getNonRevoked().getFrom());
+        Assertions.assertEquals(now, attributes.getNonRevoked().getTo());
+        // the ledger schema id is only resolved while compiling the template
+        Mockito.verify(schemaService, Mockito.times(2)).getSchema(schemaId);
+    }
 }
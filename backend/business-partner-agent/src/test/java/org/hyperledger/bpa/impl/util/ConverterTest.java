@@ -32,6 +32,7 @@ import org.hyperledger.bpa.model.Partner;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.util.Map;
 import java.util.UUID;
 
@@ -62,6 +63,39 @@ class ConverterTest extends BaseTest {
         assertEquals(content, contentResult);
     }
 
+    @Test
+    void testPartnerPresentationIsParsedOncePerUpdate() throws Exception {
+        VerifiablePresentation<VerifiableIndyCredential> vp = loadAndConvertTo("files/verifiablePresentation.json",
+                Converter.VP_TYPEREF);
+        Partner p = Partner
+                .builder()
+                .id(UUID.randomUUID())
+                .updatedAt(Instant.ofEpochMilli(1000))
+                .did("did:sov:Ni2hE7fEHJ25xUBc7ZESf6")
+                .verifiablePresentation(conv.toMap(vp))
+                .build();
+
+        PartnerAPI first = conv.toAPIObject(p);
+        PartnerAPI second = conv.toAPIObject(p.setAlias("alias"));
+        assertEquals(3, second.getCredential().size());
+        assertEquals(first.getCredential(), second.getCredential());
+        assertNull(first.getAlias());
+        assertEquals("alias", second.getAlias());
+
+        // every caller gets its own copy of the cached credentials
+        assertNotSame(first.getCredential(), second.getCredential());
+        assertNotSame(first.getVerifiablePresentation(), second.getVerifiablePresentation());
+        second.getCredential().get(0).setTypeLabel("changed");
+        assertEquals(first.getCredential(), conv.toAPIObject(p).getCredential());
+
+        PartnerAPI updated = conv.toAPIObject(p.setUpdatedAt(Instant.ofEpochMilli(2000)));
+        assertNotSame(first.getCredential(), updated.getCredential());
+        assertEquals(first.getCredential(), updated.getCredential());
+
+        conv.invalidatePartner(p.getId());
+        assertNotSame(updated.getCredential(), conv.toAPIObject(p).getCredential());
+    }
+
     @Test
     void testConvertVPToPartnerApi() throws Exception {
         VerifiablePresentation<VerifiableIndyCredential> vp = loadAndConvertTo("files/verifiablePresentation.json",
@@ -20,6 +20,7 @@ package org.hyperledger.bpa.repository;
 import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
 import jakarta.inject.Inject;
 import org.hyperledger.aries.api.connection.ConnectionState;
+import org.hyperledger.aries.api.credentials.Credential;
 import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
 import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
 import org.hyperledger.aries.api.issue_credential_v1.V1CredentialExchange;
@@ -28,9 +29,9 @@ import org.hyperledger.bpa.BaseTest;
 import org.hyperledger.bpa.api.CredentialType;
 import org.hyperledger.bpa.model.BPACredentialExchange;
 import org.hyperledger.bpa.model.Partner;
-import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
@@ -113,18 +114,25 @@ class HolderCredExRepositoryTest extends BaseTest {
     }
 
     @Test
-    void testFindNotRevoked() {
+    void testFindRevocationCheckDue() {
+        Instant now = Instant.now();
+        Credential revocable = Credential.builder().revRegId("WgWxqztrNooG92RXvxSTWv:4:1").build();
         Partner p = createRandomPartner();
         holderCredExRepo.save(createDummyCredEx(p));
         holderCredExRepo.save(createDummyCredEx(p).setType(CredentialType.ORGANIZATIONAL_PROFILE_CREDENTIAL));
-        holderCredExRepo.save(createDummyCredEx(p).setType(CredentialType.INDY));
-        holderCredExRepo.save(createDummyCredEx(p).setType(CredentialType.INDY).setRevoked(Boolean.FALSE));
-        holderCredExRepo.save(createDummyCredEx(p).setType(CredentialType.INDY).setRevoked(Boolean.TRUE));
         holderCredExRepo.save(createDummyCredEx(p).setType(CredentialType.INDY).setReferent("1"));
+        holderCredExRepo.save(createDummyCredEx(p).setType(CredentialType.INDY).setCredential(revocable));
         holderCredExRepo.save(createDummyCredEx(p).setType(CredentialType.INDY).setReferent("2")
-                .setRevoked(Boolean.FALSE));
-
-        Assertions.assertEquals(2, holderCredExRepo.findNotRevoked().size());
+                .setCredential(revocable).setRevoked(Boolean.TRUE));
+        holderCredExRepo.save(createDummyCredEx(p).setType(CredentialType.INDY).setReferent("3")
+                .setCredential(revocable).setRevocationNextCheckAt(now.plusSeconds(60)));
+        holderCredExRepo.save(createDummyCredEx(p).setType(CredentialType.INDY).setReferent("4")
+                .setCredential(revocable));
+        holderCredExRepo.save(createDummyCredEx(p).setType(CredentialType.INDY).setReferent("5")
+                .setCredential(revocable).setRevoked(Boolean.FALSE).setRevocationNextCheckAt(now.minusSeconds(60)));
+
+        List<BPACredentialExchange> due = holderCredExRepo.findRevocationCheckDue(now);
+        assertEquals(2, due.size());
     }
 
     private static BPACredentialExchange createDummyCredEx(Partner partner) {
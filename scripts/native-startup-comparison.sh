@@ -0,0 +1,73 @@
+#!/bin/bash
+# Copyright (c) 2020-2021 - for information on the respective copyright owner
+# see the NOTICE file and/or the repository at
+# https://github.com/hyperledger-labs/business-partner-agent
+#
+# SPDX-License-Identifier: Apache-2.0
+#
+# Compares time to readiness and resident memory of the JVM and the native build.
+# Needs the dependent services running (docker-compose up bpa-agent1 bpa-wallet-db1)
+# and both artifacts built:
+#   mvn clean package                 -> business-partner-agent/target/business-partner-agent-*.jar
+#   mvn clean package -Pnative-image  -> business-partner-agent/target/business-partner-agent
+#
+# Usage: ./native-startup-comparison.sh [runs] [settle seconds]
+# Additional bpa settings are passed via JAVA_OPTS style system properties in BPA_OPTS.
+
+set -e
+
+RUNS=${1:-5}
+SETTLE=${2:-30}
+PORT=${BPA_PORT:-8080}
+TARGET="$(dirname "$0")/../backend/business-partner-agent/target"
+JAR=$(ls "${TARGET}"/business-partner-agent-*.jar 2>/dev/null | grep -v original | head -n 1)
+NATIVE="${TARGET}/business-partner-agent"
+BPA_OPTS=${BPA_OPTS:-"-Dmicronaut.security.enabled=false -Dmicronaut.config.files=classpath:application.yml,classpath:schemas.yml"}
+
+now_ms() {
+    date +%s%3N
+}
+
+rss_kb() {
+    grep VmRSS "/proc/$1/status" | awk '{print $2}'
+}
+
+# prints: <ms until ready> <rss kb when ready> <rss kb after settle>
+measure() {
+    local start pid ready rss_ready
+    start=$(now_ms)
+    "$@" > /dev/null 2>&1 &
+    pid=$!
+    until curl -sf "http://localhost:${PORT}/health/readiness" > /dev/null; do
+        if ! kill -0 ${pid} 2> /dev/null; then
+            echo "process exited before it was ready: $*" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    ready=$(( $(now_ms) - start ))
+    rss_ready=$(rss_kb ${pid})
+    sleep "${SETTLE}"
+    echo "${ready} ${rss_ready} $(rss_kb ${pid})"
+    kill ${pid}
+    wait ${pid} 2> /dev/null || true
+}
+
+run() {
+    local name=$1
+    shift
+    for i in $(seq 1 "${RUNS}"); do
+        echo "${name} $(measure "$@")"
+    done
+}
+
+if [ -z "${JAR}" ] || [ ! -x "${NATIVE}" ]; then
+    echo "Build the jar and the native image first, see backend/README.md"
+    exit 1
+fi
+
+echo "build ready_ms rss_ready_kb rss_settled_kb"
+# shellcheck disable=SC2086
+run jvm java ${BPA_OPTS} -jar "${JAR}"
+# shellcheck disable=SC2086
+run native "${NATIVE}" ${BPA_OPTS}